@@ -3,6 +3,8 @@ package dt.ai;
 import dt.model.Board;
 import dt.util.Move;
 
+import java.util.function.BooleanSupplier;
+
 /**
  * @author Emiel Rous and Wouter Koning
  * An interface which all of the AI use to ensure that you can switch AIs smoothly.
@@ -14,4 +16,47 @@ public interface AI {
      */
     Move findBestMove(Board board);
 
+    /**
+     * A method which will find the best move available for the chosen AI within a time budget. AIs which do not
+     * take long to find a move ignore the budget.
+     *
+     * @param board      The {@link Board} on which the AI has to find the best available move.
+     * @param timeBudget The amount of milliseconds the AI may take to find the move.
+     * @return The best available move that the AI could find in time.
+     */
+    default Move findBestMove(Board board, long timeBudget) {
+        return this.findBestMove(board);
+    }
+
+    /**
+     * A method which will find the best move available for the chosen AI within a time budget, unless it is asked
+     * to stop before that. AIs which can not be stopped ignore the question.
+     *
+     * @param board      The {@link Board} on which the AI has to find the best available move.
+     * @param timeBudget The amount of milliseconds the AI may take to find the move.
+     * @param stop       Asked every now and then whether the AI should stop searching and return the best move it
+     *                   has found so far.
+     * @return The best available move that the AI could find before the time ran out or it was stopped.
+     */
+    default Move findBestMove(Board board, long timeBudget, BooleanSupplier stop) {
+        return this.findBestMove(board, timeBudget);
+    }
+
+    /**
+     * Returns how much work the AI did to find its last move, such that AIs can be compared by their speed. AIs
+     * which do not search positions return 0.
+     *
+     * @return The amount of positions the AI visited to find its last move.
+     */
+    default long getNodeCount() {
+        return 0;
+    }
+
+    /**
+     * Releases the threads the AI keeps for its searches, once it is no longer used. AIs which do not keep any
+     * threads do nothing.
+     */
+    default void shutDown() {
+    }
+
 }
@@ -2,7 +2,10 @@ package dt.ai;
 
 /**
  * @author Emiel Rous and Wouter Koning
- * The various types of AI there are available.
+ * The various types of AI there are available. The parallel types search with {@link AITypes#getThreads()} threads,
+ * which is the amount of processors unless it is set with the system property {@value AITypes#THREADSPROPERTY} or
+ * {@link AITypes#setThreads(int)}. Every AI that is returned should be shut down once it is no longer used, see
+ * {@link AI#shutDown()}.
  */
 
 public enum AITypes {
@@ -30,8 +33,48 @@ public enum AITypes {
         public AI getAIClass() {
             return new MiniMaxAI2();
         }
+    },
+    PARALLELMINIMAX2 {
+        @Override
+        public AI getAIClass() {
+            return new MiniMaxAI2(MiniMaxAI2.DEFAULTDEPTH, getThreads());
+        }
+    },
+    MCTS {
+        @Override
+        public AI getAIClass() {
+            return new MCTSAI();
+        }
+    },
+    PARALLELMCTS {
+        @Override
+        public AI getAIClass() {
+            return new MCTSAI(getThreads());
+        }
     };
 
+    public static final String THREADSPROPERTY = "collecto.ai.threads";
+
+    private static volatile int threads =
+        Integer.getInteger(THREADSPROPERTY, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * @return The amount of threads the parallel types of AI search with.
+     */
+    public static int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the amount of threads the parallel types of AI that are created from now on search with.
+     *
+     * @param amount The amount of threads.
+     * @requires amount > 0
+     */
+    public static void setThreads(int amount) {
+        threads = amount;
+    }
+
     /**
      * A method which returns all of the AI types in a nice String, seperated by newlines.
      *
@@ -0,0 +1,325 @@
+package dt.ai;
+
+import dt.model.BallType;
+import dt.model.ServerBoard;
+import dt.server.Player;
+import dt.util.Move;
+import dt.util.MoveList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * Plays many games between two AIs without a server, such that AIs can be compared at a far higher rate than over
+ * the network. The games are played directly on a {@link ServerBoard} and spread over a work-stealing pool, in which
+ * every thread has its own instance of both AIs. When the arena is run from its main method, a parallel AI only
+ * searches with its share of the processors, such that the games do not compete for them and the time per move is
+ * not skewed.
+ * <p>
+ * The starting boards are drawn the same way as those of the server's board pool: every board from its own source of
+ * randomness, split off from a source with the given seed. Every board is played twice, once with each AI making the
+ * first move, so neither AI gets the better boards. A game is won like on the server: by the most sets of
+ * {@link Player#minBallForScore} balls of the same colour, and with as many sets by the most balls.
+ */
+public class Arena {
+    public static final long DEFAULTTIMEBUDGET = 100; // Milliseconds per move
+    public static final int DEFAULTBOARDS = 500;
+
+    private static final int PLAYERS = 2;
+
+    private final Supplier<AI> first;
+    private final Supplier<AI> second;
+    private final long timeBudget;
+
+    /**
+     * @param first      Creates the first AI, once for every thread.
+     * @param second     Creates the second AI, once for every thread.
+     * @param timeBudget The amount of milliseconds an AI may take to find a move.
+     * @requires timeBudget >= 0
+     */
+    public Arena(Supplier<AI> first, Supplier<AI> second, long timeBudget) {
+        this.first = first;
+        this.second = second;
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Plays two games on every board drawn from a seed. The AIs are shut down once all games have been played.
+     *
+     * @param boards  The amount of starting boards.
+     * @param seed    The seed from which the starting boards are drawn.
+     * @param threads The amount of games that are played at the same time.
+     * @return The results of the first and of the second AI, over all the games.
+     * @requires boards >= 0 && threads > 0
+     * @throws IllegalStateException When an AI did not return a valid move.
+     */
+    public Statistics[] play(int boards, long seed, int threads) {
+        SplittableRandom seeds = new SplittableRandom(seed);
+        Queue<AI> created = new ConcurrentLinkedQueue<>();
+        ThreadLocal<AI[]> ais = ThreadLocal.withInitial(() -> {
+            AI[] pair = {this.first.get(), this.second.get()};
+            created.addAll(Arrays.asList(pair));
+            return pair;
+        });
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<ForkJoinTask<GameRecord>> games = new ArrayList<>(boards * PLAYERS);
+            for (int i = 0; i < boards; i++) {
+                // Split in order, such that every run gets the same boards
+                int[] boardState = createBoard(seeds.split());
+                for (int starter = 0; starter < PLAYERS; starter++) {
+                    int firstMover = starter;
+                    games.add(pool.submit(() -> this.playGame(boardState, ais.get(), firstMover)));
+                }
+            }
+
+            Statistics[] statistics = {new Statistics(), new Statistics()};
+            for (ForkJoinTask<GameRecord> game : games) {
+                GameRecord record = game.join();
+                for (int player = 0; player < PLAYERS; player++) {
+                    statistics[player].add(record, player);
+                }
+            }
+            return statistics;
+        } finally {
+            pool.shutdownNow();
+            created.forEach(AI::shutDown);
+        }
+    }
+
+    /**
+     * @param random The source of randomness of the board.
+     * @return The state of a new board that has at least one valid move.
+     */
+    private static int[] createBoard(SplittableRandom random) {
+        ServerBoard board = new ServerBoard(random);
+        board.setupBoard();
+        return board.getBoardState();
+    }
+
+    /**
+     * Plays a game until there are no valid moves left.
+     *
+     * @param boardState The starting board.
+     * @param ais        The first and the second AI.
+     * @param firstMover The index of the AI that makes the first move.
+     * @return What happened in the game, by the index of the AI.
+     */
+    private GameRecord playGame(int[] boardState, AI[] ais, int firstMover) {
+        ServerBoard board = new ServerBoard();
+        board.fillBoard(boardState);
+        GameRecord record = new GameRecord();
+        int[][] ballCounts = new int[PLAYERS][BallType.values().length];
+        MoveList validMoves = new MoveList();
+        board.findValidMoves(validMoves);
+        for (int player = firstMover; !validMoves.isEmpty(); player = 1 - player) {
+            long start = System.nanoTime();
+            Move move = ais[player].findBestMove(board, this.timeBudget);
+            record.nanos[player] += System.nanoTime() - start;
+            record.nodes[player] += ais[player].getNodeCount();
+            record.moves[player]++;
+            if (move == null || validMoves.indexOf(move.getCode()) < 0) {
+                throw new IllegalStateException(ais[player].getClass().getSimpleName() +
+                    " played " + move + ", which is not a valid move");
+            }
+            board.apply(move.getCode(), ballCounts[player]);
+            board.findValidMoves(validMoves);
+        }
+
+        for (int player = 0; player < PLAYERS; player++) {
+            for (int count : ballCounts[player]) {
+                record.points[player] += count / Player.minBallForScore;
+                record.balls[player] += count;
+            }
+        }
+        return record;
+    }
+
+    /**
+     * What happened in a single game, by the index of the AI.
+     */
+    private static class GameRecord {
+        private final int[] points = new int[PLAYERS];
+        private final int[] balls = new int[PLAYERS];
+        private final int[] moves = new int[PLAYERS];
+        private final long[] nanos = new long[PLAYERS];
+        private final long[] nodes = new long[PLAYERS];
+
+        /**
+         * @param player The index of an AI.
+         * @return 1 if the AI won, 0 if it was a draw and -1 if the AI lost.
+         */
+        private int getOutcome(int player) {
+            int other = 1 - player;
+            int outcome = Integer.compare(this.points[player], this.points[other]);
+            return outcome != 0 ? outcome : Integer.compare(this.balls[player], this.balls[other]);
+        }
+    }
+
+    /**
+     * The results of one AI over all the games of a run.
+     */
+    public static class Statistics {
+        private int wins;
+        private int draws;
+        private int losses;
+        private long points;
+        private long balls;
+        private long moves;
+        private long nanos;
+        private long nodes;
+
+        /**
+         * @param record A game the AI played.
+         * @param player The index of the AI in the game.
+         */
+        private void add(GameRecord record, int player) {
+            int outcome = record.getOutcome(player);
+            if (outcome > 0) {
+                this.wins++;
+            } else if (outcome == 0) {
+                this.draws++;
+            } else {
+                this.losses++;
+            }
+            this.points += record.points[player];
+            this.balls += record.balls[player];
+            this.moves += record.moves[player];
+            this.nanos += record.nanos[player];
+            this.nodes += record.nodes[player];
+        }
+
+        /**
+         * @return The amount of games the AI played.
+         */
+        public int getGames() {
+            return this.wins + this.draws + this.losses;
+        }
+
+        public int getWins() {
+            return this.wins;
+        }
+
+        public int getDraws() {
+            return this.draws;
+        }
+
+        public int getLosses() {
+            return this.losses;
+        }
+
+        /**
+         * @return The share of the games the AI won, counting a draw as half a win.
+         */
+        public double getScoreRate() {
+            int games = this.getGames();
+            return games == 0 ? 0 : (this.wins + this.draws / 2.0) / games;
+        }
+
+        /**
+         * @return The average amount of points the AI scored per game.
+         */
+        public double getPointsPerGame() {
+            int games = this.getGames();
+            return games == 0 ? 0 : (double) this.points / games;
+        }
+
+        /**
+         * @return The average amount of balls the AI collected per game.
+         */
+        public double getBallsPerGame() {
+            int games = this.getGames();
+            return games == 0 ? 0 : (double) this.balls / games;
+        }
+
+        /**
+         * @return The average amount of milliseconds the AI took to find a move.
+         */
+        public double getMillisPerMove() {
+            return this.moves == 0 ? 0 : this.nanos / 1e6 / this.moves;
+        }
+
+        /**
+         * @return The amount of positions the AI visited per second of thinking, see {@link AI#getNodeCount()}.
+         */
+        public double getNodesPerSecond() {
+            return this.nanos == 0 ? 0 : this.nodes / (this.nanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "%d wins, %d draws, %d losses (%.1f%%), %.1f points and %.1f balls per game, " +
+                    "%.1f ms per move, %.0f nodes/s",
+                this.wins, this.draws, this.losses, this.getScoreRate() * 100,
+                this.getPointsPerGame(), this.getBallsPerGame(), this.getMillisPerMove(),
+                this.getNodesPerSecond());
+        }
+    }
+
+    /**
+     * Plays two AIs against each other and shows their results.
+     *
+     * @param arguments The types of the two AIs, see {@link AITypes}, followed by the amount of starting boards,
+     *                  the time budget per move in milliseconds, the amount of threads and the seed of the starting
+     *                  boards. Only the types are needed, and only the last other arguments can be left out. With
+     *                  the extra argument "book", the {@link MiniMaxAI2}s play from the default
+     *                  {@link OpeningBook}, which only knows the boards of the seed it was generated with.
+     */
+    public static void main(String[] arguments) {
+        List<String> argumentList = new ArrayList<>(Arrays.asList(arguments));
+        OpeningBook book = argumentList.remove("book") ? OpeningBook.openDefault() : null;
+        String[] args = argumentList.toArray(new String[0]);
+        if (args.length < 2) {
+            System.out.println(
+                "Usage: Arena <AI> <AI> [boards] [milliseconds per move] [threads] [seed] [book]" +
+                    System.lineSeparator() + "The AIs are one of:" + System.lineSeparator() +
+                    AITypes.allToString());
+            return;
+        }
+        AITypes firstType = AITypes.valueOf(args[0].toUpperCase());
+        AITypes secondType = AITypes.valueOf(args[1].toUpperCase());
+        if (firstType == AITypes.HUMAN || secondType == AITypes.HUMAN) {
+            System.out.println("A human can not play in the arena");
+            return;
+        }
+        int boards = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULTBOARDS;
+        long timeBudget = args.length > 3 ? Long.parseLong(args[3]) : DEFAULTTIMEBUDGET;
+        int threads = args.length > 4 ?
+            Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 0L;
+        // The games already keep the processors busy, so a parallel AI only gets its share of them
+        AITypes.setThreads(Math.max(1, Runtime.getRuntime().availableProcessors() / threads));
+
+        long start = System.nanoTime();
+        Statistics[] statistics =
+            new Arena(() -> withBook(firstType.getAIClass(), book),
+                () -> withBook(secondType.getAIClass(), book), timeBudget)
+                .play(boards, seed, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(firstType + ": " + statistics[0]);
+        System.out.println(secondType + ": " + statistics[1]);
+        System.out.printf("%d games in %.1f s, %.1f games/s on %d threads, seed %d%n",
+            statistics[0].getGames(), seconds, statistics[0].getGames() / seconds, threads, seed);
+    }
+
+    /**
+     * @param ai   An AI of the arena.
+     * @param book The book the AI plays from if it is a {@link MiniMaxAI2}, or null.
+     * @return The AI.
+     */
+    private static AI withBook(AI ai, OpeningBook book) {
+        if (book != null && ai instanceof MiniMaxAI2) {
+            ((MiniMaxAI2) ai).setOpeningBook(book);
+        }
+        return ai;
+    }
+}
@@ -0,0 +1,227 @@
+package dt.ai;
+
+import dt.model.Board;
+import dt.util.MoveList;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * Solves the end of a game exactly once only a few balls are left on the board. The value of a position is the
+ * amount of balls the player to move collects until the end of the game minus the amount of balls the opponent
+ * collects, when both play perfectly. Positions are searched with alpha beta pruning until there are no valid moves
+ * left, and every position that is solved is remembered in a {@link TranspositionTable} keyed on its Zobrist hash,
+ * such that it is solved only once, also over the searches of later moves.
+ * <p>
+ * The value does not depend on whose turn it is, since both players can make the same moves. The score of the
+ * players, which counts sets of balls of the same colour, depends on the balls they collected before the position
+ * and can thus not be solved from the position alone, so the solver, like {@link MiniMaxAI2}, counts balls.
+ * <p>
+ * A solver may be used by multiple threads at the same time, which share the remembered positions.
+ */
+public class EndgameSolver {
+    public static final int DEFAULTMAXBALLS = 20;
+
+    private static final int SOLVED = 255; // The depth of every stored position, as all are solved
+    private static final int MAXVALUE = 64;
+    private static final int STOPCHECKINTERVAL = 1024; // Positions between two checks for a stop
+
+    private final int maxBalls;
+    private final TranspositionTable memo;
+    private final ThreadLocal<Search> searches;
+
+    public EndgameSolver() {
+        this(DEFAULTMAXBALLS);
+    }
+
+    /**
+     * @param maxBalls The highest amount of balls on the board for which a position is solved.
+     * @requires maxBalls >= 0
+     */
+    public EndgameSolver(int maxBalls) {
+        this.maxBalls = maxBalls;
+        this.memo = new TranspositionTable();
+        this.searches = ThreadLocal.withInitial(() -> new Search(maxBalls / 2 + 1));
+    }
+
+    /**
+     * @param board The board of a position.
+     * @return Whether the position has few enough balls on it to be solved.
+     */
+    public boolean canSolve(Board board) {
+        return board.getBallAmount() <= this.maxBalls;
+    }
+
+    /**
+     * Solves a position.
+     *
+     * @param board The board of the position, which is the same afterwards.
+     * @param stop  Asked every now and then whether the solver should stop, after which the returned value is
+     *              meaningless.
+     * @return The amount of balls the player to move collects more than the opponent until the end of the game.
+     * @requires canSolve(board)
+     */
+    public int solve(Board board, BooleanSupplier stop) {
+        return this.solve(board, -MAXVALUE, MAXVALUE, stop);
+    }
+
+    /**
+     * Solves a position as far as needed to compare its value to a window, which is much faster than finding its
+     * exact value when it lies outside of the window.
+     *
+     * @param board The board of the position, which is the same afterwards.
+     * @param alpha The value below which the exact value is not needed.
+     * @param beta  The value above which the exact value is not needed.
+     * @param stop  Asked every now and then whether the solver should stop, after which the returned value is
+     *              meaningless.
+     * @return The value of the position, see {@link EndgameSolver#solve(Board, BooleanSupplier)}, if it lies
+     * between alpha and beta. Otherwise an upper bound of it that is at most alpha, or a lower bound of it that is
+     * at least beta.
+     * @requires canSolve(board)
+     */
+    public int solve(Board board, int alpha, int beta, BooleanSupplier stop) {
+        Search search = this.searches.get();
+        search.start(stop);
+        try {
+            return this.search(board, Math.max(alpha, -MAXVALUE), Math.min(beta, MAXVALUE), 0, search);
+        } finally {
+            search.finish();
+        }
+    }
+
+    /**
+     * Finds the value of a position within a window, like {@link MiniMaxAI2} with alpha beta pruning, but from the
+     * point of view of the player to move on every ply.
+     *
+     * @param board  The board of the position.
+     * @param alpha  The value the player to move is already sure of.
+     * @param beta   The value the opponent is already sure the player to move can not get beyond.
+     * @param ply    The amount of moves made since the position that is being solved.
+     * @param search The state of the search of the thread.
+     * @return The value of the position, or an upper bound of it if it is at most alpha, or a lower bound of it if
+     * it is at least beta.
+     */
+    private int search(Board board, int alpha, int beta, int ply, Search search) {
+        if (search.shouldStop()) {
+            return 0;
+        }
+        long key = board.getHash();
+        long entry = this.memo.probe(key);
+        if (entry != 0L) {
+            int bound = TranspositionTable.getBound(entry);
+            int value = TranspositionTable.getScore(entry);
+            if (bound == TranspositionTable.EXACT ||
+                (bound == TranspositionTable.LOWERBOUND && value >= beta) ||
+                (bound == TranspositionTable.UPPERBOUND && value <= alpha)) {
+                return value;
+            }
+        }
+
+        MoveList moves = search.getMoveList(ply);
+        board.findValidMoves(moves);
+        if (moves.isEmpty()) {
+            return 0;
+        }
+        this.order(board, moves, TranspositionTable.getBestMove(entry));
+
+        int alphaOriginal = alpha;
+        int bestValue = -MAXVALUE;
+        int bestMove = moves.get(0);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            long undoRecord = board.apply(move);
+            int yield = Board.getYieldAmount(undoRecord);
+            int value = yield - this.search(board, yield - beta, yield - alpha, ply + 1, search);
+            board.undo(undoRecord);
+            if (value > bestValue) {
+                bestValue = value;
+                bestMove = move;
+            }
+            alpha = Math.max(alpha, bestValue);
+            if (alpha >= beta) {
+                break;
+            }
+        }
+
+        if (search.isStopped()) {
+            return bestValue; // Not solved, so it is not remembered
+        }
+        int bound = bestValue <= alphaOriginal ? TranspositionTable.UPPERBOUND :
+            bestValue >= beta ? TranspositionTable.LOWERBOUND : TranspositionTable.EXACT;
+        this.memo.store(key, SOLVED, bestValue, bound, TranspositionTable.encodeMove(bestMove));
+        return bestValue;
+    }
+
+    /**
+     * Sorts the moves of a position such that the moves that yield the most balls are searched first, after the
+     * best move found by an earlier search of the position.
+     *
+     * @param board       The board of the position, which is the same afterwards.
+     * @param moves       The valid moves on the board.
+     * @param encodedMove The encoded best move of an earlier search, or {@link TranspositionTable#NOMOVE}.
+     */
+    private void order(Board board, MoveList moves, int encodedMove) {
+        for (int i = 0; i < moves.size(); i++) {
+            long undoRecord = board.apply(moves.get(i));
+            board.undo(undoRecord);
+            moves.setPriority(i, Board.getYieldAmount(undoRecord));
+        }
+        moves.sortByPriority();
+        if (encodedMove != TranspositionTable.NOMOVE) {
+            int index = moves.indexOf(TranspositionTable.decodeMove(encodedMove));
+            if (index > 0) {
+                moves.moveToFront(index);
+            }
+        }
+    }
+
+    /**
+     * The state of the search of a single thread: a list of moves for every ply, and whether to stop.
+     */
+    private static class Search {
+        private final MoveList[] moveLists;
+        private BooleanSupplier stop;
+        private int positions;
+        private boolean stopped;
+
+        private Search(int plies) {
+            this.moveLists = new MoveList[plies + 1];
+        }
+
+        private void start(BooleanSupplier newStop) {
+            this.stop = newStop;
+            this.positions = 0;
+            this.stopped = false;
+        }
+
+        /**
+         * Lets go of the stop, which may refer to the AI that uses the solver. The search stays with the thread as
+         * long as the solver exists, so it should not keep the AI, and with it the solver, from being collected.
+         */
+        private void finish() {
+            this.stop = null;
+        }
+
+        private MoveList getMoveList(int ply) {
+            if (this.moveLists[ply] == null) {
+                this.moveLists[ply] = new MoveList();
+            }
+            return this.moveLists[ply];
+        }
+
+        /**
+         * @return Whether the search has been asked to stop, which is only asked every
+         * {@link EndgameSolver#STOPCHECKINTERVAL} positions.
+         */
+        private boolean shouldStop() {
+            if (!this.stopped && ++this.positions % STOPCHECKINTERVAL == 0) {
+                this.stopped = this.stop.getAsBoolean();
+            }
+            return this.stopped;
+        }
+
+        private boolean isStopped() {
+            return this.stopped;
+        }
+    }
+}
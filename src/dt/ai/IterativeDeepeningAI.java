@@ -0,0 +1,134 @@
+package dt.ai;
+
+import dt.model.Board;
+import dt.util.Move;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * An AI that searches a fixed amount of moves ahead, which can also search within a time budget by searching one
+ * move deeper every iteration. The best move of the last iteration is searched first in the next one, and when the
+ * time runs out, the best move of the deepest fully searched iteration is returned. When the first iteration has
+ * already found the exact score of every move, there is no need to search any deeper.
+ * <p>
+ * A search can also be stopped from another thread before the time runs out, in which case it returns like it ran
+ * out of time.
+ */
+public abstract class IterativeDeepeningAI implements AI {
+    private static final long NODEADLINE = Long.MAX_VALUE;
+    private static final int MAXDEPTH = 25; // Every move removes at least 2 of the 48 balls
+    private static final BooleanSupplier NOSTOP = () -> false;
+
+    private volatile long deadline = NODEADLINE;
+    private volatile BooleanSupplier stop = NOSTOP;
+    private volatile int completedDepth;
+
+    /**
+     * Finds the best move by searching 1, 2, 3, ... moves ahead until the time budget runs out.
+     *
+     * @param board      The {@link Board} on which the AI has to find the best available move.
+     * @param timeBudget The amount of milliseconds the AI may take to find the move.
+     * @return The best move of the deepest search that finished within the time budget, or the first valid move if
+     * not even the first search finished.
+     * @requires timeBudget >= 0
+     * @ensures the board is unchanged
+     */
+    @Override
+    public Move findBestMove(Board board, long timeBudget) {
+        return this.findBestMove(board, timeBudget, NOSTOP);
+    }
+
+    /**
+     * Finds the best move by searching 1, 2, 3, ... moves ahead until the time budget runs out or the search is
+     * asked to stop.
+     *
+     * @param board      The {@link Board} on which the AI has to find the best available move.
+     * @param timeBudget The amount of milliseconds the AI may take to find the move.
+     * @param stop       Asked while searching whether the search should stop.
+     * @return The best move of the deepest search that finished in time, or the first valid move if not even the
+     * first search finished.
+     * @requires timeBudget >= 0
+     * @ensures the board is unchanged
+     */
+    @Override
+    public Move findBestMove(Board board, long timeBudget, BooleanSupplier stop) {
+        List<Move> validMoves = board.findValidMoves();
+        if (validMoves.isEmpty()) {
+            return null;
+        }
+        Move bestMove = validMoves.get(0);
+        this.completedDepth = 0;
+        this.deadline = System.currentTimeMillis() + timeBudget;
+        this.stop = stop;
+        try {
+            for (int depth = 1; depth <= MAXDEPTH; depth++) {
+                int[] scores = this.searchRoot(board, validMoves, depth);
+                if (this.isOutOfTime()) {
+                    break; // The scores of an unfinished search can not be trusted
+                }
+                int bestIndex = 0;
+                for (int i = 1; i < scores.length; i++) {
+                    if (scores[i] > scores[bestIndex]) {
+                        bestIndex = i;
+                    }
+                }
+                bestMove = validMoves.remove(bestIndex);
+                validMoves.add(0, bestMove);
+                this.completedDepth = depth;
+                if (this.isSolved(board)) {
+                    this.completedDepth = MAXDEPTH;
+                    break; // A deeper search gives the same scores
+                }
+            }
+        } finally {
+            this.deadline = NODEADLINE;
+            this.stop = NOSTOP;
+        }
+        return bestMove;
+    }
+
+    /**
+     * @return The depth of the deepest iteration that the last search finished, which is the highest possible depth
+     * if it found the exact scores, or 0 if not even the first iteration finished.
+     */
+    public int getCompletedDepth() {
+        return this.completedDepth;
+    }
+
+    /**
+     * Searches all the valid moves on a board to a fixed depth. When the AI runs out of time, the search may stop
+     * early and return any scores.
+     *
+     * @param board      The board on which the best move has to be found.
+     * @param validMoves The valid moves on the board, in the order in which they should be searched.
+     * @param depth      The amount of moves to look ahead.
+     * @return The score of every move, in the order of the moves. The first move with the highest score is the best.
+     * @ensures the board is unchanged
+     */
+    protected abstract int[] searchRoot(Board board, List<Move> validMoves, int depth);
+
+    /**
+     * Finds out whether searching the moves on a board to any depth gives the exact score of every move, such
+     * that searching deeper does not change the best move.
+     *
+     * @param board The board on which the best move has to be found.
+     * @return Whether a search of any depth finds the exact scores.
+     */
+    protected boolean isSolved(Board board) {
+        return false;
+    }
+
+    /**
+     * Checks whether the time budget of the current search has run out, or the search has been asked to stop.
+     * Searches without a time budget never run out of time.
+     *
+     * @return Whether the search should stop as soon as possible.
+     */
+    protected boolean isOutOfTime() {
+        long currentDeadline = this.deadline;
+        return currentDeadline != NODEADLINE &&
+            (System.currentTimeMillis() >= currentDeadline || this.stop.getAsBoolean());
+    }
+}
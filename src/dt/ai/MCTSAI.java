@@ -0,0 +1,358 @@
+package dt.ai;
+
+import dt.model.Board;
+import dt.util.Move;
+import dt.util.MoveList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * A Monte Carlo tree search, which does not evaluate positions but plays them out with random moves until the end of
+ * the game and counts who won. A tree of the positions after the first moves is grown one position per playout, and
+ * the moves of the tree are chosen by UCT: the move with the highest share of won playouts, plus a bonus for moves
+ * that have been played out less often than their siblings. The move at the root that was played out most often is
+ * the best move.
+ * <p>
+ * A playout is won by the player that collects more balls from the position on, like {@link MiniMaxAI2} counts
+ * balls. It is played on a single copy of the board per thread, on which the moves are applied in place and undone
+ * afterwards, with the valid moves kept in a reused {@link MoveList}, such that a playout creates no objects.
+ * <p>
+ * With more than one thread, every thread grows its own tree on its own copy of the board, and the playouts of the
+ * moves at the root of all trees are added up. The trees do not share anything, so the threads never wait for each
+ * other.
+ */
+public class MCTSAI implements AI {
+    public static final long DEFAULTTIMEBUDGET = 1000; // Milliseconds, when no time budget is given
+
+    private static final BooleanSupplier NOSTOP = () -> false;
+
+    private static final double EXPLORATION = Math.sqrt(2);
+    private static final int MAXPLIES = 25; // Every move removes at least 2 of the 48 balls
+
+    private final ForkJoinPool pool;
+    private final int threads;
+    private final ThreadLocal<Playout> playouts;
+    private final LongAdder playoutCount;
+    private volatile long searchNanos;
+
+    public MCTSAI() {
+        this(1);
+    }
+
+    /**
+     * Creates a Monte Carlo tree search that grows a tree on every thread.
+     *
+     * @param threads The amount of threads used for the search.
+     * @requires threads > 0
+     */
+    public MCTSAI(int threads) {
+        this.threads = threads;
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        this.playouts = ThreadLocal.withInitial(Playout::new);
+        this.playoutCount = new LongAdder();
+    }
+
+    /**
+     * Finds the best move by playing out positions for {@link MCTSAI#DEFAULTTIMEBUDGET} milliseconds.
+     *
+     * @param board The {@link Board} on which the AI has to find the best available move.
+     * @return The best available move that the AI could find.
+     */
+    @Override
+    public Move findBestMove(Board board) {
+        return this.findBestMove(board, DEFAULTTIMEBUDGET);
+    }
+
+    /**
+     * Finds the best move by playing out positions until the time budget runs out.
+     *
+     * @param board      The {@link Board} on which the AI has to find the best available move.
+     * @param timeBudget The amount of milliseconds the AI may take to find the move.
+     * @return The move at the root that was played out most often, or null if there are no valid moves.
+     * @requires timeBudget >= 0
+     * @ensures the board is unchanged
+     */
+    @Override
+    public Move findBestMove(Board board, long timeBudget) {
+        return this.findBestMove(board, timeBudget, NOSTOP);
+    }
+
+    /**
+     * Finds the best move by playing out positions until the time budget runs out or the search is asked to stop.
+     *
+     * @param board      The {@link Board} on which the AI has to find the best available move.
+     * @param timeBudget The amount of milliseconds the AI may take to find the move.
+     * @param stop       Asked after every playout whether the search should stop.
+     * @return The move at the root that was played out most often, or null if there are no valid moves.
+     * @requires timeBudget >= 0
+     * @ensures the board is unchanged
+     */
+    @Override
+    public Move findBestMove(Board board, long timeBudget, BooleanSupplier stop) {
+        long start = System.nanoTime();
+        long deadline = start + timeBudget * 1_000_000;
+        this.playoutCount.reset();
+        MoveList validMoves = new MoveList();
+        board.findValidMoves(validMoves);
+        if (validMoves.size() <= 1) {
+            this.searchNanos = System.nanoTime() - start;
+            return validMoves.isEmpty() ? null : Move.decode(validMoves.get(0));
+        }
+
+        long[] visits;
+        if (this.pool == null || this.pool.isShutdown()) {
+            visits = this.search(board.deepCopy(), deadline, stop);
+        } else {
+            List<ForkJoinTask<long[]>> trees = new ArrayList<>(this.threads);
+            for (int i = 0; i < this.threads; i++) {
+                Board boardCopy = board.deepCopy();
+                trees.add(this.pool.submit(() -> this.search(boardCopy, deadline, stop)));
+            }
+            visits = new long[validMoves.size()];
+            for (ForkJoinTask<long[]> tree : trees) {
+                long[] treeVisits = tree.join();
+                for (int i = 0; i < visits.length; i++) {
+                    visits[i] += treeVisits[i];
+                }
+            }
+        }
+        this.searchNanos = System.nanoTime() - start;
+
+        int bestIndex = 0;
+        for (int i = 1; i < visits.length; i++) {
+            if (visits[i] > visits[bestIndex]) {
+                bestIndex = i;
+            }
+        }
+        return Move.decode(validMoves.get(bestIndex));
+    }
+
+    /**
+     * Grows a tree from a position until the deadline or until the search is asked to stop.
+     *
+     * @param board    The board of the position, which is only used by the calling thread.
+     * @param deadline The value of {@link System#nanoTime()} at which the search stops.
+     * @param stop     Asked after every playout whether the search should stop.
+     * @return The amount of playouts of every valid move, in the order of {@link Board#findValidMoves(MoveList)}.
+     * @ensures the board is unchanged
+     */
+    private long[] search(Board board, long deadline, BooleanSupplier stop) {
+        Playout playout = this.playouts.get();
+        Node root = new Node(0, null, 0);
+        root.expand(board, playout.moves);
+        long playoutsOfTree = 0;
+        do {
+            this.iterate(root, board, playout);
+            playoutsOfTree++;
+        } while (System.nanoTime() < deadline && !stop.getAsBoolean());
+        this.playoutCount.add(playoutsOfTree);
+
+        long[] visits = new long[root.children.length];
+        for (int i = 0; i < root.expanded; i++) {
+            visits[i] = root.children[i].visits;
+        }
+        return visits;
+    }
+
+    /**
+     * Walks down the tree by UCT, adds a position to it, plays that position out and counts the result in every
+     * position on the way.
+     *
+     * @param root    The root of the tree.
+     * @param board   The board of the root.
+     * @param playout The reused state of the thread.
+     */
+    private void iterate(Node root, Board board, Playout playout) {
+        long[] undoRecords = playout.undoRecords;
+        int plies = 0;
+        int balls = 0; // Collected by the player at the root minus those collected by the opponent
+        Node node = root;
+        while (true) {
+            if (node.children == null) {
+                if (node.visits == 0) {
+                    break; // A new position, which is played out
+                }
+                // Only positions that are visited again get children
+                node.expand(board, playout.moves);
+            }
+            if (node.children.length == 0) {
+                break; // The end of the game
+            }
+            node = node.expanded < node.children.length ? node.addChild() : node.select();
+            undoRecords[plies] = board.apply(node.move);
+            int yield = Board.getYieldAmount(undoRecords[plies]);
+            balls += plies % 2 == 0 ? yield : -yield;
+            plies++;
+        }
+        if (node.children == null) {
+            balls += plies % 2 == 0 ? this.playout(board, playout) : -this.playout(board, playout);
+        }
+        for (int ply = plies - 1; ply >= 0; ply--) {
+            board.undo(undoRecords[ply]);
+        }
+
+        double result = balls > 0 ? 1 : balls == 0 ? 0.5 : 0;
+        for (Node visited = node; visited != null; visited = visited.parent) {
+            visited.visits++;
+            // A position is scored for the player that made the move to it
+            visited.wins += visited.depth % 2 == 1 ? result : 1 - result;
+        }
+    }
+
+    /**
+     * Plays random moves until the end of the game.
+     *
+     * @param board The board of the position to be played out.
+     * @return The amount of balls the player to move collects more than the opponent until the end of the game.
+     * @ensures the board is unchanged
+     */
+    public int playout(Board board) {
+        return this.playout(board, this.playouts.get());
+    }
+
+    /**
+     * Plays random moves until the end of the game, without creating any objects.
+     *
+     * @param board   The board of the position to be played out.
+     * @param playout The reused state of the thread.
+     * @return The amount of balls the player to move collects more than the opponent until the end of the game.
+     * @ensures the board is unchanged
+     */
+    private int playout(Board board, Playout playout) {
+        MoveList moves = playout.moves;
+        long[] undoRecords = playout.playoutUndoRecords;
+        int plies = 0;
+        int balls = 0;
+        board.findValidMoves(moves);
+        while (!moves.isEmpty()) {
+            undoRecords[plies] = board.apply(moves.get(playout.random.nextInt(moves.size())));
+            int yield = Board.getYieldAmount(undoRecords[plies]);
+            balls += plies % 2 == 0 ? yield : -yield;
+            plies++;
+            board.findValidMoves(moves);
+        }
+        for (int ply = plies - 1; ply >= 0; ply--) {
+            board.undo(undoRecords[ply]);
+        }
+        return balls;
+    }
+
+    /**
+     * Shuts down the threads of the parallel search. The AI can only grow a single tree afterwards.
+     */
+    @Override
+    public void shutDown() {
+        if (this.pool != null) {
+            this.pool.shutdownNow();
+        }
+    }
+
+    /**
+     * @return The amount of playouts of the last search, of all threads together.
+     */
+    public long getPlayoutCount() {
+        return this.playoutCount.sum();
+    }
+
+    /**
+     * @return The amount of playouts of the last search, as every playout adds one position to the tree.
+     */
+    @Override
+    public long getNodeCount() {
+        return this.getPlayoutCount();
+    }
+
+    /**
+     * @return The amount of playouts per second of the last search, of all threads together.
+     */
+    public double getPlayoutsPerSecond() {
+        long nanos = this.searchNanos;
+        return nanos == 0 ? 0 : this.getPlayoutCount() / (nanos / 1e9);
+    }
+
+    /**
+     * A position in the tree of a search, which is only used by the thread that grows the tree.
+     */
+    private static class Node {
+        private final int move;
+        private final Node parent;
+        private final int depth;
+        private int[] moves; // Null until the position is expanded
+        private Node[] children;
+        private int expanded;
+        private int visits;
+        private double wins;
+
+        /**
+         * @param move   The code of the move that led to the position.
+         * @param parent The position before the move, or null for the root.
+         * @param depth  The amount of moves since the root.
+         */
+        private Node(int move, Node parent, int depth) {
+            this.move = move;
+            this.parent = parent;
+            this.depth = depth;
+        }
+
+        /**
+         * Finds the valid moves of the position, of which the positions are added to the tree one by one.
+         *
+         * @param board The board of the position.
+         * @param moves A reused list for the valid moves.
+         */
+        private void expand(Board board, MoveList moves) {
+            board.findValidMoves(moves);
+            this.moves = new int[moves.size()];
+            for (int i = 0; i < this.moves.length; i++) {
+                this.moves[i] = moves.get(i);
+            }
+            this.children = new Node[this.moves.length];
+        }
+
+        /**
+         * @return The position after the first move that has no position in the tree yet, which is added to it.
+         * @requires expanded < children.length
+         */
+        private Node addChild() {
+            Node child = new Node(this.moves[this.expanded], this, this.depth + 1);
+            this.children[this.expanded++] = child;
+            return child;
+        }
+
+        /**
+         * @return The position after the move with the highest upper confidence bound.
+         * @requires expanded == children.length && children.length > 0
+         */
+        private Node select() {
+            double logVisits = Math.log(this.visits);
+            Node best = this.children[0];
+            double bestBound = Double.NEGATIVE_INFINITY;
+            for (Node child : this.children) {
+                double bound = child.wins / child.visits +
+                    EXPLORATION * Math.sqrt(logVisits / child.visits);
+                if (bound > bestBound) {
+                    bestBound = bound;
+                    best = child;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * The objects a thread reuses for all its playouts.
+     */
+    private static class Playout {
+        private final MoveList moves = new MoveList();
+        private final long[] undoRecords = new long[MAXPLIES];
+        private final long[] playoutUndoRecords = new long[MAXPLIES];
+        private final SplittableRandom random = new SplittableRandom();
+    }
+}
@@ -9,7 +9,7 @@ import java.util.List;
  * @author Emiel Rous and Wouter Koning
  * A minimax algorithm with a default depth of 4 to keep moves under 20 seconds.
  */
-public class MiniMaxAI implements AI {
+public class MiniMaxAI extends IterativeDeepeningAI {
 
     private static final int DEFAULTDEPTH = 4;
 
@@ -27,19 +27,37 @@ public class MiniMaxAI implements AI {
      */
     @Override
     public Move findBestMove(Board board) {
+        List<Move> validMoves = board.findValidMoves();
+        int[] scores = this.searchRoot(board, validMoves, this.depth);
         int bestScore = Integer.MIN_VALUE;
         Move bestMove = null;
-        for (Move nextMove : board.findValidMoves()) {
-            int nextScore = this.minimizer(board, nextMove, this.depth, 0);
-            if (nextScore > bestScore) {
-                bestScore = nextScore;
-                bestMove = nextMove;
+        for (int i = 0; i < validMoves.size(); i++) {
+            if (scores[i] > bestScore) {
+                bestScore = scores[i];
+                bestMove = validMoves.get(i);
             }
         }
 
         return bestMove;
     }
 
+    /**
+     * Searches all the valid moves on a board to a fixed depth.
+     *
+     * @param board      The board on which the best move has to be found.
+     * @param validMoves The valid moves on the board, in the order in which they should be searched.
+     * @param depth      The amount of moves to look ahead.
+     * @return The score of every move, in the order of the moves.
+     */
+    @Override
+    protected int[] searchRoot(Board board, List<Move> validMoves, int depth) {
+        int[] scores = new int[validMoves.size()];
+        for (int i = 0; i < validMoves.size(); i++) {
+            scores[i] = this.minimizer(board, validMoves.get(i), depth, 0);
+        }
+        return scores;
+    }
+
     /**
      * The minimizer, which mimics the enemy player.
      *
@@ -50,15 +68,28 @@ public class MiniMaxAI implements AI {
      * @return the score that it has assigned this board.
      */
     private int minimizer(Board board, Move move, int depth, int score) {
-        Board nextBoard = board.deepCopy();
-        this.executeMove(nextBoard, move);
-        int boardYieldScore = nextBoard.getYield().values().stream().reduce(0, Integer::sum);
-        score += boardYieldScore;
+        long undoRecord = board.apply(move);
+        int minScore = this.minimize(board, depth, score + Board.getYieldAmount(undoRecord));
+        board.undo(undoRecord);
+        return minScore;
+    }
 
+    /**
+     * Finds the lowest score the opponent can force on a board on which a move has just been applied.
+     *
+     * @param nextBoard The board you're playing on, after the last move has been applied.
+     * @param depth     The depth of the minimax algorithm.
+     * @param score     The score you're keeping track of and want to maximize in the end
+     * @return the score that it has assigned this board.
+     */
+    private int minimize(Board nextBoard, int depth, int score) {
         if (depth ==
             0) { //If you're out of your depth, just return the score that the opponent would get
             return score;
         }
+        if (this.isOutOfTime()) { // The scores of an unfinished search are thrown away
+            return score;
+        }
 
         List<Move> validMoves = nextBoard.findValidMoves();
         if (validMoves
@@ -87,17 +118,29 @@ public class MiniMaxAI implements AI {
      * @return the score that it has assigned this board.
      */
     private int maximizer(Board board, Move move, int depth, int score) {
-        Board nextBoard = board.deepCopy();
-        this.executeMove(nextBoard, move);
-
         //Update the score with the previous move made.
-        int boardYieldScore = nextBoard.getYield().values().stream().reduce(0, Integer::sum);
-        score -= boardYieldScore;
+        long undoRecord = board.apply(move);
+        int maxScore = this.maximize(board, depth, score - Board.getYieldAmount(undoRecord));
+        board.undo(undoRecord);
+        return maxScore;
+    }
 
+    /**
+     * Finds the highest score you can force on a board on which a move of the opponent has just been applied.
+     *
+     * @param nextBoard The board you're playing on, after the last move has been applied.
+     * @param depth     The depth of the minimax algorithm.
+     * @param score     The score you're keeping track of and want to maximize in the end
+     * @return the score that it has assigned this board.
+     */
+    private int maximize(Board nextBoard, int depth, int score) {
         if (depth ==
             0) { //If you're out of your depth, just return the score that the opponent would get
             return score;
         }
+        if (this.isOutOfTime()) { // The scores of an unfinished search are thrown away
+            return score;
+        }
 
         List<Move> validMoves = nextBoard.findValidMoves();
         if (validMoves
@@ -116,18 +159,4 @@ public class MiniMaxAI implements AI {
 
         return maxScore;
     }
-
-    /**
-     * A method introduced to keep the {@link MiniMaxAI#maximizer(Board, Move, int, int)} and
-     * {@link MiniMaxAI#minimizer(Board, Move, int, int)} as clean as possible.
-     *
-     * @param board The board you're playing on
-     * @param move  The last move performed, and thus the new board that you're playing on.
-     */
-    private void executeMove(Board board, Move move) {
-        board.executeMove(move.getMove1());
-        if (move.isDoubleMove()) {
-            board.executeMove(move.getMove2());
-        }
-    }
 }
@@ -2,24 +2,81 @@ package dt.ai;
 
 import dt.model.Board;
 import dt.util.Move;
+import dt.util.MoveList;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
 
 /**
  * @author Emiel Rous and Wouter Koning
- * A minimax algorithm with alpha beta pruning to optimize performance.
+ * A minimax algorithm with alpha beta pruning to optimize performance. Positions that have already been searched,
+ * for example because the same shifts were made in a different order, are looked up in a
+ * {@link TranspositionTable}. The moves of every position are searched in the order of {@link MoveOrdering}, after
+ * the best move the table remembers for the position. The moves are kept as codes in a {@link MoveList} per depth,
+ * which is reused for every position at that depth, such that the search does not create any moves.
+ * <p>
+ * Once few enough balls are left on the board, a position is not searched any further but solved exactly by an
+ * {@link EndgameSolver}, whose value replaces the estimate of the depth limited search.
+ * <p>
+ * When the AI is given an {@link OpeningBook}, a position that is in the book is not searched at all, but played with
+ * the move from the book.
+ * <p>
+ * With more than one thread, the moves at the root are searched in parallel, each on its own copy of the board,
+ * sharing the transposition table and the best score found so far. Only entries of the table that were searched to
+ * exactly the remaining depth are used for their score, such that the outcome of a search does not depend on the order
+ * in which the positions were visited, and the parallel search finds the same move as the sequential one.
  */
-public class MiniMaxAI2 implements AI {
-    private static final int DEFAULTDEPTH = 6; // Depth of 7 really seems like a maximum.
+public class MiniMaxAI2 extends IterativeDeepeningAI {
+    public static final int DEFAULTDEPTH = 6; // Depth of 7 really seems like a maximum.
+    private static final long MINIMIZERKEY = 0x9E3779B97F4A7C15L; // Hashed in on opponent's turns
 
     private final int depth;
-    Map<int[], Integer> dictionary;
+    private final TranspositionTable transpositionTable;
+    private final ForkJoinPool pool;
+    private final MoveOrdering moveOrdering;
+    private final EndgameSolver endgameSolver;
+    private final LongAdder nodeCount;
+    private final LongAdder cutoffCount;
+    private OpeningBook openingBook;
 
     public MiniMaxAI2() {
-        this.depth = DEFAULTDEPTH;
-        dictionary = new HashMap<>();
+        this(DEFAULTDEPTH, 1);
+    }
+
+    /**
+     * Creates a minimax AI that searches the moves at the root with the given amount of threads.
+     *
+     * @param depth   The depth of the minimax algorithm.
+     * @param threads The amount of threads used for the search.
+     * @requires depth > 0 && threads > 0
+     */
+    public MiniMaxAI2(int depth, int threads) {
+        this(depth, threads, EndgameSolver.DEFAULTMAXBALLS);
+    }
+
+    /**
+     * Creates a minimax AI that searches the moves at the root with the given amount of threads, and solves the
+     * positions with at most the given amount of balls exactly.
+     *
+     * @param depth        The depth of the minimax algorithm.
+     * @param threads      The amount of threads used for the search.
+     * @param endgameBalls The highest amount of balls on the board for which a position is solved, or a negative
+     *                     number to never solve positions.
+     * @requires depth > 0 && threads > 0
+     */
+    public MiniMaxAI2(int depth, int threads, int endgameBalls) {
+        this.depth = depth;
+        this.transpositionTable = new TranspositionTable();
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        this.moveOrdering = new MoveOrdering();
+        this.endgameSolver = endgameBalls >= 0 ? new EndgameSolver(endgameBalls) : null;
+        this.nodeCount = new LongAdder();
+        this.cutoffCount = new LongAdder();
     }
 
     /**
@@ -30,122 +87,426 @@ public class MiniMaxAI2 implements AI {
      */
     @Override
     public Move findBestMove(Board board) {
+        this.startSearch();
+        Move bookMove = this.probeOpeningBook(board);
+        if (bookMove != null) {
+            return bookMove;
+        }
         long millis = System.currentTimeMillis();
+        List<Move> validMoves = board.findValidMoves();
+        int[] scores = this.searchRoot(board, validMoves, this.depth);
+
         int bestScore = Integer.MIN_VALUE;
         Move bestMove = null;
-        for (Move nextMove : board.findValidMoves()) {
-            int nextScore = this.minimizer(board, nextMove, this.depth, 0, Integer.MIN_VALUE,
-                Integer.MAX_VALUE);
-            if (nextScore > bestScore) {
-                bestScore = nextScore;
-                bestMove = nextMove;
+        for (int i = 0; i < validMoves.size(); i++) {
+            if (scores[i] > bestScore) {
+                bestScore = scores[i];
+                bestMove = validMoves.get(i);
             }
         }
         System.out.println("Time: " + (System.currentTimeMillis() - millis) / 1000);
         return bestMove;
     }
 
+    /**
+     * Finds the best move using a MiniMAx algorithm that searches deeper until the time budget runs out or the
+     * search is asked to stop.
+     *
+     * @param board      The {@link Board} on which the AI has to find the best available move.
+     * @param timeBudget The amount of milliseconds the AI may take to find the move.
+     * @param stop       Asked while searching whether the search should stop.
+     * @return The best move of the deepest search that finished in time.
+     */
+    @Override
+    public Move findBestMove(Board board, long timeBudget, BooleanSupplier stop) {
+        this.startSearch();
+        Move bookMove = this.probeOpeningBook(board);
+        if (bookMove != null) {
+            return bookMove;
+        }
+        return super.findBestMove(board, timeBudget, stop);
+    }
+
+    /**
+     * @param openingBook The book of which the moves are played instead of searched, or null to search every move.
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    /**
+     * @param board The board on which the best move has to be found.
+     * @return The move of the opening book for the board, or null if there is none.
+     */
+    private Move probeOpeningBook(Board board) {
+        return this.openingBook == null ? null : this.openingBook.probe(board);
+    }
+
+    /**
+     * @return The amount of positions visited by the last search, including the positions at the maximum depth.
+     */
+    @Override
+    public long getNodeCount() {
+        return this.nodeCount.sum();
+    }
+
+    /**
+     * Shuts down the threads of the parallel search. The AI can only search on a single thread afterwards.
+     */
+    @Override
+    public void shutDown() {
+        if (this.pool != null) {
+            this.pool.shutdownNow();
+        }
+    }
+
+    /**
+     * @return The amount of times the last search stopped searching the moves of a position after finding a move
+     * that was good enough.
+     */
+    public long getCutoffCount() {
+        return this.cutoffCount.sum();
+    }
+
+    /**
+     * Prepares the transposition table, the move ordering and the statistics for the search of a new position.
+     */
+    private void startSearch() {
+        this.transpositionTable.nextGeneration();
+        this.moveOrdering.startSearch();
+        this.nodeCount.reset();
+        this.cutoffCount.reset();
+    }
+
+    /**
+     * Searches the moves at the root to a fixed depth, in parallel if the AI has more than one thread.
+     *
+     * @param board      The board on which the best move has to be found.
+     * @param validMoves The valid moves on the board, in the order in which they should be searched.
+     * @param depth      The amount of moves to look ahead.
+     * @return The score of every move, or an upper bound of it if it is not the best score.
+     */
+    @Override
+    protected int[] searchRoot(Board board, List<Move> validMoves, int depth) {
+        this.moveOrdering.startIteration(depth);
+        if (this.pool != null && !this.pool.isShutdown()) {
+            return this.pool.invoke(
+                ForkJoinTask.adapt(() -> this.searchRootInParallel(board, validMoves, depth)));
+        }
+        int[] scores = new int[validMoves.size()];
+        MoveList[] moveLists = createMoveLists(depth);
+        for (int i = 0; i < validMoves.size(); i++) {
+            scores[i] = this.minimizer(board, validMoves.get(i).getCode(), depth, 0,
+                Integer.MIN_VALUE, Integer.MAX_VALUE, moveLists);
+        }
+        return scores;
+    }
+
+    /**
+     * Searches the moves at the root in parallel, each on its own copy of the board. Every move is searched with an
+     * alpha of one below the best score found so far, such that the moves that are at least as good as the best
+     * move get their exact score and the first best move is the same as in the sequential search. The other moves
+     * get a score that is lower than the best score.
+     *
+     * @param board      The board on which the best move has to be found.
+     * @param validMoves The valid moves on the board, in the order in which they should be searched.
+     * @param depth      The amount of moves to look ahead.
+     * @return The score, or an upper bound of it if it is not the best score, of every move.
+     */
+    private int[] searchRootInParallel(Board board, List<Move> validMoves, int depth) {
+        int[] scores = new int[validMoves.size()];
+        AtomicInteger bestScore = new AtomicInteger(Integer.MIN_VALUE);
+        IntStream.range(0, validMoves.size()).parallel().forEach(i -> {
+            int best = bestScore.get();
+            int alpha = best == Integer.MIN_VALUE ? Integer.MIN_VALUE : best - 1;
+            scores[i] = this.minimizer(board.deepCopy(), validMoves.get(i).getCode(), depth, 0,
+                alpha, Integer.MAX_VALUE, createMoveLists(depth));
+            bestScore.accumulateAndGet(scores[i], Math::max);
+        });
+        return scores;
+    }
+
+    /**
+     * Creates the lists in which the valid moves of the positions of one search are kept, one for every depth.
+     *
+     * @param depth The amount of moves the search looks ahead.
+     * @return The lists, indexed by the depth that is left to be searched from a position.
+     */
+    private static MoveList[] createMoveLists(int depth) {
+        MoveList[] moveLists = new MoveList[depth + 1];
+        for (int i = 0; i < moveLists.length; i++) {
+            moveLists[i] = new MoveList();
+        }
+        return moveLists;
+    }
+
     /**
      * The method trying to minimize your score.
      *
-     * @param board The board you're playing on
-     * @param move  The last move performed, and thus the new board that you're playing on.
-     * @param depth The depth of the minimax algorithm.
-     * @param score The score you're keeping track of and want to maximize in the end
-     * @param alpha The score of the alpha for Alpha-Beta pruning
-     * @param beta  The score of the beta for Alpha-Beta pruning
+     * @param board     The board you're playing on
+     * @param move      The code of the last move performed, and thus the new board that you're playing on.
+     * @param depth     The depth of the minimax algorithm.
+     * @param score     The score you're keeping track of and want to maximize in the end
+     * @param alpha     The score of the alpha for Alpha-Beta pruning
+     * @param beta      The score of the beta for Alpha-Beta pruning
+     * @param moveLists The lists for the valid moves of every depth.
      * @return The score that the maximizer assigned to the current board.
      */
-    private int minimizer(Board board, Move move, int depth, int score, int alpha, int beta) {
-        Board nextBoard = board.deepCopy();
-        this.executeMove(nextBoard, move);
-        int boardYieldScore = nextBoard.getYield().values().stream().reduce(0, Integer::sum);
-        score += boardYieldScore;
+    private int minimizer(Board board, int move, int depth, int score, int alpha, int beta,
+                           MoveList[] moveLists) {
+        long undoRecord = board.apply(move);
+        int minScore = this.minimize(board, depth, score + Board.getYieldAmount(undoRecord), alpha,
+            beta, moveLists);
+        board.undo(undoRecord);
+        return minScore;
+    }
 
+    /**
+     * Finds the lowest score the opponent can force on a board on which a move has just been applied.
+     *
+     * @param nextBoard The board you're playing on, after the last move has been applied.
+     * @param depth     The depth of the minimax algorithm.
+     * @param score     The score you're keeping track of and want to maximize in the end
+     * @param alpha     The score of the alpha for Alpha-Beta pruning
+     * @param beta      The score of the beta for Alpha-Beta pruning
+     * @param moveLists The lists for the valid moves of every depth.
+     * @return the score that it has assigned this board.
+     */
+    private int minimize(Board nextBoard, int depth, int score, int alpha, int beta,
+                         MoveList[] moveLists) {
+        this.nodeCount.increment();
+        if (this.isSolvable(nextBoard)) { // The opponent is to move, so their value is subtracted
+            return score - this.endgameSolver.solve(nextBoard, clamp((long) score - beta),
+                clamp((long) score - alpha), this::isOutOfTime);
+        }
         if (depth ==
             0) { //If you're out of your depth, just return the score that the opponent would get
             return score;
         }
+        if (this.isOutOfTime()) { // The scores of an unfinished search are thrown away
+            return score;
+        }
+
+        long key = nextBoard.getHash() ^ MINIMIZERKEY;
+        long entry = this.transpositionTable.probe(key);
+        int hashMove = TranspositionTable.getBestMove(entry);
+        if (entry != 0L && TranspositionTable.getDepth(entry) == depth) {
+            int storedScore = score + TranspositionTable.getScore(entry);
+            if (isUsable(TranspositionTable.getBound(entry), storedScore, alpha, beta)) {
+                return storedScore;
+            }
+        }
 
-        List<Move> validMoves = nextBoard.findValidMoves();
+        MoveList validMoves = moveLists[depth];
+        nextBoard.findValidMoves(validMoves);
         if (validMoves
             .isEmpty()) { //If there are no more valid moves, return a negative win score. AKA a loss score.
             return score;
         }
+        this.moveOrdering.sort(nextBoard, validMoves, depth);
+        moveToFront(validMoves, hashMove);
+        int alphaOriginal = alpha;
+        int betaOriginal = beta;
+        int bestMove = 0;
 
         int minScore = Integer.MAX_VALUE;// Initialize to a value that is incredibly high.
-        for (Move nextMove : validMoves) { //Loop through all the moves
+        for (int i = 0; i < validMoves.size(); i++) { //Loop through all the moves
+            int nextMove = validMoves.get(i);
             int nextScore = this.maximizer(nextBoard, nextMove, depth - 1, score, alpha,
-                beta); //Find the next score of the board
+                beta, moveLists); //Find the next score of the board
 
             if (nextScore < minScore) {
                 minScore = nextScore; //You have found a better score for this player! Damn nice!
+                bestMove = nextMove;
             }
             beta = Math.min(beta, minScore);
             if (beta <= alpha) {
+                this.cutoffCount.increment();
+                this.moveOrdering.addCutoff(nextMove, depth);
                 break;
             }
         }
+        if (this.isOutOfTime()) {
+            return minScore;
+        }
+        this.transpositionTable.store(key, depth, minScore - score,
+            getBound(minScore, alphaOriginal, betaOriginal),
+            TranspositionTable.encodeMove(bestMove));
         return minScore;
     }
 
     /**
      * The method trying to maximize your score.
      *
-     * @param board The board you're playing on
-     * @param move  The last move performed, and thus the new board that you're playing on.
-     * @param depth The depth of the minimax algorithm.
-     * @param score The score you're keeping track of and want to maximize in the end
-     * @param alpha The score of the alpha for Alpha-Beta pruning
-     * @param beta  The score of the beta for Alpha-Beta pruning
+     * @param board     The board you're playing on
+     * @param move      The code of the last move performed, and thus the new board that you're playing on.
+     * @param depth     The depth of the minimax algorithm.
+     * @param score     The score you're keeping track of and want to maximize in the end
+     * @param alpha     The score of the alpha for Alpha-Beta pruning
+     * @param beta      The score of the beta for Alpha-Beta pruning
+     * @param moveLists The lists for the valid moves of every depth.
      * @return The score that the maximizer assigned to the current board.
      */
-    private int maximizer(Board board, Move move, int depth, int score, int alpha, int beta) {
-        Board nextBoard = board.deepCopy();
-        this.executeMove(nextBoard, move);
-
+    private int maximizer(Board board, int move, int depth, int score, int alpha, int beta,
+                           MoveList[] moveLists) {
         //Update the score with the previous move made.
-        int boardYieldScore = nextBoard.getYield().values().stream().reduce(0, Integer::sum);
-        score -= boardYieldScore;
+        long undoRecord = board.apply(move);
+        int maxScore = this.maximize(board, depth, score - Board.getYieldAmount(undoRecord), alpha,
+            beta, moveLists);
+        board.undo(undoRecord);
+        return maxScore;
+    }
 
+    /**
+     * Finds the highest score you can force on a board on which a move of the opponent has just been applied.
+     *
+     * @param nextBoard The board you're playing on, after the last move has been applied.
+     * @param depth     The depth of the minimax algorithm.
+     * @param score     The score you're keeping track of and want to maximize in the end
+     * @param alpha     The score of the alpha for Alpha-Beta pruning
+     * @param beta      The score of the beta for Alpha-Beta pruning
+     * @param moveLists The lists for the valid moves of every depth.
+     * @return the score that it has assigned this board.
+     */
+    private int maximize(Board nextBoard, int depth, int score, int alpha, int beta,
+                         MoveList[] moveLists) {
+        this.nodeCount.increment();
+        if (this.isSolvable(nextBoard)) {
+            return score + this.endgameSolver.solve(nextBoard, clamp((long) alpha - score),
+                clamp((long) beta - score), this::isOutOfTime);
+        }
         if (depth ==
             0) { //If you're out of your depth, just return the score that the opponent would get
             return score;
         }
+        if (this.isOutOfTime()) { // The scores of an unfinished search are thrown away
+            return score;
+        }
 
-        List<Move> validMoves = nextBoard.findValidMoves();
+        long key = nextBoard.getHash();
+        long entry = this.transpositionTable.probe(key);
+        int hashMove = TranspositionTable.getBestMove(entry);
+        if (entry != 0L && TranspositionTable.getDepth(entry) == depth) {
+            int storedScore = score + TranspositionTable.getScore(entry);
+            if (isUsable(TranspositionTable.getBound(entry), storedScore, alpha, beta)) {
+                return storedScore;
+            }
+        }
+
+        MoveList validMoves = moveLists[depth];
+        nextBoard.findValidMoves(validMoves);
         if (validMoves
             .isEmpty()) { //If there are no more valid moves, return a negative win score. AKA a loss score.
             return score;
         }
+        this.moveOrdering.sort(nextBoard, validMoves, depth);
+        moveToFront(validMoves, hashMove);
+        int alphaOriginal = alpha;
+        int betaOriginal = beta;
+        int bestMove = 0;
 
         int maxScore = Integer.MIN_VALUE;// Initialize to a value that is incredibly high.
-        for (Move nextMove : validMoves) { //Loop through all the moves
+        for (int i = 0; i < validMoves.size(); i++) { //Loop through all the moves
+            int nextMove = validMoves.get(i);
             int nextScore = this.minimizer(nextBoard, nextMove, depth - 1, score, alpha,
-                beta); //Find the next score of the board
+                beta, moveLists); //Find the next score of the board
             if (nextScore > maxScore) {
                 maxScore = nextScore; //You have found a better score for this player! Damn nice!
+                bestMove = nextMove;
             }
             alpha = Math.max(alpha, maxScore);
             if (alpha >= beta) {
+                this.cutoffCount.increment();
+                this.moveOrdering.addCutoff(nextMove, depth);
                 break;
             }
         }
 
+        if (this.isOutOfTime()) {
+            return maxScore;
+        }
+        this.transpositionTable.store(key, depth, maxScore - score,
+            getBound(maxScore, alphaOriginal, betaOriginal),
+            TranspositionTable.encodeMove(bestMove));
         return maxScore;
     }
 
     /**
-     * A method introduced to keep the {@link MiniMaxAI2#maximizer(Board, Move, int, int, int, int)} and
-     * {@link MiniMaxAI2#minimizer(Board, Move, int, int, int, int)} as clean as possible.
+     * The moves on a board with few enough balls lead to positions that are all solved by the
+     * {@link EndgameSolver}, so their scores are exact at any depth.
      *
-     * @param board The board you're playing on
-     * @param move  The last move performed, and thus the new board that you're playing on.
+     * @param board The board on which the best move has to be found.
+     * @return Whether a search of any depth finds the exact scores.
+     */
+    @Override
+    protected boolean isSolved(Board board) {
+        return this.isSolvable(board);
+    }
+
+    /**
+     * @param board The board of a position.
+     * @return Whether the position is solved by the {@link EndgameSolver} instead of being searched.
      */
-    private void executeMove(Board board, Move move) {
-        board.executeMove(move.getMove1());
-        if (move.isDoubleMove()) {
-            board.executeMove(move.getMove2());
+    private boolean isSolvable(Board board) {
+        return this.endgameSolver != null && this.endgameSolver.canSolve(board);
+    }
+
+    /**
+     * @param value A value that can lie outside of the range of an int, when it is computed from an unbounded alpha
+     *              or beta.
+     * @return The value, or the closest int to it.
+     */
+    private static int clamp(long value) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+    }
+
+    /**
+     * Finds out whether a score from the {@link TranspositionTable} can be used instead of searching the position
+     * again, given the window of the current search.
+     *
+     * @param bound       The type of bound of the stored score.
+     * @param storedScore The stored score, added to the score of the current search.
+     * @param alpha       The score of the alpha for Alpha-Beta pruning
+     * @param beta        The score of the beta for Alpha-Beta pruning
+     * @return Whether the stored score would give the same result as a search.
+     */
+    private boolean isUsable(int bound, int storedScore, int alpha, int beta) {
+        return bound == TranspositionTable.EXACT ||
+            (bound == TranspositionTable.LOWERBOUND && storedScore >= beta) ||
+            (bound == TranspositionTable.UPPERBOUND && storedScore <= alpha);
+    }
+
+    /**
+     * Finds out what type of bound a score found by the search is, given the window it was searched with.
+     *
+     * @param score The score found by the search.
+     * @param alpha The alpha the position was searched with.
+     * @param beta  The beta the position was searched with.
+     * @return The type of bound, as defined in {@link TranspositionTable}.
+     */
+    private int getBound(int score, int alpha, int beta) {
+        if (score <= alpha) {
+            return TranspositionTable.UPPERBOUND;
+        } else if (score >= beta) {
+            return TranspositionTable.LOWERBOUND;
+        }
+        return TranspositionTable.EXACT;
+    }
+
+    /**
+     * Moves the best move found by an earlier search of the position to the front of the list of moves, such that
+     * it is searched first. The order of the other moves stays the same.
+     *
+     * @param validMoves  The codes of the moves to be searched.
+     * @param encodedMove The encoded best move, or {@link TranspositionTable#NOMOVE}.
+     */
+    private void moveToFront(MoveList validMoves, int encodedMove) {
+        if (encodedMove == TranspositionTable.NOMOVE) {
+            return;
+        }
+        int index = validMoves.indexOf(TranspositionTable.decodeMove(encodedMove));
+        if (index > 0) {
+            validMoves.moveToFront(index);
         }
     }
 }
@@ -0,0 +1,127 @@
+package dt.ai;
+
+import dt.model.Board;
+import dt.util.Move;
+import dt.util.MoveList;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * Orders the moves of a position such that the moves that are most likely to be the best are searched first, which
+ * makes alpha beta pruning cut off more of the search. Moves that yield the most balls come first, then the killer
+ * moves of the ply, which caused a cutoff in a sibling position, and then the moves whose shifts caused the most
+ * cutoffs anywhere in the search, according to a history table indexed by the single move ids 0 to 27.
+ * <p>
+ * The heuristics only influence the order of the moves and not their scores, so they may be shared by the threads
+ * of a parallel search without locking.
+ */
+public class MoveOrdering {
+    private static final int MAXPLY = 64;
+    private static final int KILLERS = 2;
+    private static final int SINGLEMOVES = Move.SINGLEMOVES;
+    private static final int MAXHISTORY = 1 << 24; // All history is halved when a move reaches this
+
+    private final int[][] killers;
+    private final int[] history;
+    private volatile int rootDepth;
+
+    public MoveOrdering() {
+        this.killers = new int[MAXPLY][KILLERS];
+        this.history = new int[SINGLEMOVES];
+        this.rootDepth = 0;
+    }
+
+    /**
+     * Prepares the heuristics for the search of a new position, forgetting the killer moves and aging the history
+     * of the earlier searches.
+     */
+    public void startSearch() {
+        for (int[] killer : this.killers) {
+            killer[0] = TranspositionTable.NOMOVE;
+            killer[1] = TranspositionTable.NOMOVE;
+        }
+        for (int i = 0; i < SINGLEMOVES; i++) {
+            this.history[i] >>= 1;
+        }
+    }
+
+    /**
+     * Sets the depth to which the root is searched, which is needed to find the ply of a position from the depth that
+     * is left to be searched. The killer moves are kept between the iterations of an iterative deepening search.
+     *
+     * @param depth The depth of the search from the root.
+     */
+    public void startIteration(int depth) {
+        this.rootDepth = depth;
+    }
+
+    /**
+     * Sorts the moves of a position from the most to the least promising. Moves that are just as promising keep the
+     * order in which they were generated.
+     *
+     * @param board The board of the position, which is the same afterwards.
+     * @param moves The codes of the valid moves on the board, which are sorted in place.
+     * @param depth The depth that is left to be searched from the position.
+     */
+    public void sort(Board board, MoveList moves, int depth) {
+        int[] killer = this.killers[this.getPly(depth)];
+        for (int i = 0; i < moves.size(); i++) {
+            int code = moves.get(i);
+            long undoRecord = board.apply(code);
+            board.undo(undoRecord);
+
+            int encodedMove = TranspositionTable.encodeMove(code);
+            int killerRank = encodedMove == killer[0] ? 2 : encodedMove == killer[1] ? 1 : 0;
+            moves.setPriority(i, ((long) Board.getYieldAmount(undoRecord) << 32) |
+                ((long) killerRank << 28) | this.getHistory(code));
+        }
+        moves.sortByPriority();
+    }
+
+    /**
+     * Remembers a move that caused a cutoff, as a killer move of its ply and in the history table.
+     *
+     * @param code  The code of the move that caused the cutoff.
+     * @param depth The depth that was left to be searched from the position of the move.
+     */
+    public void addCutoff(int code, int depth) {
+        int[] killer = this.killers[this.getPly(depth)];
+        int encodedMove = TranspositionTable.encodeMove(code);
+        if (killer[0] != encodedMove) {
+            killer[1] = killer[0];
+            killer[0] = encodedMove;
+        }
+
+        int bonus = depth * depth;
+        int move1 = Move.getMove1(code);
+        boolean doubleMove = Move.isDoubleMove(code);
+        this.history[move1] += bonus;
+        if (doubleMove) {
+            this.history[Move.getMove2(code)] += bonus;
+        }
+        if (this.history[move1] >= MAXHISTORY ||
+            (doubleMove && this.history[Move.getMove2(code)] >= MAXHISTORY)) {
+            for (int i = 0; i < SINGLEMOVES; i++) {
+                this.history[i] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * @param code The code of the move to look up.
+     * @return The history of the move, which is the sum of the history of its shifts.
+     */
+    private int getHistory(int code) {
+        if (Move.isDoubleMove(code)) {
+            return this.history[Move.getMove1(code)] + this.history[Move.getMove2(code)];
+        }
+        return this.history[code];
+    }
+
+    /**
+     * @param depth The depth that is left to be searched from a position.
+     * @return The amount of moves between the root and the position.
+     */
+    private int getPly(int depth) {
+        return Math.max(0, Math.min(MAXPLY - 1, this.rootDepth - depth));
+    }
+}
@@ -0,0 +1,170 @@
+package dt.ai;
+
+import dt.model.Board;
+import dt.util.Move;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * The best moves of positions that were searched ahead of time by an {@link OpeningBookGenerator}, such that an AI
+ * does not have to search the widest positions of a game itself. The positions are known by the hash of their board,
+ * see {@link Board#getHash()}.
+ * <p>
+ * The book is stored as a header with {@link #MAGIC} and the amount of entries, followed by one entry of
+ * {@link #ENTRYBYTES} bytes for every position: the hash of the board and the code of its best move, see
+ * {@link Move#getCode()}. The entries are sorted by their hash, so a position is looked up by a binary search. The
+ * file is mapped into memory instead of read, such that opening a book takes no time no matter its size, and only
+ * the pages that are probed are ever loaded.
+ */
+public class OpeningBook {
+    public static final Path DEFAULTFILE = Path.of("src/dt/ai/Openings.book");
+    public static final int NOMOVE = -1;
+
+    private static final int MAGIC = 0x43424F4B; // "CBOK"
+    private static final int HEADERBYTES = Integer.BYTES * 2;
+    private static final int ENTRYBYTES = Long.BYTES + Short.BYTES;
+
+    private final ByteBuffer entries;
+    private final int size;
+
+    /**
+     * @param entries The mapped file of the book.
+     * @param size    The amount of entries in the book.
+     */
+    private OpeningBook(ByteBuffer entries, int size) {
+        this.entries = entries;
+        this.size = size;
+    }
+
+    /**
+     * Maps a book into memory.
+     *
+     * @param file The file in which the book is stored.
+     * @return The book that is stored in the file.
+     * @throws IOException When the file could not be read or does not hold a book.
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADERBYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not an opening book");
+            }
+            int size = buffer.getInt(Integer.BYTES);
+            if (size < 0 || buffer.capacity() != HEADERBYTES + (long) size * ENTRYBYTES) {
+                throw new IOException(file + " does not hold the " + size + " entries it should");
+            }
+            return new OpeningBook(buffer, size);
+        }
+    }
+
+    /**
+     * Maps the book in {@link #DEFAULTFILE} into memory, if it has been generated.
+     *
+     * @return The default book, or null if there is none or it could not be read.
+     */
+    public static OpeningBook openDefault() {
+        if (!Files.isRegularFile(DEFAULTFILE)) {
+            return null;
+        }
+        try {
+            return open(DEFAULTFILE);
+        } catch (IOException e) {
+            System.out.println("The opening book could not be opened: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores a book. The book is written next to the file and then moved over it, such that a book that is being
+     * probed is never seen half written.
+     *
+     * @param file  The file in which the book is stored.
+     * @param moves The code of the best move of every position, by the hash of the board.
+     * @throws IOException When the book could not be written.
+     * @requires every code is a valid code of {@link Move}
+     */
+    public static void write(Path file, Map<Long, Integer> moves) throws IOException {
+        long[] hashes = new long[moves.size()];
+        int i = 0;
+        for (long hash : moves.keySet()) {
+            hashes[i++] = hash;
+        }
+        Arrays.sort(hashes);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADERBYTES + hashes.length * ENTRYBYTES);
+        buffer.putInt(MAGIC).putInt(hashes.length);
+        for (long hash : hashes) {
+            buffer.putLong(hash).putShort((short) (int) moves.get(hash));
+        }
+        buffer.flip();
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file,
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Looks up the best move of a position by a binary search over the entries.
+     *
+     * @param hash The hash of the board of the position.
+     * @return The code of the best move of the position, or {@link #NOMOVE} if the position is not in the book.
+     */
+    public int probe(long hash) {
+        int low = 0;
+        int high = this.size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = HEADERBYTES + middle * ENTRYBYTES;
+            // Only absolute reads, such that threads can share the buffer
+            long entryHash = this.entries.getLong(offset);
+            if (entryHash < hash) {
+                low = middle + 1;
+            } else if (entryHash > hash) {
+                high = middle - 1;
+            } else {
+                return this.entries.getShort(offset + Long.BYTES);
+            }
+        }
+        return NOMOVE;
+    }
+
+    /**
+     * Looks up the best move of a board. As different boards may share a hash, a move from the book that is not
+     * valid on the board is ignored.
+     *
+     * @param board The board of the position.
+     * @return The best move of the position, or null if the position is not in the book.
+     * @ensures the board is unchanged
+     */
+    public Move probe(Board board) {
+        int code = this.probe(board.getHash());
+        if (code == NOMOVE || !board.findValidMoves().contains(Move.decode(code))) {
+            return null;
+        }
+        return Move.decode(code);
+    }
+
+    /**
+     * @return The amount of positions in the book.
+     */
+    public int getSize() {
+        return this.size;
+    }
+}
@@ -0,0 +1,139 @@
+package dt.ai;
+
+import dt.model.ServerBoard;
+import dt.util.Move;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * Creates an {@link OpeningBook} offline, by letting {@link MiniMaxAI2} play the first moves of many games against
+ * itself. Every game is played on its own thread of a pool, each with its own AI, and the best move of every position
+ * that is reached is added to the book.
+ * <p>
+ * The starting boards are drawn the same way as those of the server's board pool: every board from its own source of
+ * randomness, split off from a source with the given seed. A book thus holds the openings of the games that are
+ * played on the boards of the same seed.
+ */
+public class OpeningBookGenerator {
+    public static final int DEFAULTGAMES = 1000;
+    public static final int DEFAULTPLIES = 4;
+    public static final long DEFAULTTIMEBUDGET = 5000; // Milliseconds per position
+
+    private final int plies;
+    private final long timeBudget;
+    private final int threads;
+
+    /**
+     * @param plies      The amount of moves of every game that are searched and added to the book.
+     * @param timeBudget The amount of milliseconds in which the best move of a position is searched.
+     * @param threads    The amount of games that are played at the same time.
+     * @requires plies > 0 && timeBudget >= 0 && threads > 0
+     */
+    public OpeningBookGenerator(int plies, long timeBudget, int threads) {
+        this.plies = plies;
+        this.timeBudget = timeBudget;
+        this.threads = threads;
+    }
+
+    /**
+     * Plays the first moves of the games on the boards drawn from a seed.
+     *
+     * @param games The amount of games to be played.
+     * @param seed  The seed from which the starting boards are drawn.
+     * @return The code of the best move of every position that was reached, by the hash of its board.
+     * @throws InterruptedException When the thread is interrupted while waiting for the games to finish.
+     */
+    public Map<Long, Integer> generate(int games, long seed) throws InterruptedException {
+        Map<Long, Integer> moves = new ConcurrentHashMap<>();
+        SplittableRandom seeds = new SplittableRandom(seed);
+        ThreadLocal<AI> ais =
+            ThreadLocal.withInitial(() -> new MiniMaxAI2(MiniMaxAI2.DEFAULTDEPTH, 1));
+        AtomicInteger finished = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        try {
+            List<Future<?>> results = new ArrayList<>(games);
+            for (int game = 0; game < games; game++) {
+                // Split in order, such that every game gets the same board every run
+                SplittableRandom random = seeds.split();
+                results.add(pool.submit(() -> {
+                    this.play(random, ais.get(), moves);
+                    int done = finished.incrementAndGet();
+                    if (done % 100 == 0) {
+                        System.out.println(
+                            done + "/" + games + " games, " + moves.size() + " positions");
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("A game could not be played", e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return moves;
+    }
+
+    /**
+     * Plays the first moves of a game and adds the best move of every position to the book.
+     *
+     * @param random The source of randomness of the starting board.
+     * @param ai     The AI that finds the best moves.
+     * @param moves  The code of the best move of every position, by the hash of its board.
+     */
+    private void play(SplittableRandom random, AI ai, Map<Long, Integer> moves) {
+        ServerBoard board = new ServerBoard(random);
+        board.setupBoard();
+        for (int ply = 0; ply < this.plies; ply++) {
+            Integer known = moves.get(board.getHash());
+            Move move = known != null ?
+                Move.decode(known) : ai.findBestMove(board, this.timeBudget);
+            if (move == null) {
+                return; // The game is over
+            }
+            moves.putIfAbsent(board.getHash(), move.getCode());
+            board.apply(move);
+        }
+    }
+
+    /**
+     * Generates a book and stores it.
+     *
+     * @param args The file of the book, the amount of games, the amount of moves per game, the time budget per
+     *             position in milliseconds, the amount of threads and the seed of the starting boards. Every
+     *             argument is optional, but only the last ones can be left out.
+     * @throws IOException          When the book could not be stored.
+     * @throws InterruptedException When the thread is interrupted while the games are played.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path file = args.length > 0 ? Path.of(args[0]) : OpeningBook.DEFAULTFILE;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULTGAMES;
+        int plies = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULTPLIES;
+        long timeBudget = args.length > 3 ? Long.parseLong(args[3]) : DEFAULTTIMEBUDGET;
+        int threads = args.length > 4 ?
+            Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 0L;
+
+        long start = System.currentTimeMillis();
+        Map<Long, Integer> moves =
+            new OpeningBookGenerator(plies, timeBudget, threads).generate(games, seed);
+        OpeningBook.write(file, moves);
+        System.out.println("Stored " + moves.size() + " positions in " + file + " in " +
+            (System.currentTimeMillis() - start) / 1000 + " s");
+    }
+}
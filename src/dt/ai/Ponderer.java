@@ -0,0 +1,268 @@
+package dt.ai;
+
+import dt.model.Board;
+import dt.util.Move;
+import dt.util.MoveList;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * Lets an AI think during the turn of the opponent. The replies the opponent is most likely to make are predicted,
+ * and for each of them the best answer is searched on a background thread, one reply after the other, until the
+ * opponent has moved. When the reply the opponent made was one of them, the search of the answer to it is promoted
+ * to the search of the next move, such that the AI needs less or no time of its own. The searches of the other
+ * replies are discarded, although their positions stay in the memory of the AI, like its transposition table.
+ * <p>
+ * The first predicted reply is the move the AI itself would make in the place of the opponent, found in a short
+ * search. The others are the replies that yield the most balls. The AI may only be used by the ponderer between
+ * {@link Ponderer#start(Board)} and {@link Ponderer#stop(Move)}.
+ * <p>
+ * A search that was stopped halfway still found a move, which is played when too little of the time budget is
+ * left to search again. Otherwise it is only replaced by the move of a new search, which is quick up to the depth
+ * the pondering reached thanks to the memory of the AI, when that search gets at least as deep.
+ */
+public class Ponderer {
+    public static final int PREDICTIONS = 4;
+
+    private static final int PREDICTIONSHARE = 10; // 1/10 of the budget predicts the first reply
+    private static final long MINSEARCHBUDGET = 250; // Milliseconds below which searching again is pointless
+
+    private final AI ai;
+    private final long timeBudget;
+    private final Map<Integer, Result> results; // Only read once the thread has finished
+    private Thread thread;
+    private volatile boolean stopped;
+    private int hits;
+    private int misses;
+
+    /**
+     * @param ai         The AI that ponders, and which searches the next move afterwards.
+     * @param timeBudget The amount of milliseconds the AI may take for a move.
+     * @requires timeBudget >= 0
+     */
+    public Ponderer(AI ai, long timeBudget) {
+        this.ai = ai;
+        this.timeBudget = timeBudget;
+        this.results = new HashMap<>();
+    }
+
+    /**
+     * Starts pondering on a position in which the opponent is to move. A previous session is discarded.
+     *
+     * @param board The board of the position, of which the ponderer keeps a copy.
+     */
+    public void start(Board board) {
+        this.cancel();
+        this.stopped = false;
+        this.results.clear();
+        Board position = board.deepCopy();
+        this.thread = new Thread(() -> this.ponder(position), "Ponderer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Stops pondering, once the opponent has made a move, and waits until the AI is no longer used.
+     *
+     * @param theirMove The move the opponent made.
+     * @return The search of the answer to the move, or null if the move was not predicted or not searched yet.
+     */
+    public Result stop(Move theirMove) {
+        if (this.thread == null) {
+            return null;
+        }
+        this.cancel();
+        Result result = this.results.get(theirMove.getCode());
+        if (result != null) {
+            this.hits++;
+        } else {
+            this.misses++;
+        }
+        return result;
+    }
+
+    /**
+     * Finds the move the AI makes after the opponent has moved, using the search of the answer to their move if
+     * there is one. The move of a complete search is played right away. The move of a search that was stopped is
+     * played when less than {@link Ponderer#MINSEARCHBUDGET} milliseconds of the time budget are left, and
+     * otherwise it is only replaced by the move of a search in the rest of the time budget that gets at least as
+     * deep.
+     *
+     * @param board  The board on which the AI is to move, after the move of the opponent.
+     * @param result The search of the answer to the move of the opponent, as returned by
+     *               {@link Ponderer#stop(Move)}, or null if there is none.
+     * @return The move the AI makes, or null if there are no valid moves.
+     * @requires the ponderer is not pondering
+     * @ensures the board is unchanged
+     */
+    public Move findMove(Board board, Result result) {
+        if (result == null || result.getMove() == null) {
+            return this.ai.findBestMove(board, this.timeBudget);
+        }
+        long remainingBudget = this.timeBudget - result.getMillis();
+        if (result.isComplete() || remainingBudget < MINSEARCHBUDGET) {
+            return result.getMove();
+        }
+        Move move = this.ai.findBestMove(board, remainingBudget);
+        return getCompletedDepth(this.ai) >= result.getDepth() ? move : result.getMove();
+    }
+
+    /**
+     * Stops pondering without using any of it, for example when the game is over, and waits until the AI is no
+     * longer used.
+     */
+    public void cancel() {
+        this.stopped = true;
+        if (this.thread != null) {
+            boolean interrupted = false;
+            while (this.thread.isAlive()) {
+                try {
+                    this.thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true; // The AI may not be shared, so keep waiting
+                }
+            }
+            this.thread = null;
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return Whether the ponderer is still searching.
+     */
+    public boolean isPondering() {
+        return this.thread != null && this.thread.isAlive();
+    }
+
+    /**
+     * @return The amount of times the opponent made a move of which the answer was pondered on.
+     */
+    public int getHits() {
+        return this.hits;
+    }
+
+    /**
+     * @return The amount of times the opponent made a move of which the answer was not pondered on.
+     */
+    public int getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Searches the answers to the predicted replies, one after the other, until pondering is stopped.
+     *
+     * @param position The board on which the opponent is to move, which is only used by the pondering thread.
+     */
+    private void ponder(Board position) {
+        for (int reply : this.predictReplies(position)) {
+            if (this.stopped) {
+                return;
+            }
+            long undoRecord = position.apply(reply);
+            long start = System.currentTimeMillis();
+            Move answer = this.ai.findBestMove(position, this.timeBudget, () -> this.stopped);
+            long millis = System.currentTimeMillis() - start;
+            position.undo(undoRecord);
+            // A search that was not stopped ended like the search of the move itself would have
+            this.results.put(reply,
+                new Result(answer, millis, !this.stopped, getCompletedDepth(this.ai)));
+        }
+    }
+
+    /**
+     * @param position The board on which the opponent is to move.
+     * @return The codes of the replies that are pondered on, the most likely first.
+     */
+    private List<Integer> predictReplies(Board position) {
+        List<Integer> replies = new ArrayList<>(PREDICTIONS);
+        Move expected = this.ai.findBestMove(position, this.timeBudget / PREDICTIONSHARE,
+            () -> this.stopped);
+        if (expected == null) {
+            return replies; // The game is over
+        }
+        replies.add(expected.getCode());
+
+        MoveList moves = new MoveList();
+        position.findValidMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            long undoRecord = position.apply(moves.get(i));
+            moves.setPriority(i, Board.getYieldAmount(undoRecord));
+            position.undo(undoRecord);
+        }
+        moves.sortByPriority();
+        for (int i = 0; i < moves.size() && replies.size() < PREDICTIONS; i++) {
+            if (!replies.contains(moves.get(i))) {
+                replies.add(moves.get(i));
+            }
+        }
+        return replies;
+    }
+
+    /**
+     * @param ai The AI that searched.
+     * @return The depth of the deepest iteration the last search of the AI finished, or 0 if the AI does not search
+     * in iterations.
+     */
+    private static int getCompletedDepth(AI ai) {
+        return ai instanceof IterativeDeepeningAI ? ((IterativeDeepeningAI) ai).getCompletedDepth() : 0;
+    }
+
+    /**
+     * The search of the answer to a predicted reply.
+     */
+    public static class Result {
+        private final Move move;
+        private final long millis;
+        private final boolean complete;
+        private final int depth;
+
+        /**
+         * @param move     The best answer that was found, or null if there are no valid moves after the reply.
+         * @param millis   The amount of milliseconds that were spent on the search.
+         * @param complete Whether the search ended before pondering was stopped.
+         * @param depth    The depth of the deepest iteration the search finished.
+         */
+        private Result(Move move, long millis, boolean complete, int depth) {
+            this.move = move;
+            this.millis = millis;
+            this.complete = complete;
+            this.depth = depth;
+        }
+
+        /**
+         * @return The best answer that was found, or null if there are no valid moves after the reply.
+         */
+        public Move getMove() {
+            return this.move;
+        }
+
+        /**
+         * @return The amount of milliseconds that were spent on the search.
+         */
+        public long getMillis() {
+            return this.millis;
+        }
+
+        /**
+         * @return Whether the search ended like a search of the move itself would have, by using up the time
+         * budget or by finding the exact scores, such that its move can be played without searching any further.
+         */
+        public boolean isComplete() {
+            return this.complete;
+        }
+
+        /**
+         * @return The depth of the deepest iteration the search finished, or 0 if none did or the AI does not
+         * search in iterations.
+         */
+        public int getDepth() {
+            return this.depth;
+        }
+    }
+}
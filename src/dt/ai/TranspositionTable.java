@@ -0,0 +1,175 @@
+package dt.ai;
+
+import dt.util.Move;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * A fixed size table of search results, indexed by the Zobrist hash of a board, such that a position that is reached
+ * through different orders of moves only has to be searched once. All the entries are stored in primitive arrays.
+ * When two positions map to the same slot, the one that was searched the deepest is kept, unless the slot holds an
+ * entry of an earlier search.
+ * <p>
+ * The table can be shared by multiple searching threads without locking. Every slot stores the entry and the key
+ * XOR the entry, such that an entry that is half overwritten by another thread does not match its key anymore.
+ */
+public class TranspositionTable {
+    public static final int EXACT = 0;
+    public static final int LOWERBOUND = 1;
+    public static final int UPPERBOUND = 2;
+    public static final int NOMOVE = 0;
+
+    private static final int DEFAULTSIZEBITS = 20;
+
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+    private volatile int generation;
+
+    public TranspositionTable() {
+        this(DEFAULTSIZEBITS);
+    }
+
+    /**
+     * Creates a table with 2^sizeBits slots.
+     *
+     * @param sizeBits The base 2 logarithm of the amount of slots.
+     * @requires 0 < sizeBits <= 30
+     */
+    public TranspositionTable(int sizeBits) {
+        this.keys = new long[1 << sizeBits];
+        this.entries = new long[1 << sizeBits];
+        this.mask = (1 << sizeBits) - 1;
+        this.generation = 0;
+    }
+
+    /**
+     * Looks up a position in the table.
+     *
+     * @param key The hash of the position, including whose turn it is.
+     * @return The entry of the position, or 0 if the position is not in the table. The parts of the entry can be
+     * read with {@link TranspositionTable#getScore(long)} and the other static methods of this class.
+     */
+    public long probe(long key) {
+        int slot = (int) key & this.mask;
+        long entry = this.entries[slot];
+        if (entry != 0L && (this.keys[slot] ^ entry) == key) {
+            return entry;
+        }
+        return 0L;
+    }
+
+    /**
+     * Stores the result of a search in the table. The entry in the slot of the key is only replaced if it
+     * belongs to an earlier search or was not searched deeper than this result.
+     *
+     * @param key      The hash of the position, including whose turn it is.
+     * @param depth    The depth to which the position was searched.
+     * @param score    The score of the position, relative to the score at the position.
+     * @param bound    Whether the score is {@link TranspositionTable#EXACT}, a
+     *                 {@link TranspositionTable#LOWERBOUND} or an {@link TranspositionTable#UPPERBOUND}.
+     * @param bestMove The encoded best move found, or {@link TranspositionTable#NOMOVE}.
+     * @requires 0 <= depth < 256
+     */
+    public void store(long key, int depth, int score, int bound, int bestMove) {
+        int slot = (int) key & this.mask;
+        long oldEntry = this.entries[slot];
+        int currentGeneration = this.generation;
+        if (oldEntry == 0L || getGeneration(oldEntry) != currentGeneration ||
+            (this.keys[slot] ^ oldEntry) == key || depth >= getDepth(oldEntry)) {
+            long entry = (score & 0xFFFFFFFFL) |
+                ((long) depth << 32) |
+                ((long) bound << 40) |
+                ((long) currentGeneration << 42) |
+                ((long) bestMove << 50) |
+                (1L << 63); // Makes sure a used slot is never 0
+            this.keys[slot] = key ^ entry;
+            this.entries[slot] = entry;
+        }
+    }
+
+    /**
+     * @param entry An entry returned by {@link TranspositionTable#probe(long)}.
+     * @return The score stored in the entry.
+     */
+    public static int getScore(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * @param entry An entry returned by {@link TranspositionTable#probe(long)}.
+     * @return The depth to which the position of the entry was searched.
+     */
+    public static int getDepth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    /**
+     * @param entry An entry returned by {@link TranspositionTable#probe(long)}.
+     * @return The type of bound of the score stored in the entry.
+     */
+    public static int getBound(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    /**
+     * @param entry An entry returned by {@link TranspositionTable#probe(long)}.
+     * @return The encoded best move stored in the entry, or {@link TranspositionTable#NOMOVE}.
+     */
+    public static int getBestMove(long entry) {
+        return (int) (entry >>> 50) & 0x3FF;
+    }
+
+    /**
+     * Marks the start of a new search, after which the entries of earlier searches are replaced first.
+     */
+    public void nextGeneration() {
+        this.generation = (this.generation + 1) & 0xFF;
+    }
+
+    /**
+     * Encodes a move in a number between 1 and 812, such that it fits in an entry of the table.
+     *
+     * @param move The move to be encoded.
+     * @return The encoded move.
+     */
+    public static int encodeMove(Move move) {
+        return encodeMove(move.getCode());
+    }
+
+    /**
+     * Encodes the code of a move, see {@link Move#getCode()}, such that it fits in an entry of the table.
+     *
+     * @param code The code of the move to be encoded.
+     * @return The encoded move.
+     */
+    public static int encodeMove(int code) {
+        return 1 + code;
+    }
+
+    /**
+     * @param encodedMove An encoded move, which is not {@link TranspositionTable#NOMOVE}.
+     * @return The code of the encoded move, see {@link Move#getCode()}.
+     */
+    public static int decodeMove(int encodedMove) {
+        return encodedMove - 1;
+    }
+
+    /**
+     * Finds out whether a move is the move that has been encoded, without decoding it.
+     *
+     * @param move        The move to be compared.
+     * @param encodedMove The encoded move, which can be {@link TranspositionTable#NOMOVE}.
+     * @return Whether the move is the encoded move.
+     */
+    public static boolean isEncodedMove(Move move, int encodedMove) {
+        return encodedMove != NOMOVE && encodeMove(move) == encodedMove;
+    }
+
+    /**
+     * @param entry An entry of the table.
+     * @return The generation of the search that stored the entry.
+     */
+    private static int getGeneration(long entry) {
+        return (int) (entry >>> 42) & 0xFF;
+    }
+}
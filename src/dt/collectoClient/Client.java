@@ -2,6 +2,7 @@ package dt.collectoClient;
 
 import dt.ai.AI;
 import dt.ai.AITypes;
+import dt.ai.Ponderer;
 import dt.collectoClient.GUI.ClientGUI;
 import dt.exceptions.CommandException;
 import dt.exceptions.InvalidMoveException;
@@ -10,6 +11,7 @@ import dt.exceptions.UserExit;
 import dt.model.Board;
 import dt.model.ClientBoard;
 import dt.peer.NetworkEntity;
+import dt.peer.ReaderThreads;
 import dt.peer.SocketHandler;
 import dt.protocol.ClientMessages;
 import dt.protocol.ClientProtocol;
@@ -24,6 +26,8 @@ import java.net.Socket;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This class handles the interaction with the {@link ClientBoard}, the {@link ClientView} and the {@link SocketHandler}.
@@ -35,6 +39,7 @@ import java.util.List;
  */
 public class Client implements ClientProtocol, NetworkEntity {
 
+    private static final long AITIMEBUDGET = 5000; // Milliseconds the AI may think about a move
     private final String CLIENTDESCRIPTION = "Client By: Emiel";
     private Socket serverSocket;
     private SocketHandler socketHandler;
@@ -53,6 +58,11 @@ public class Client implements ClientProtocol, NetworkEntity {
     private boolean debug;
 
     private AI ai;
+    private boolean ponderingEnabled;
+    private Ponderer ponderer;
+    private Ponderer.Result ponderedMove;
+    private final ReentrantLock lock;
+    private final Condition moveVerified;
 
     private String serverName;
     private boolean myTurn;
@@ -68,10 +78,12 @@ public class Client implements ClientProtocol, NetworkEntity {
         this.cryptEnabled = false;
         this.authEnabled = false;
         this.debug = true;
+        this.lock = new ReentrantLock();
+        this.moveVerified = this.lock.newCondition();
     }
 
     /**
-     * @param args can be: ( ip + port) (+ gui) (+debug)
+     * @param args can be: ( ip + port) (+ gui) (+debug) (+ virtual) (+ ponder)
      */
     public static void main(String[] args) {
         Client client = new Client();
@@ -82,6 +94,12 @@ public class Client implements ClientProtocol, NetworkEntity {
             if (Arrays.asList(args).contains("debug")) {
                 client.setDebug(true);
             }
+            if (Arrays.asList(args).contains("ponder")) {
+                client.setPondering(true);
+            }
+            if (Arrays.asList(args).contains("virtual") && !ReaderThreads.setVirtual(true)) {
+                System.out.println("Virtual threads are not available, using platform threads");
+            }
             try {
                 client.ip = InetAddress.getByName(args[0]);
                 client.port = Integer.parseInt(args[1]);
@@ -114,122 +132,128 @@ public class Client implements ClientProtocol, NetworkEntity {
      * @ensures The state is changed for the following {@link ServerMessages},{@link ServerMessages#HELLO},{@link ServerMessages#LOGIN},{@link ServerMessages#NEWGAME},{@link ServerMessages#MOVE},{@link ServerMessages#GAMEOVER}
      */
     @Override
-    public synchronized void handleMessage(String msg) {
-        String[] arguments = msg.split(ProtocolMessages.delimiter);
-        String keyWord = arguments[0];
+    public void handleMessage(String msg) {
+        this.lock.lock();
         try {
-            switch (ServerMessages.valueOf(keyWord)) {
-                case HELLO:
-                    if (this.state == ClientStates.PENDINGHELLO) {
-                        this.handleHello(arguments);
-                        synchronized (clientView) {
-                            this.clientView.notify(); //The clientView can prompt username
+            String[] arguments = msg.split(ProtocolMessages.delimiter);
+            String keyWord = arguments[0];
+            try {
+                switch (ServerMessages.valueOf(keyWord)) {
+                    case HELLO:
+                        if (this.state == ClientStates.PENDINGHELLO) {
+                            this.handleHello(arguments);
+                            synchronized (clientView) {
+                                this.clientView.notify(); //The clientView can prompt username
+                            }
+                        } else {
+                            throw new UnexpectedResponseException();
                         }
-                    } else {
-                        throw new UnexpectedResponseException();
-                    }
-                    break;
-                case LOGIN:
-                    if (this.state == ClientStates.PENDINGLOGIN) {
-                        this.state = ClientStates.LOGGEDIN;
-                        this.clientView.showMessage("Successfully logged in!");
-                        this.clientView.showMessage("Main menu. Enter a command.");
-                        synchronized (clientView) {
-                            this.clientView.notifyAll();//The ClientView can continue to main menu
+                        break;
+                    case LOGIN:
+                        if (this.state == ClientStates.PENDINGLOGIN) {
+                            this.state = ClientStates.LOGGEDIN;
+                            this.clientView.showMessage("Successfully logged in!");
+                            this.clientView.showMessage("Main menu. Enter a command.");
+                            synchronized (clientView) {
+                                this.clientView
+                                    .notifyAll();//The ClientView can continue to main menu
+                            }
+                        } else {
+                            throw new UnexpectedResponseException();
                         }
-                    } else {
-                        throw new UnexpectedResponseException();
-                    }
-                    break;
-                case ALREADYLOGGEDIN:
-                    if (this.state == ClientStates.PENDINGLOGIN) {
-                        this.clientView.showMessage("Username already logged in, try again");
-                        synchronized (clientView) {
-                            this.clientView
-                                .notifyAll();//THe clientView has to ask for username again
+                        break;
+                    case ALREADYLOGGEDIN:
+                        if (this.state == ClientStates.PENDINGLOGIN) {
+                            this.clientView.showMessage("Username already logged in, try again");
+                            synchronized (clientView) {
+                                this.clientView
+                                    .notifyAll();//THe clientView has to ask for username again
+                            }
+                        } else {
+                            throw new UnexpectedResponseException();
                         }
-                    } else {
-                        throw new UnexpectedResponseException();
-                    }
-                    break;
-                case LIST:
-                    this.clientView.displayList(parseListResponse(arguments));
-                    break;
-                case NEWGAME:
-                    if (this.state == ClientStates.INQUEUE) {
-                        this.createNewBoard(arguments);
-                    } else {
-                        throw new UnexpectedResponseException();
-                    }
-                    this.clientView.showBoard(this.board);
-                    this.clientView.showMessage("Your move: ");
-
-                    break;
-                case MOVE:
-                    if (this.state == ClientStates.WAITVERIFYMOVE) {
-                        if (this.verifyOurMove(this.createMove(arguments))) {
-                            this.moveConfirmed = true;
-                            this.notify(); // Notify client that move was verified
+                        break;
+                    case LIST:
+                        this.clientView.displayList(parseListResponse(arguments));
+                        break;
+                    case NEWGAME:
+                        if (this.state == ClientStates.INQUEUE) {
+                            this.createNewBoard(arguments);
                         } else {
-                            throw new ProtocolException(
-                                "Our move could not be verfied. Our last move: " +
-                                    this.ourLastMove + "server: " + this.createMove(arguments));
+                            throw new UnexpectedResponseException();
                         }
-                    } else if (this.state == ClientStates.WAITTHEIRMOVE) {
-                        try {
-                            this.makeTheirMove(this.createMove(arguments));
-                        } catch (InvalidMoveException e) {
-                            throw new ProtocolException(
-                                "Server move was invalid. Our board said: " + e.getMessage());
+                        this.clientView.showBoard(this.board);
+                        this.clientView.showMessage("Your move: ");
+
+                        break;
+                    case MOVE:
+                        if (this.state == ClientStates.WAITVERIFYMOVE) {
+                            if (this.verifyOurMove(this.createMove(arguments))) {
+                                this.moveConfirmed = true;
+                                this.moveVerified.signal(); // Notify client that move was verified
+                            } else {
+                                throw new ProtocolException(
+                                    "Our move could not be verfied. Our last move: " +
+                                        this.ourLastMove + "server: " + this.createMove(arguments));
+                            }
+                        } else if (this.state == ClientStates.WAITTHEIRMOVE) {
+                            try {
+                                this.makeTheirMove(this.createMove(arguments));
+                            } catch (InvalidMoveException e) {
+                                throw new ProtocolException(
+                                    "Server move was invalid. Our board said: " + e.getMessage());
+                            }
+                        } else {
+                            throw new UnexpectedResponseException();
                         }
-                    } else {
-                        throw new UnexpectedResponseException();
-                    }
-                    break;
-                case GAMEOVER:
-                    this.clientView.showMessage(this.handleGameOver(arguments));
-                    this.clientView.showMessage("Main menu. Enter a command.");
-                    break;
-                case ERROR:
-                    clientView.showMessage("Server threw error: " + msg);
-                    switch (this.state) {
-                        case WAITOURMOVE:
-                            break;
-                        case WAITVERIFYMOVE:
-                            this.notify();
-                            this.state = ClientStates.WAITOURMOVE;
-                            this.myTurn = true;
-                            break;
-                        case WAITTHEIRMOVE:
-                            break;
-                    }
-                    break;
-                case CHAT:
-                    String[] splitChat = msg.split(ProtocolMessages.delimiter, 3);
-                    clientView.displayChatMessage(splitChat[1] + ": " + splitChat[2]);
-                    break;
-                case WHISPER:
-                    String[] splitWhisper = msg.split(ProtocolMessages.delimiter, 3);
-                    clientView
-                        .displayChatMessage(splitWhisper[1] + " whispers: " + splitWhisper[2]);
-                    break;
-                case CANNOTWHISPER:
-                    throw new CommandException(arguments[1] + "Cannot receive whispers");
-                case RANK:
-                    this.handleRanking(arguments);
-                    break;
-            }
-        } catch (UnexpectedResponseException e) {
-            clientView.showMessage("Unexpected response: " + msg);
-        } catch (NumberFormatException | ProtocolException e) {
-            clientView.showMessage("Invalid response from server. Response: " + msg);
-            if (!e.getMessage().equals("")) {
-                clientView.showMessage("Reason: " + e.getMessage());
+                        break;
+                    case GAMEOVER:
+                        this.clientView.showMessage(this.handleGameOver(arguments));
+                        this.clientView.showMessage("Main menu. Enter a command.");
+                        break;
+                    case ERROR:
+                        clientView.showMessage("Server threw error: " + msg);
+                        switch (this.state) {
+                            case WAITOURMOVE:
+                                break;
+                            case WAITVERIFYMOVE:
+                                this.moveVerified.signal();
+                                this.state = ClientStates.WAITOURMOVE;
+                                this.myTurn = true;
+                                break;
+                            case WAITTHEIRMOVE:
+                                break;
+                        }
+                        break;
+                    case CHAT:
+                        String[] splitChat = msg.split(ProtocolMessages.delimiter, 3);
+                        clientView.displayChatMessage(splitChat[1] + ": " + splitChat[2]);
+                        break;
+                    case WHISPER:
+                        String[] splitWhisper = msg.split(ProtocolMessages.delimiter, 3);
+                        clientView
+                            .displayChatMessage(splitWhisper[1] + " whispers: " + splitWhisper[2]);
+                        break;
+                    case CANNOTWHISPER:
+                        throw new CommandException(arguments[1] + "Cannot receive whispers");
+                    case RANK:
+                        this.handleRanking(arguments);
+                        break;
+                }
+            } catch (UnexpectedResponseException e) {
+                clientView.showMessage("Unexpected response: " + msg);
+            } catch (NumberFormatException | ProtocolException e) {
+                clientView.showMessage("Invalid response from server. Response: " + msg);
+                if (!e.getMessage().equals("")) {
+                    clientView.showMessage("Reason: " + e.getMessage());
+                }
+            } catch (IllegalArgumentException e) {
+                clientView.showMessage("Unkown command from server. Response: " + msg);
+            } catch (CommandException e) {
+                clientView.showMessage(e.getMessage());
             }
-        } catch (IllegalArgumentException e) {
-            clientView.showMessage("Unkown command from server. Response: " + msg);
-        } catch (CommandException e) {
-            clientView.showMessage(e.getMessage());
+        } finally {
+            this.lock.unlock();
         }
     }
 
@@ -324,6 +348,16 @@ public class Client implements ClientProtocol, NetworkEntity {
         socketHandler.write(ClientMessages.RANK.constructMessage());
     }
 
+    /**
+     * Request a part of the ranking from the server
+     *
+     * @param query the arguments of a {@link ClientMessages.RankQueries}, such as TOP and a count
+     */
+    @Override
+    public void doGetRanking(List<String> query) {
+        socketHandler.write(ClientMessages.RANK.constructMessage(query));
+    }
+
     /**
      * Handle the response of the ranking. Parses the ranking to a string and passes it to the {@link ClientView}
      *
@@ -335,6 +369,9 @@ public class Client implements ClientProtocol, NetworkEntity {
         StringBuilder rank = new StringBuilder("Ranking: \nName:            Score:\n");
         for (int i = 1; i < arguments.length; i++) {
             String[] list = arguments[i].split(" ");
+            if (list.length > 2) { //Only a part of the ranking comes with positions
+                rank.append(String.format("%6s. ", list[2]));
+            }
             rank.append(String.format("%-20s %20s", list[0], list[1])).append('\n');
         }
         clientView.showRank(rank.toString());
@@ -391,7 +428,7 @@ public class Client implements ClientProtocol, NetworkEntity {
      * @ensures the state to be {@link ClientStates#WAITOURMOVE} if we start
      * @ensures the state to be {@link ClientStates#WAITTHEIRMOVE} if they start
      */
-    private synchronized void createNewBoard(String[] arguments) throws NumberFormatException {
+    private void createNewBoard(String[] arguments) throws NumberFormatException {
         int[] boardState = new int[arguments.length - 3];
         for (int i = 1; i < arguments.length - 2; i++) {
             boardState[i - 1] = Integer.parseInt(arguments[i]);
@@ -419,6 +456,10 @@ public class Client implements ClientProtocol, NetworkEntity {
             clientView.showMessage("Waiting on their move");
         }
         this.board = new ClientBoard(boardState);
+        this.ponderedMove = null;
+        if (!this.myTurn) {
+            this.startPondering();
+        }
     }
 
     /**
@@ -430,22 +471,27 @@ public class Client implements ClientProtocol, NetworkEntity {
      * @throws ProtocolException
      * @requires the arguments to be the raw split arguments from the server
      */
-    public synchronized Move createMove(String[] arguments)
+    public Move createMove(String[] arguments)
         throws NumberFormatException, ProtocolException {
-        Move move = null;
-        switch (arguments.length) {
-            case 1:
-                throw new ProtocolException("Not enough arguments");
-            case 2:
-                move = new Move(Integer.parseInt(arguments[1]));
-                break;
-            case 3:
-                move = new Move(Integer.parseInt(arguments[1]), Integer.parseInt(arguments[2]));
-                break;
-            default:
-                throw new ProtocolException("Too many arguments");
+        this.lock.lock();
+        try {
+            Move move = null;
+            switch (arguments.length) {
+                case 1:
+                    throw new ProtocolException("Not enough arguments");
+                case 2:
+                    move = new Move(Integer.parseInt(arguments[1]));
+                    break;
+                case 3:
+                    move = new Move(Integer.parseInt(arguments[1]), Integer.parseInt(arguments[2]));
+                    break;
+                default:
+                    throw new ProtocolException("Too many arguments");
+            }
+            return move;
+        } finally {
+            this.lock.unlock();
         }
-        return move;
     }
 
     /**
@@ -455,19 +501,68 @@ public class Client implements ClientProtocol, NetworkEntity {
      * @return
      * @requires Our last {@link Move} should not be null
      */
-    public synchronized boolean verifyOurMove(Move move) {
-        return this.ourLastMove.equals(move);
+    public boolean verifyOurMove(Move move) {
+        this.lock.lock();
+        try {
+            return this.ourLastMove.equals(move);
+        } finally {
+            this.lock.unlock();
+        }
     }
 
     /**
-     * Finds a move and plays it on the board
+     * Finds a move within {@link Client#AITIMEBUDGET} milliseconds and plays it on the board. When the AI pondered
+     * on the move the opponent made, the move it found is played without searching again if its search was
+     * complete or too little time is left, and otherwise the AI searches for the rest of the time budget, see
+     * {@link Ponderer#findMove(Board, Ponderer.Result)}.
      *
      * @throws InvalidMoveException
      * @throws ProtocolException
      * @requires ai should not be null
      */
-    public synchronized void doAIMove() throws InvalidMoveException, ProtocolException {
-        this.doMove(this.ai.findBestMove(this.board));
+    public void doAIMove() throws InvalidMoveException, ProtocolException {
+        this.lock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            Ponderer.Result pondered = this.ponderedMove;
+            this.ponderedMove = null;
+            Move move;
+            if (pondered == null) {
+                move = this.ai.findBestMove(this.board, AITIMEBUDGET);
+            } else {
+                move = this.ponderer.findMove(this.board, pondered);
+            }
+            this.clientView.showMessage("The AI found its move in " +
+                (System.currentTimeMillis() - start) + " ms" +
+                (pondered != null ? ", after pondering on their move" : ""));
+            this.doMove(move);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Lets the AI ponder on the replies of the opponent, if pondering is enabled.
+     *
+     * @requires it is the turn of the opponent
+     */
+    private void startPondering() {
+        if (this.ponderingEnabled && this.ai != null) {
+            if (this.ponderer == null) {
+                this.ponderer = new Ponderer(this.ai, AITIMEBUDGET);
+            }
+            this.ponderer.start(this.board);
+        }
+    }
+
+    /**
+     * Stops the AI from pondering, such that it can be used for the next move or thrown away.
+     */
+    private void stopPondering() {
+        if (this.ponderer != null) {
+            this.ponderer.cancel();
+        }
+        this.ponderedMove = null;
     }
 
     /**
@@ -486,40 +581,46 @@ public class Client implements ClientProtocol, NetworkEntity {
      * @ensures myTurn to be true if the move could not be confirmed
      */
     @Override
-    public synchronized void doMove(Move move) throws InvalidMoveException, ProtocolException {
-        if (!this.board.isValidMove(move)) {
-            throw new InvalidMoveException("Yer move invalid dipshit");
-        }
-        this.socketHandler.write(ClientMessages.MOVE.constructMessage(move));
-        this.ourLastMove = move;
-        this.state = ClientStates.WAITVERIFYMOVE;
-        if (debug) {
-            this.clientView.showMessage("doMove(): " + this.state);
-        }
-        this.moveConfirmed = false;
-
+    public void doMove(Move move) throws InvalidMoveException, ProtocolException {
+        this.lock.lock();
         try {
-            this.wait(); //Wait for server to verify and confirm the move
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-
-        if (moveConfirmed) {
-            this.makeMove(move);
-            clientView.showMessage("Your move on board was: " + move);
-            this.myTurn = false;
-            this.state = ClientStates.WAITTHEIRMOVE;
-            if (debug) {
-                this.clientView.showMessage("doMove()/if: " + this.state);
+            if (!this.board.isValidMove(move)) {
+                throw new InvalidMoveException("Yer move invalid dipshit");
             }
-        } else {
-            this.myTurn = true;
-            this.state = ClientStates.WAITOURMOVE;
+            this.socketHandler.write(ClientMessages.MOVE.constructMessage(move));
+            this.ourLastMove = move;
+            this.state = ClientStates.WAITVERIFYMOVE;
             if (debug) {
-                this.clientView.showMessage("doMove()/else: " + this.state);
+                this.clientView.showMessage("doMove(): " + this.state);
             }
-            throw new ProtocolException(
-                "Our move could not be verified. Our move was: " + this.ourLastMove);
+            this.moveConfirmed = false;
+
+            try {
+                this.moveVerified.await(); //Wait for server to verify and confirm the move
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+
+            if (moveConfirmed) {
+                this.makeMove(move);
+                clientView.showMessage("Your move on board was: " + move);
+                this.myTurn = false;
+                this.state = ClientStates.WAITTHEIRMOVE;
+                if (debug) {
+                    this.clientView.showMessage("doMove()/if: " + this.state);
+                }
+                this.startPondering();
+            } else {
+                this.myTurn = true;
+                this.state = ClientStates.WAITOURMOVE;
+                if (debug) {
+                    this.clientView.showMessage("doMove()/else: " + this.state);
+                }
+                throw new ProtocolException(
+                    "Our move could not be verified. Our move was: " + this.ourLastMove);
+            }
+        } finally {
+            this.lock.unlock();
         }
     }
 
@@ -532,15 +633,28 @@ public class Client implements ClientProtocol, NetworkEntity {
      * @ensures the state to be changed to {@link ClientStates#WAITOURMOVE}
      * @ensures myTurn to be true
      */
-    public synchronized void makeTheirMove(Move move) throws InvalidMoveException {
-        this.makeMove(move);
-        this.clientView.showMessage("Their move on board was: " + move);
-        this.clientView.showMessage("Your move: ");
-        this.state = ClientStates.WAITOURMOVE;
-        if (debug) {
-            this.clientView.showMessage("makeTheirMove(): " + this.state);
+    public void makeTheirMove(Move move) throws InvalidMoveException {
+        this.lock.lock();
+        try {
+            if (this.ponderer != null) {
+                this.ponderedMove = this.ponderer.stop(move);
+                if (debug) {
+                    this.clientView.showMessage("Pondered on their move: " +
+                        (this.ponderedMove != null) + " (" + this.ponderer.getHits() + " hits, " +
+                        this.ponderer.getMisses() + " misses)");
+                }
+            }
+            this.makeMove(move);
+            this.clientView.showMessage("Their move on board was: " + move);
+            this.clientView.showMessage("Your move: ");
+            this.state = ClientStates.WAITOURMOVE;
+            if (debug) {
+                this.clientView.showMessage("makeTheirMove(): " + this.state);
+            }
+            this.myTurn = true;
+        } finally {
+            this.lock.unlock();
         }
-        this.myTurn = true;
     }
 
     /**
@@ -550,7 +664,7 @@ public class Client implements ClientProtocol, NetworkEntity {
      * @throws InvalidMoveException
      * @requires {@link Move} should be valid
      */
-    private synchronized void makeMove(Move move) throws InvalidMoveException {
+    private void makeMove(Move move) throws InvalidMoveException {
         board.makeMove(move);
         this.clientView.showBoard(this.board);
     }
@@ -567,7 +681,7 @@ public class Client implements ClientProtocol, NetworkEntity {
      * @ensures the board will be null
      * @ensures the state to be changed to {@link ClientStates#GAMEOVER}
      */
-    private synchronized String handleGameOver(String[] arguments)
+    private String handleGameOver(String[] arguments)
         throws IllegalArgumentException, ProtocolException {
         String ret = "The game is over. \nReason: ";
         if (arguments.length != 3) {
@@ -598,6 +712,7 @@ public class Client implements ClientProtocol, NetworkEntity {
         }
 
 
+        this.stopPondering();
         this.board = null;
         this.state = ClientStates.GAMEOVER;
         if (debug) {
@@ -642,7 +757,7 @@ public class Client implements ClientProtocol, NetworkEntity {
         this.socketHandler = new SocketHandler(this, serverSocket, this.CLIENTDESCRIPTION);
         socketHandler.setDebug(this.debug);
 
-        new Thread(socketHandler).start();
+        ReaderThreads.start(socketHandler);
 
         clientView.showMessage("Connected to server!");
         this.chatEnabled = true;
@@ -743,6 +858,21 @@ public class Client implements ClientProtocol, NetworkEntity {
     }
 
     public void setAI(AITypes type) {
+        this.stopPondering();
+        this.ponderer = null; // The ponderer of the previous AI
+        if (this.ai != null) {
+            this.ai.shutDown();
+        }
         this.ai = type.getAIClass();
     }
+
+    /**
+     * @param pondering Whether the AI may think about its next move during the turn of the opponent.
+     */
+    public void setPondering(boolean pondering) {
+        this.ponderingEnabled = pondering;
+        if (!pondering) {
+            this.stopPondering();
+        }
+    }
 }
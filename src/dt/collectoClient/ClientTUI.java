@@ -10,6 +10,9 @@ import dt.util.SimpleTUI;
 import java.net.InetAddress;
 import java.net.ProtocolException;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Handles all interaction with the user
@@ -137,7 +140,14 @@ public class ClientTUI extends SimpleTUI implements ClientView {
                     this.client.setAI(this.getClientAI());
                     break;
                 case RANK:
-                    this.client.doGetRanking();
+                    if (arguments.length > 1) {
+                        List<String> query = new ArrayList<>(Arrays.asList(arguments));
+                        query.remove(0);
+                        query.set(0, query.get(0).toUpperCase());
+                        this.client.doGetRanking(query);
+                    } else {
+                        this.client.doGetRanking();
+                    }
                     break;
             }
         } catch (ArrayIndexOutOfBoundsException e) {
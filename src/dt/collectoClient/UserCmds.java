@@ -18,7 +18,8 @@ public enum UserCmds {
     EXIT(new String[] {"quit", "exit", "x"}, "Exit. This shuts down the client"),
     PLAYER(new String[] {"player", "playa", "ai"}, "Set the player type"),
     HELP(new String[] {"?", "h", "help"}, "Print a help menu"),
-    RANK(new String[] {"rank", "pikorde"}, "Request the server for a ranking");
+    RANK(new String[] {"rank", "pikorde"},
+        "Request the server for a ranking. Add 'top' count offset or 'player' name for a part");
 
 
     public static String separators = "[ ~+=|-]"; //Possible seperators. All and any can be used
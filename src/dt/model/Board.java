@@ -2,31 +2,78 @@ package dt.model;
 
 import dt.exceptions.InvalidMoveException;
 import dt.util.Move;
+import dt.util.MoveList;
 
 import java.util.*;
 
 /**
  * @author Emiel Rous and Wouter Koning
  * This class is the class that stores all the board data and houses all the logic for the game.
+ * The board is stored as a single row-major {@link byte[]} of {@link BallType} ordinals, on which all the game logic
+ * runs. The rows and columns as {@link Sequence} are only built when they are asked for.
  */
 public class Board {
     private static final int BOARDSIZE = 7;
+    private static final BallType[] BALLTYPES = BallType.values();
+    private static final byte EMPTY = (byte) BallType.EMPTY.ordinal();
+    private static final int JOURNALCAPACITY = 512;
+    private static final long ZOBRISTSEED = 0x436F6C6C6563746FL;
+    private static final long[] ZOBRISTKEYS = createZobristKeys();
 
     private final List<Sequence> rows;
     private final List<Sequence> columns;
     protected int boardSize;
-    private boolean singleMoveAvailable;
+    private final byte[] cells;
+    private final byte[] scratchCells;
+    private final byte[] firstMoveCells;
+    private final int[] possibleMoves;
+    private final int[] secondMoves;
+    private MoveList validMoves; // Created when a list of Move objects is first asked for
+    private boolean sequencesOutdated;
+    private int[] journal;
+    private int journalSize;
+    private long hash;
 
     public Board() {
-        this.boardSize = BOARDSIZE;
-        this.rows = new ArrayList<>();
-        this.columns = new ArrayList<>();
+        this(BOARDSIZE);
     }
 
+    /**
+     * Creates an empty board of a certain size.
+     *
+     * @param boardSize The amount of balls in a row or column.
+     * @requires boardSize * boardSize <= 64, since the yield of a board is kept in a single long.
+     */
     public Board(int boardSize) {
         this.boardSize = boardSize;
         this.rows = new ArrayList<>();
         this.columns = new ArrayList<>();
+        this.cells = new byte[boardSize * boardSize];
+        this.scratchCells = new byte[boardSize * boardSize];
+        this.firstMoveCells = new byte[boardSize * boardSize];
+        this.possibleMoves = new int[4 * boardSize];
+        this.secondMoves = new int[4 * boardSize];
+        this.sequencesOutdated = true;
+        this.journal = new int[JOURNALCAPACITY];
+        this.journalSize = 0;
+        this.hash = 0L;
+    }
+
+    /**
+     * Creates the random keys used for the Zobrist hash of the board, one for every {@link BallType} on every
+     * coordinate. The keys are created from a fixed seed, such that the hash of a board is the same in every run.
+     *
+     * @return The keys, indexed by coordinate * 8 + ordinal, where the key of an empty spot is 0.
+     */
+    private static long[] createZobristKeys() {
+        SplittableRandom random = new SplittableRandom(ZOBRISTSEED);
+        long[] keys = new long[64 * 8];
+        for (int coord = 0; coord < 64; coord++) {
+            for (int ball = 1; ball < BALLTYPES.length; ball++) {
+                keys[(coord << 3) | ball] = random.nextLong();
+            }
+        }
+        return keys;
     }
 
     /**
@@ -50,36 +97,57 @@ public class Board {
     }
 
     /**
-     * Fills the board given an integer array. It fills the board with rows and columns, which are both of
-     * the {@link Sequence} class.
+     * Fills the board given an integer array. The rows and columns, which are both of the {@link Sequence} class,
+     * are derived from this the next time they are requested.
      *
-     * @param newBoard
+     * @param newBoard The ordinals of the {@link BallType} values on the board, row by row.
      */
-    public void fillBoard(int[] newBoard) { //Parse van int[] to BallType[]
-        this.rows.clear();
-        this.columns.clear();
-        List<List<BallType>> columns = Arrays.asList(
-            new ArrayList<>(),
-            new ArrayList<>(),
-            new ArrayList<>(),
-            new ArrayList<>(),
-            new ArrayList<>(),
-            new ArrayList<>(),
-            new ArrayList<>()
-        );
+    public void fillBoard(int[] newBoard) {
+        for (int i = 0; i < this.cells.length; i++) {
+            this.cells[i] = (byte) newBoard[i];
+        }
+        this.sequencesOutdated = true;
+        this.journalSize = 0;
+        this.hash = computeHash();
+    }
 
-        for (int r = 0; r < this.boardSize; r++) {
-            List<BallType> balls = new ArrayList<>();
-            //Continuously creates Sequences and adds these until there are an amount equal to the board size.
-            for (int i = 0; i < this.boardSize; i++) {
-                balls.add(findBallType(newBoard[r * this.boardSize + i]));
-                columns.get(i).add(findBallType(newBoard[r * this.boardSize + i]));
-            }
-            this.rows.add(new Sequence(balls));
+    /**
+     * Returns the Zobrist hash of the balls on this board. Boards with the same balls on the same spots have the
+     * same hash, no matter which moves led to them. The hash is kept up to date on every shift and removal.
+     *
+     * @return The hash of the current board state.
+     */
+    public long getHash() {
+        return this.hash;
+    }
+
+    /**
+     * Calculates the Zobrist hash of the board from scratch.
+     *
+     * @return The hash of the current board state.
+     */
+    private long computeHash() {
+        long newHash = 0L;
+        for (int coord = 0; coord < this.cells.length; coord++) {
+            newHash ^= ZOBRISTKEYS[(coord << 3) | this.cells[coord]];
         }
-        for (List<BallType> balls : columns) {
-            this.columns.add(new Sequence(balls));
+        return newHash;
+    }
+
+    /**
+     * Calculates the part of the Zobrist hash that comes from the balls in the row or column of a move.
+     *
+     * @param move The move of which the row or column is used, conform the protocol.
+     * @return The keys of the balls in the line, combined.
+     */
+    private long lineHash(int move) {
+        int step = lineStep(move);
+        int cell = lineStart(move);
+        long lineHash = 0L;
+        for (int i = 0; i < this.boardSize; i++, cell += step) {
+            lineHash ^= ZOBRISTKEYS[(cell << 3) | this.cells[cell]];
         }
+        return lineHash;
     }
 
     /**
@@ -89,8 +157,7 @@ public class Board {
      * @return a {@link BallType} value corresponding to the parameter given.
      */
     private BallType findBallType(int ball) {
-        BallType[] allTypes = BallType.values();
-        return allTypes[ball];
+        return BALLTYPES[ball];
     }
 
     /**
@@ -119,6 +186,148 @@ public class Board {
         }
     }
 
+    /**
+     * Makes a move on this board in place and removes the yield, without checking whether the move is valid. The
+     * changes are written to a journal on this board, such that the move can be taken back by
+     * {@link Board#undo(long)}. This allows a search to walk a single board without copying it.
+     *
+     * @param move The {@link Move} to be made on the board.
+     * @return The undo record of the move, from which {@link Board#getYieldAmount(long)} gives the amount of
+     * balls the move yielded.
+     * @requires the parameter given to be a move that is possible given the current board.
+     * @requires the board to not have any balls lying next to the same ball, which holds after any previous move.
+     * @ensures undo(apply(move)) leaves the board exactly as it was.
+     */
+    public long apply(Move move) {
+        return apply(move, null);
+    }
+
+    /**
+     * Makes a move on this board in place like {@link Board#apply(Move)}, and adds the balls it yielded to an array
+     * of counts per {@link BallType}.
+     *
+     * @param move       The {@link Move} to be made on the board.
+     * @param ballCounts The amount of balls yielded per {@link BallType}, indexed by ordinal, which is added to.
+     *                   May be null if the counts are not needed.
+     * @return The undo record of the move.
+     * @requires the parameter given to be a move that is possible given the current board.
+     * @requires the board to not have any balls lying next to the same ball, which holds after any previous move.
+     * @ensures undo(apply(move, ballCounts)) leaves the board exactly as it was.
+     */
+    public long apply(Move move, int[] ballCounts) {
+        return apply(move.getCode(), ballCounts);
+    }
+
+    /**
+     * Makes an encoded move on this board in place like {@link Board#apply(Move)}, without needing a {@link Move}.
+     *
+     * @param code The code of the move to be made on the board, see {@link Move#getCode()}.
+     * @return The undo record of the move.
+     * @requires the parameter given to be the code of a move that is possible given the current board.
+     * @requires the board to not have any balls lying next to the same ball, which holds after any previous move.
+     * @ensures undo(apply(code)) leaves the board exactly as it was.
+     */
+    public long apply(int code) {
+        return apply(code, null);
+    }
+
+    /**
+     * Makes an encoded move on this board in place like {@link Board#apply(Move, int[])}.
+     *
+     * @param code       The code of the move to be made on the board, see {@link Move#getCode()}.
+     * @param ballCounts The amount of balls yielded per {@link BallType}, indexed by ordinal, which is added to.
+     *                   May be null if the counts are not needed.
+     * @return The undo record of the move.
+     * @requires the parameter given to be the code of a move that is possible given the current board.
+     * @requires the board to not have any balls lying next to the same ball, which holds after any previous move.
+     * @ensures undo(apply(code, ballCounts)) leaves the board exactly as it was.
+     */
+    public long apply(int code, int[] ballCounts) {
+        int journalStart = this.journalSize;
+        int move1 = Move.getMove1(code);
+        applyShift(move1);
+        long yieldMask;
+        if (Move.isDoubleMove(code)) {
+            int move2 = Move.getMove2(code);
+            applyShift(move2);
+            yieldMask = findYieldMask(this.cells, move1) | findYieldMask(this.cells, move2);
+        } else {
+            yieldMask = findYieldMask(this.cells, move1);
+        }
+
+        long remaining = yieldMask;
+        while (remaining != 0L) {
+            int coord = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            writeToJournal(coord);
+            if (ballCounts != null) {
+                ballCounts[this.cells[coord]]++;
+            }
+            this.hash ^= ZOBRISTKEYS[(coord << 3) | this.cells[coord]];
+            this.cells[coord] = EMPTY;
+        }
+        this.sequencesOutdated = true;
+
+        return ((long) Long.bitCount(yieldMask) << 32) | journalStart;
+    }
+
+    /**
+     * Takes back a move made by {@link Board#apply(Move)}, including the balls it yielded.
+     *
+     * @param undoRecord The undo record returned by {@link Board#apply(Move)}.
+     * @requires Every move applied after the move of the undo record has been undone already.
+     * @ensures The board is exactly as it was before the move of the undo record was applied.
+     */
+    public void undo(long undoRecord) {
+        int journalStart = (int) undoRecord;
+        while (this.journalSize > journalStart) {
+            int entry = this.journal[--this.journalSize];
+            int coord = entry >>> 3; // An entry is coord << 3 | ball, like the index of its key
+            this.hash ^= ZOBRISTKEYS[(coord << 3) | this.cells[coord]] ^ ZOBRISTKEYS[entry];
+            this.cells[coord] = (byte) (entry & 7);
+        }
+        this.sequencesOutdated = true;
+    }
+
+    /**
+     * Returns the amount of balls that a move made by {@link Board#apply(Move)} has yielded.
+     *
+     * @param undoRecord The undo record returned by {@link Board#apply(Move)}.
+     * @return The amount of balls removed from the board by the move.
+     */
+    public static int getYieldAmount(long undoRecord) {
+        return (int) (undoRecord >>> 32);
+    }
+
+    /**
+     * Shifts a row or column of this board, after writing the balls in that line to the journal.
+     *
+     * @param move The move to be executed, conform the protocol.
+     */
+    private void applyShift(int move) {
+        int line = move % this.boardSize;
+        boolean isRow = move < 2 * this.boardSize;
+        for (int i = 0; i < this.boardSize; i++) {
+            writeToJournal(isRow ? line * this.boardSize + i : i * this.boardSize + line);
+        }
+        this.hash ^= lineHash(move);
+        shiftLine(this.cells, move);
+        this.hash ^= lineHash(move);
+    }
+
+    /**
+     * Writes the current ball at a coordinate to the journal, such that it can be restored by
+     * {@link Board#undo(long)}.
+     *
+     * @param coord The coordinate of the ball that is about to change.
+     */
+    private void writeToJournal(int coord) {
+        if (this.journalSize == this.journal.length) {
+            this.journal = Arrays.copyOf(this.journal, this.journal.length * 2);
+        }
+        this.journal[this.journalSize++] = (coord << 3) | this.cells[coord];
+    }
+
     /**
      * Executes a move on the board that is provided in the parameter of the function
      *
@@ -126,45 +335,125 @@ public class Board {
      * @requires The parameter given to the method to be a move that is conform protocol (0 <= move <= 27)
      * @requires The parameter given to the method to be a move that is possible given the current board
      * @ensures oldboard != newboard.
-     * @ensures rows and columns are synchronized again after a move has been performed.
      */
     public void executeMove(int move) {
-        boolean changedColumn = false;
-
-        if (move < this.boardSize) { // < 7
-            rows.get(move).shiftLeftOrUp();
-        } else if (move < (2 * this.boardSize)) { //< 14
-            rows.get(move - this.boardSize).shiftRightOrdown();
-        } else if (move < (3 * this.boardSize)) { //<21
-            columns.get(move - (2 * this.boardSize)).shiftLeftOrUp();
-            changedColumn = true;
-        } else if (move < (4 * this.boardSize)) { //<28
-            columns.get(move - (3 * this.boardSize)).shiftRightOrdown();
-            changedColumn = true;
-        }
-
-        if (changedColumn) {
-            synchronize(this.columns, this.rows);
-        } else {
-            synchronize(this.rows, this.columns);
+        this.hash ^= lineHash(move);
+        shiftLine(this.cells, move);
+        this.hash ^= lineHash(move);
+        this.sequencesOutdated = true;
+    }
+
+    /**
+     * Shifts the row or column that a move points to, such that all the balls in it are moved as far as possible
+     * in the direction of the move. The order of the balls stays the same.
+     *
+     * @param board The row-major cells of a board on which the shift is to be made.
+     * @param move  The move to be executed, conform the protocol.
+     * @requires 0 <= move <= 27
+     * @ensures The same balls are still in the line, but all the empty spots are at the side opposite of the move.
+     */
+    private void shiftLine(byte[] board, int move) {
+        int step = lineStep(move);
+        int target = lineStart(move);
+        int cell = target;
+        for (int i = 0; i < this.boardSize; i++, cell += step) {
+            byte ball = board[cell];
+            if (ball != EMPTY) {
+                board[cell] = EMPTY;
+                board[target] = ball;
+                target += step;
+            }
         }
     }
 
     /**
-     * A method which synchronizes the rows and columns that this board holds.
+     * Returns the coordinate of the cell in the row or column of a move that the balls are shifted towards.
      *
-     * @param upToDateList The {@link List<Sequence>} that has been changed
+     * @param move The move, conform the protocol.
+     * @return The coordinate of the first cell of the line, seen from the direction of the move.
+     */
+    private int lineStart(int move) {
+        int line = move % this.boardSize;
+        if (move < this.boardSize) { // < 7, row to the left
+            return line * this.boardSize;
+        } else if (move < (2 * this.boardSize)) { //< 14, row to the right
+            return line * this.boardSize + this.boardSize - 1;
+        } else if (move < (3 * this.boardSize)) { //<21, column upwards
+            return line;
+        } else { //<28, column downwards
+            return (this.boardSize - 1) * this.boardSize + line;
+        }
+    }
+
+    /**
+     * Returns the distance between two cells in the row or column of a move, going away from
+     * {@link Board#lineStart(int)}.
+     *
+     * @param move The move, conform the protocol.
+     * @return The step from one cell of the line to the next, seen from the direction of the move.
+     */
+    private int lineStep(int move) {
+        if (move < this.boardSize) { // < 7, row to the left
+            return 1;
+        } else if (move < (2 * this.boardSize)) { //< 14, row to the right
+            return -1;
+        } else if (move < (3 * this.boardSize)) { //<21, column upwards
+            return this.boardSize;
+        } else { //<28, column downwards
+            return -this.boardSize;
+        }
+    }
+
+    /**
+     * A method which synchronizes the rows and columns that this board holds, after one of them has been changed
+     * from outside of this class.
+     *
+     * @param upToDateList The {@link List<Sequence>} that has been changed, which is either the rows or the columns.
      * @param outdatedList The {@link List<Sequence>} that has not been changed and thus needs changing
-     * @ensures rows and columns are synchronized again after a move has been performed.
+     * @ensures The board and both its rows and columns hold the balls of the upToDateList.
      */
     public void synchronize(List<Sequence> upToDateList, List<Sequence> outdatedList) {
+        boolean upToDateRows = upToDateList == this.rows;
         for (int r = 0; r < this.boardSize; r++) {
-            Sequence row = upToDateList.get(r);
+            List<BallType> balls = upToDateList.get(r).getBalls();
             for (int b = 0; b < this.boardSize; b++) {
-                BallType ball = row.getBalls().get(b);
-                outdatedList.get(b).getBalls().set(r, ball);
+                int coord = upToDateRows ? r * this.boardSize + b : b * this.boardSize + r;
+                this.cells[coord] = (byte) balls.get(b).ordinal();
             }
         }
+        this.hash = computeHash();
+        buildSequences();
+    }
+
+    /**
+     * Builds the rows and columns of this board as {@link Sequence} from the cells of the board, but only if they
+     * are not up to date anymore.
+     */
+    private void updateSequences() {
+        if (this.sequencesOutdated) {
+            buildSequences();
+        }
+    }
+
+    /**
+     * (Re)builds the rows and columns of this board as {@link Sequence} from the cells of the board.
+     *
+     * @ensures The rows and columns are synchronized with the board.
+     */
+    private void buildSequences() {
+        this.rows.clear();
+        this.columns.clear();
+        for (int r = 0; r < this.boardSize; r++) {
+            List<BallType> rowBalls = new ArrayList<>(this.boardSize);
+            List<BallType> columnBalls = new ArrayList<>(this.boardSize);
+            for (int b = 0; b < this.boardSize; b++) {
+                rowBalls.add(findBallType(this.cells[r * this.boardSize + b]));
+                columnBalls.add(findBallType(this.cells[b * this.boardSize + r]));
+            }
+            this.rows.add(new Sequence(rowBalls));
+            this.columns.add(new Sequence(columnBalls));
+        }
+        this.sequencesOutdated = false;
     }
 
     /**
@@ -211,11 +500,24 @@ public class Board {
      * @ensures The board is not changed.
      */
     public List<Move> findValidMoves() {
-        List<Move> validMoves = findValidSingleMoves();
-        if (validMoves.isEmpty()) {
-            validMoves = findValidDoubleMoves();
+        findValidMoves(getValidMoveBuffer());
+        return this.validMoves.toList();
+    }
+
+    /**
+     * Fills a list with the codes of all the valid moves, like {@link Board#findValidMoves()}, without creating
+     * any objects.
+     *
+     * @param moves The list to be filled, which is cleared first.
+     * @ensures The board is not changed.
+     */
+    public void findValidMoves(MoveList moves) {
+        moves.clear();
+        int amount = findPossibleMoves(this.cells, this.possibleMoves);
+        addValidSingleMoves(moves, this.possibleMoves, amount);
+        if (moves.isEmpty()) {
+            addValidDoubleMoves(moves, this.possibleMoves, amount);
         }
-        return validMoves;
     }
 
     /**
@@ -225,18 +527,11 @@ public class Board {
      * @ensures The board is not changed.
      */
     public List<Move> findValidDoubleMoves() {
-        List<Move> validDoubleMoves = new ArrayList<>();
-        List<Move> possibleMoves = this.findPossibleMoves();
-        for (Move move1 : possibleMoves) {
-            Board copyBoard = this.deepCopy();
-            copyBoard.executeMove(move1.getMove1());
-            List<Move> possibleSecondMoves = copyBoard.findValidSingleMoves();
-            for (Move move2 : possibleSecondMoves) {
-                validDoubleMoves.add(new Move(move1.getMove1(),
-                    move2.getMove1())); //All of these bois are goin' to work, hell yea
-            }
-        }
-        return validDoubleMoves;
+        MoveList moves = getValidMoveBuffer();
+        moves.clear();
+        int amount = findPossibleMoves(this.cells, this.possibleMoves);
+        addValidDoubleMoves(moves, this.possibleMoves, amount);
+        return moves.toList();
     }
 
     /**
@@ -246,19 +541,116 @@ public class Board {
      * @ensures The board is not changed.
      */
     public List<Move> findValidSingleMoves() {
-        List<Move> validMoves = new ArrayList<>();
-        List<Move> possibleMoves = this.findPossibleMoves();
-        for (Move move : possibleMoves) {
-            Board copyBoard = this.deepCopy();
-            copyBoard.executeMove(move.getMove1());               // Place move on the copyBoard
-            HashMap<BallType, Integer> yield = copyBoard.getYield();
-            if (!yield.values().isEmpty()) {
-                //throw a party and lets go to the casino because we've got a valid move on our hands bois
-                validMoves.add(move);
+        MoveList moves = getValidMoveBuffer();
+        moves.clear();
+        int amount = findPossibleMoves(this.cells, this.possibleMoves);
+        addValidSingleMoves(moves, this.possibleMoves, amount);
+        return moves.toList();
+    }
+
+    /**
+     * @return The list in which the valid moves are collected before they are turned into {@link Move} objects.
+     */
+    private MoveList getValidMoveBuffer() {
+        if (this.validMoves == null) {
+            this.validMoves = new MoveList();
+        }
+        return this.validMoves;
+    }
+
+    /**
+     * Adds the possible moves that yield balls to a list of valid moves.
+     *
+     * @param validMoves    The list the valid single moves are added to.
+     * @param possibleMoves The moves that are possible on the current board.
+     * @param amount        The amount of possible moves.
+     * @ensures The board is not changed.
+     */
+    private void addValidSingleMoves(MoveList validMoves, int[] possibleMoves, int amount) {
+        boolean stable = findYieldMask(this.cells) == 0L;
+        for (int i = 0; i < amount; i++) {
+            int move = possibleMoves[i];
+            if (stable ? shiftYields(this.cells, move) : yieldsAfterShift(this.cells, move)) {
+                validMoves.add(Move.encode(move));
             }
         }
+    }
 
-        return validMoves;
+    /**
+     * Adds all combinations of a possible move and a second move which yields balls after it to a list of valid
+     * moves. Only the board after the first move is made on a scratch copy of the cells, the second moves are
+     * judged from the contents of their lines.
+     *
+     * @param validMoves    The list the valid double moves are added to.
+     * @param possibleMoves The moves that are possible on the current board.
+     * @param amount        The amount of possible moves.
+     * @ensures The board is not changed.
+     */
+    private void addValidDoubleMoves(MoveList validMoves, int[] possibleMoves, int amount) {
+        for (int i = 0; i < amount; i++) {
+            int move1 = possibleMoves[i];
+            System.arraycopy(this.cells, 0, this.firstMoveCells, 0, this.cells.length);
+            shiftLine(this.firstMoveCells, move1);
+            boolean stable = findYieldMask(this.firstMoveCells) == 0L;
+            int secondAmount = findPossibleMoves(this.firstMoveCells, this.secondMoves);
+            for (int j = 0; j < secondAmount; j++) {
+                int move2 = this.secondMoves[j];
+                if (stable ? shiftYields(this.firstMoveCells, move2)
+                    : yieldsAfterShift(this.firstMoveCells, move2)) {
+                    validMoves.add(Move.encode(move1, move2));
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds out whether making a shift on the given cells would result in any balls lying next to each other,
+     * without making the shift. It walks the line in the direction of the move and compares every ball with the
+     * ball that would end up before it, and with the neighbours in the crossing lines of the spot it would end up.
+     *
+     * @param board The row-major cells of a board.
+     * @param move  The move to be tried, conform the protocol.
+     * @return Whether the shift yields any balls.
+     * @requires No balls lie next to the same ball on the given cells.
+     * @ensures The board is not changed.
+     */
+    private boolean shiftYields(byte[] board, int move) {
+        int line = move % this.boardSize;
+        int cross = move < 2 * this.boardSize ? this.boardSize : 1; // Towards the crossing lines
+        int step = lineStep(move);
+        int target = lineStart(move);
+        int cell = target;
+        byte previous = EMPTY;
+
+        for (int i = 0; i < this.boardSize; i++, cell += step) {
+            byte ball = board[cell];
+            if (ball != EMPTY) {
+                if (ball == previous ||
+                    (line > 0 && board[target - cross] == ball) ||
+                    (line < this.boardSize - 1 && board[target + cross] == ball)) {
+                    return true;
+                }
+                previous = ball;
+                target += step;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds out whether making a shift on the given cells would result in any balls lying next to each other, by
+     * making the shift on a scratch copy of the cells and looking at the whole board. This is only needed when
+     * balls were already lying next to each other before the shift.
+     *
+     * @param board The row-major cells of a board.
+     * @param move  The move to be tried, conform the protocol.
+     * @return Whether any balls lie next to each other after the shift.
+     * @ensures The board is not changed.
+     */
+    private boolean yieldsAfterShift(byte[] board, int move) {
+        System.arraycopy(board, 0, this.scratchCells, 0, board.length);
+        shiftLine(this.scratchCells, move);
+        return findYieldMask(this.scratchCells) != 0L;
     }
 
     /**
@@ -269,53 +661,92 @@ public class Board {
      * @ensures The board is not changed.
      */
     public List<Move> findPossibleMoves() {
-        List<Move> possibleMoves = new ArrayList<>();
-
-        for (int rowIndex = 0; rowIndex < this.boardSize; rowIndex++) {
-            Sequence row = this.rows.get(rowIndex);
-            List<BallType> balls;
+        int amount = findPossibleMoves(this.cells, this.possibleMoves);
+        List<Move> possibleMoves = new ArrayList<>(amount);
+        for (int i = 0; i < amount; i++) {
+            possibleMoves.add(Move.decode(Move.encode(this.possibleMoves[i])));
+        }
+        return possibleMoves;
+    }
 
-            for (int ballIndex = 0; ballIndex < (balls = row.getBalls()).size(); ballIndex++) {
-                BallType ball = balls.get(ballIndex);
+    /**
+     * Finds the moves that are possible to do on the given cells, which are the shifts where at least one ball
+     * has an empty spot in front of it. The moves are in the order in which the balls that make them possible
+     * are found, going through the board row by row.
+     *
+     * @param board         The row-major cells of a board.
+     * @param possibleMoves The array the moves that are possible on the given cells, conform the protocol, are
+     *                      written to.
+     * @return The amount of possible moves.
+     * @requires possibleMoves.length >= 4 * boardSize
+     * @ensures The board is not changed.
+     */
+    private int findPossibleMoves(byte[] board, int[] possibleMoves) {
+        int amount = 0;
 
-                List<BallType> rowBalls = row.getBalls();
+        for (int rowIndex = 0; rowIndex < this.boardSize; rowIndex++) {
+            for (int ballIndex = 0; ballIndex < this.boardSize; ballIndex++) {
+                int coord = rowIndex * this.boardSize + ballIndex;
 
                 //If the sequence before or after the ball contains an empty ball, add it to the moves
-                if (ball != BallType.EMPTY) {
-
-                    Move move = new Move(this.boardSize + rowIndex);
-                    //Check the rows and columns for an empty square
+                if (board[coord] != EMPTY) {
                     //Check from ballindex to right of board -> left to right possible
-                    if (rowBalls.subList(ballIndex, this.boardSize).contains(BallType.EMPTY) &&
-                        !possibleMoves.contains(move)) {
-                        possibleMoves.add(move);
+                    if (hasEmpty(board, coord + 1, 1, this.boardSize - ballIndex - 1)) {
+                        amount = addMove(possibleMoves, amount, this.boardSize + rowIndex);
                     }
                     //Check from left to ballindex -> right to left possible
-                    move = new Move(rowIndex);
-                    if (rowBalls.subList(0, ballIndex).contains(BallType.EMPTY) &&
-                        !possibleMoves.contains(move)) {
-                        possibleMoves.add(move);
+                    if (hasEmpty(board, coord - ballIndex, 1, ballIndex)) {
+                        amount = addMove(possibleMoves, amount, rowIndex);
                     }
-
                     //Check row index to bottom -> top to bottom possible
-                    move = new Move(this.boardSize * 3 + ballIndex);
-                    if (this.columns.get(ballIndex).getBalls().subList(rowIndex, this.boardSize)
-                        .contains(BallType.EMPTY) &&
-                        !possibleMoves.contains(move)) {
-                        possibleMoves.add(move);
+                    if (hasEmpty(board, coord + this.boardSize, this.boardSize,
+                        this.boardSize - rowIndex - 1)) {
+                        amount = addMove(possibleMoves, amount, 3 * this.boardSize + ballIndex);
                     }
                     //Check top to rowindex -> bottom to top possible
-                    move = new Move(2 * this.boardSize + ballIndex);
-                    if (this.columns.get(ballIndex).getBalls().subList(0, rowIndex)
-                        .contains(BallType.EMPTY) &&
-                        !possibleMoves.contains(move)) {
-                        possibleMoves.add(move);
+                    if (hasEmpty(board, ballIndex, this.boardSize, rowIndex)) {
+                        amount = addMove(possibleMoves, amount, 2 * this.boardSize + ballIndex);
                     }
                 }
+            }
+        }
+        return amount;
+    }
 
+    /**
+     * Adds a move to an array of moves, unless the array already contains it.
+     *
+     * @param moves  The array of moves found so far.
+     * @param amount The amount of moves in the array.
+     * @param move   The move to be added.
+     * @return The amount of moves in the array after adding the move.
+     */
+    private int addMove(int[] moves, int amount, int move) {
+        for (int i = 0; i < amount; i++) {
+            if (moves[i] == move) {
+                return amount;
             }
         }
-        return possibleMoves;
+        moves[amount] = move;
+        return amount + 1;
+    }
+
+    /**
+     * Finds out whether there is an empty spot in part of a row or a column.
+     *
+     * @param board  The row-major cells of a board.
+     * @param start  The first cell to look at.
+     * @param step   The distance between two cells, 1 for a row and the board size for a column.
+     * @param length The amount of cells to look at.
+     * @return Whether any of the cells is empty.
+     */
+    private boolean hasEmpty(byte[] board, int start, int step, int length) {
+        for (int i = 0, cell = start; i < length; i++, cell += step) {
+            if (board[cell] == EMPTY) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -326,42 +757,76 @@ public class Board {
      * @ensures oldBoard != newboard.
      */
     public HashMap<BallType, Integer> getYield() {
+        int[] ballCounts = getYieldCounts();
+
         HashMap<BallType, Integer> ballScore = new HashMap<>();
-        List<List<Sequence>> rowsAndColumns = new ArrayList<>();
-        rowsAndColumns.add(this.rows);
-        rowsAndColumns.add(this.columns);
-        HashMap<Integer, BallType> toBeRemovedBalls = new HashMap<>();
-
-        for (List<Sequence> sequenceList : rowsAndColumns) { //rows and columns
-            for (int seq = 0; seq < sequenceList.size(); seq++) { //sequences in the row/column
-                for (int element = 0; element < this.boardSize;
-                     element++) {  //elements in the sequence
-                    int sameBallsInARow = sameBallsInSequence(sequenceList.get(seq), element, 1);
-                    if (sameBallsInARow > 1) { //Houston, we got a score.
-
-                        BallType thisBall = sequenceList.get(seq).getBalls().get(element);
-
-                        //Store the coordinates of those feckers so they can be removed later
-                        for (int offset = 0; offset < sameBallsInARow; offset++) {
-                            toBeRemovedBalls.putIfAbsent(
-                                calculateBallCoordinates(sequenceList, seq, element + offset),
-                                thisBall);
-                        }
-                        element += sameBallsInARow - 1; //Update the value of the iterator
-                    }
-                }
+        for (int ball = 0; ball < ballCounts.length; ball++) {
+            if (ballCounts[ball] > 0) {
+                ballScore.put(findBallType(ball), ballCounts[ball]);
             }
         }
-        for (BallType b : toBeRemovedBalls.values()) {
-            if (ballScore.containsKey(b)) {
-                ballScore.put(b, ballScore.get(b) + 1);
-            } else {
-                ballScore.put(b, 1);
-            }
+        return ballScore;
+    }
+
+    /**
+     * Go over all rows and columns and find the type and amount of balls that lie next to each other and then
+     * remove those from the board.
+     *
+     * @return The amount of balls yielded per {@link BallType}, indexed by {@link BallType#ordinal()}.
+     * @ensures oldBoard != newboard.
+     */
+    public int[] getYieldCounts() {
+        int[] ballCounts = new int[BALLTYPES.length];
+        removeYield(findYieldMask(this.cells), ballCounts);
+        return ballCounts;
+    }
+
+    /**
+     * Finds the balls that lie next to each other after a move has been executed and then removes those from the
+     * board. Only the rows and columns the move has shifted, and the lines crossing them, are looked at, since
+     * those are the only places where balls can have been moved next to each other.
+     *
+     * @param move The {@link Move} that has just been executed on the board.
+     * @return The amount of balls yielded per {@link BallType}, indexed by {@link BallType#ordinal()}.
+     * @requires No balls were lying next to the same ball before the move was executed.
+     * @ensures oldBoard != newboard.
+     */
+    public int[] getYieldCounts(Move move) {
+        long yieldMask = findYieldMask(this.cells, move.getMove1());
+        if (move.isDoubleMove()) {
+            yieldMask |= findYieldMask(this.cells, move.getMove2());
         }
-        removeYield(new HashSet<>(toBeRemovedBalls.keySet()));
+        int[] ballCounts = new int[BALLTYPES.length];
+        removeYield(yieldMask, ballCounts);
+        return ballCounts;
+    }
 
-        return ballScore;
+    /**
+     * Finds all the balls which lie next to a ball of the same {@link BallType}, either in a row or in a column.
+     *
+     * @param board The row-major cells of a board.
+     * @return A bitmask in which bit i is set if the ball at coordinate i is part of the yield.
+     * @ensures The board is not changed.
+     */
+    private long findYieldMask(byte[] board) {
+        long yieldMask = 0L;
+        for (int r = 0; r < this.boardSize; r++) {
+            for (int c = 0; c < this.boardSize; c++) {
+                int coord = r * this.boardSize + c;
+                byte ball = board[coord];
+                if (ball != EMPTY) {
+                    //Same ball to the right
+                    if (c < this.boardSize - 1 && board[coord + 1] == ball) {
+                        yieldMask |= (1L << coord) | (1L << (coord + 1));
+                    }
+                    //Same ball below
+                    if (r < this.boardSize - 1 && board[coord + this.boardSize] == ball) {
+                        yieldMask |= (1L << coord) | (1L << (coord + this.boardSize));
+                    }
+                }
+            }
+        }
+        return yieldMask;
     }
 
     /**
@@ -382,18 +847,56 @@ public class Board {
     }
 
     /**
-     * Removes the yield that is calculated by {@link Board#getYield()}.
+     * Finds the balls in the row or column of a move which lie next to a ball of the same {@link BallType}, either
+     * in that line or in one of the lines crossing it.
      *
-     * @param toBeRemovedBalls A HashSet containing the coordinates of the balls to be removed from the board,
-     *                         calculated by the {@link Board#calculateBallCoordinates(List, int, int)} method.
+     * @param board The row-major cells of a board.
+     * @param move  The move of which the row or column is to be looked at, conform the protocol.
+     * @return A bitmask in which bit i is set if the ball at coordinate i is part of the yield.
+     * @ensures The board is not changed.
      */
-    private void removeYield(HashSet<Integer> toBeRemovedBalls) {
-        for (int coord : toBeRemovedBalls) {
-            //for the rows
-            int yCoord = coord / 7;
-            int xCoord = coord % 7;
-            this.rows.get(yCoord).getBalls().set(xCoord, BallType.EMPTY);
-            this.columns.get(xCoord).getBalls().set(yCoord, BallType.EMPTY);
+    private long findYieldMask(byte[] board, int move) {
+        int line = move % this.boardSize;
+        boolean isRow = move < 2 * this.boardSize;
+        int step = isRow ? 1 : this.boardSize;       // Towards the next cell in the line
+        int cross = isRow ? this.boardSize : 1;      // Towards the next cell in the crossing line
+        int coord = isRow ? line * this.boardSize : line;
+
+        long yieldMask = 0L;
+        for (int i = 0; i < this.boardSize; i++, coord += step) {
+            byte ball = board[coord];
+            if (ball != EMPTY) {
+                if (i < this.boardSize - 1 && board[coord + step] == ball) {
+                    yieldMask |= (1L << coord) | (1L << (coord + step));
+                }
+                if (line > 0 && board[coord - cross] == ball) {
+                    yieldMask |= (1L << coord) | (1L << (coord - cross));
+                }
+                if (line < this.boardSize - 1 && board[coord + cross] == ball) {
+                    yieldMask |= (1L << coord) | (1L << (coord + cross));
+                }
+            }
+        }
+        return yieldMask;
+    }
+
+    /**
+     * Removes the yield that is calculated by {@link Board#findYieldMask(byte[])} from the board.
+     *
+     * @param yieldMask  A bitmask in which bit i is set if the ball at coordinate i is to be removed.
+     * @param ballCounts The amount of balls removed per {@link BallType}, indexed by ordinal, which is added to.
+     */
+    private void removeYield(long yieldMask, int[] ballCounts) {
+        long remaining = yieldMask;
+        while (remaining != 0L) {
+            int coord = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            ballCounts[this.cells[coord]]++;
+            this.hash ^= ZOBRISTKEYS[(coord << 3) | this.cells[coord]];
+            this.cells[coord] = EMPTY;
+        }
+        if (yieldMask != 0L) {
+            this.sequencesOutdated = true;
         }
     }
 
@@ -434,13 +937,9 @@ public class Board {
      * @return An {@link int[]} which contains the board state.
      */
     public int[] getBoardState() {
-        int[] boardState = new int[this.boardSize * this.boardSize];
-        for (int r = 0; r < this.rows.size(); r++) {
-            Sequence row = this.rows.get(r);
-            List<BallType> balls;
-            for (int b = 0; b < (balls = row.getBalls()).size(); b++) {
-                boardState[r * this.boardSize + b] = balls.get(b).ordinal();
-            }
+        int[] boardState = new int[this.cells.length];
+        for (int i = 0; i < this.cells.length; i++) {
+            boardState[i] = this.cells[i];
         }
         return boardState;
     }
@@ -487,6 +986,19 @@ public class Board {
         return gameOver;
     }
 
+    /**
+     * @return The amount of balls that are still on the board.
+     */
+    public int getBallAmount() {
+        int balls = 0;
+        for (byte ball : this.cells) {
+            if (ball != EMPTY) {
+                balls++;
+            }
+        }
+        return balls;
+    }
+
     /**
      * Creates a deep copy of the current board and returns this.
      *
@@ -494,7 +1006,8 @@ public class Board {
      */
     public Board deepCopy() {
         Board copyBoard = new Board(this.boardSize);
-        copyBoard.fillBoard(getBoardState());
+        System.arraycopy(this.cells, 0, copyBoard.cells, 0, this.cells.length);
+        copyBoard.hash = this.hash;
         return copyBoard;
     }
 
@@ -509,6 +1022,7 @@ public class Board {
      * @return Returns the columns of the board.
      */
     public List<Sequence> getColumns() {
+        updateSequences();
         return this.columns;
     }
 
@@ -518,6 +1032,7 @@ public class Board {
      * @return Returns the rows of the board.
      */
     public List<Sequence> getRows() {
+        updateSequences();
         return this.rows;
     }
 }
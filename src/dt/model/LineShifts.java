@@ -0,0 +1,102 @@
+package dt.model;
+
+import java.util.List;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * Shifts rows and columns that are packed in a single long, with {@link LineShifts#BITS} bits per ball holding the
+ * {@link BallType} ordinal, and the first ball of the line in the lowest bits.
+ * <p>
+ * A line is shifted with a table that holds, for every possible chunk of {@link LineShifts#CHUNK} balls, the balls
+ * of the chunk moved to its start and the amount of balls in it. Every chunk of the line is looked up once and the
+ * results are put after each other, so a row or column of 7 balls is shifted with two lookups and no branches on
+ * the contents of the line.
+ */
+public final class LineShifts {
+    public static final int BITS = 3;
+    public static final int MAXLENGTH = Long.SIZE / BITS;
+
+    private static final int CHUNK = 4;
+    private static final int CHUNKBITS = CHUNK * BITS;
+    private static final int CHUNKMASK = (1 << CHUNKBITS) - 1;
+    private static final int BALLMASK = (1 << BITS) - 1;
+    private static final BallType[] BALLTYPES = BallType.values();
+    private static final int[] SHIFTEDCHUNKS = createShiftedChunks();
+
+    private LineShifts() {
+    }
+
+    /**
+     * Creates the table of shifted chunks.
+     *
+     * @return For every packed chunk of balls, the chunk with its balls shifted to the start in the lowest
+     * {@link LineShifts#CHUNKBITS} bits and the amount of balls in it above those.
+     */
+    private static int[] createShiftedChunks() {
+        int[] shiftedChunks = new int[1 << CHUNKBITS];
+        for (int chunk = 0; chunk < shiftedChunks.length; chunk++) {
+            int shifted = 0;
+            int balls = 0;
+            for (int i = 0; i < CHUNK; i++) {
+                int ball = (chunk >>> (i * BITS)) & BALLMASK;
+                if (ball != BallType.EMPTY.ordinal()) {
+                    shifted |= ball << (balls * BITS);
+                    balls++;
+                }
+            }
+            shiftedChunks[chunk] = shifted | (balls << CHUNKBITS);
+        }
+        return shiftedChunks;
+    }
+
+    /**
+     * Moves all the balls of a packed line as far as possible towards its start, keeping their order.
+     *
+     * @param line The packed line.
+     * @return The packed line after the shift, in which all the empty spots are at the end.
+     */
+    public static long shiftTowardsStart(long line) {
+        long shifted = 0L;
+        int offset = 0;
+        for (long rest = line; rest != 0L; rest >>>= CHUNKBITS) {
+            int entry = SHIFTEDCHUNKS[(int) rest & CHUNKMASK];
+            shifted |= (long) (entry & CHUNKMASK) << offset;
+            offset += (entry >>> CHUNKBITS) * BITS;
+        }
+        return shifted;
+    }
+
+    /**
+     * Packs a list of balls into a long.
+     *
+     * @param balls    The balls of the line.
+     * @param reversed Whether the last ball of the list is the first ball of the packed line.
+     * @return The packed line.
+     * @requires balls.size() <= MAXLENGTH
+     */
+    public static long pack(List<BallType> balls, boolean reversed) {
+        int size = balls.size();
+        long line = 0L;
+        for (int i = 0; i < size; i++) {
+            long ball = balls.get(reversed ? size - 1 - i : i).ordinal();
+            line |= ball << (i * BITS);
+        }
+        return line;
+    }
+
+    /**
+     * Writes a packed line back into a list of balls.
+     *
+     * @param line     The packed line.
+     * @param balls    The list the balls are written to, which keeps its size.
+     * @param reversed Whether the first ball of the packed line is the last ball of the list.
+     * @requires balls.size() <= MAXLENGTH
+     */
+    public static void unpack(long line, List<BallType> balls, boolean reversed) {
+        int size = balls.size();
+        for (int i = 0; i < size; i++) {
+            BallType ball = BALLTYPES[(int) (line >>> (i * BITS)) & BALLMASK];
+            balls.set(reversed ? size - 1 - i : i, ball);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package dt.peer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * A pool of direct {@link ByteBuffer}s of the same size, such that the buffers used to read from and write to the
+ * channels do not have to be allocated again for every read and write. It can be used by multiple threads.
+ *
+ * @author Emiel Rous and Wouter Koning
+ */
+public class ByteBufferPool {
+    private final ArrayDeque<ByteBuffer> buffers;
+    private final int bufferSize;
+    private final int maxPooled;
+
+    /**
+     * Creates an empty pool.
+     *
+     * @param bufferSize The capacity of every buffer in the pool.
+     * @param maxPooled  The largest amount of unused buffers that is kept in the pool.
+     * @requires bufferSize > 0 && maxPooled >= 0
+     */
+    public ByteBufferPool(int bufferSize, int maxPooled) {
+        this.buffers = new ArrayDeque<>();
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * @return The capacity of the buffers in the pool.
+     */
+    public int getBufferSize() {
+        return this.bufferSize;
+    }
+
+    /**
+     * Takes a buffer out of the pool, or allocates a new one if the pool is empty.
+     *
+     * @return A cleared buffer with the capacity of the pool.
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer;
+        synchronized (this.buffers) {
+            buffer = this.buffers.pollLast();
+        }
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(this.bufferSize);
+    }
+
+    /**
+     * Gives a buffer back to the pool. Buffers that were not acquired from the pool are ignored.
+     *
+     * @param buffer The buffer that is not used anymore.
+     * @requires the buffer to not be used after it was released
+     */
+    public void release(ByteBuffer buffer) {
+        if (!buffer.isDirect() || buffer.capacity() != this.bufferSize) {
+            return;
+        }
+        buffer.clear();
+        synchronized (this.buffers) {
+            if (this.buffers.size() < this.maxPooled) {
+                this.buffers.addLast(buffer);
+            }
+        }
+    }
+}
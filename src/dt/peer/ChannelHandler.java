@@ -0,0 +1,326 @@
+package dt.peer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A handler of a non-blocking socket channel that is served by a {@link SelectorLoop}. Sends and receives the same
+ * lines as a {@link SocketHandler}: the received bytes are split into messages on line endings, and every message
+ * is handed to the {@link NetworkEntity} on a worker thread. The messages of one connection are handled one after
+ * the other, in the order in which they were received.
+ * <p>
+ * A line is written from a pooled buffer right away if the channel can take it. The bytes that do not fit are added
+ * to a backlog on the heap, one growing buffer per connection that holds all the waiting lines and is let go of once
+ * it is written, such that a slow peer only takes the memory its waiting bytes need. A peer that lets more than
+ * {@link ChannelHandler#MAXBACKLOG} bytes pile up is disconnected.
+ *
+ * @author Emiel Rous and Wouter Koning
+ */
+public class ChannelHandler implements Connection {
+    private static final Charset CHARSET = Charset.defaultCharset(); // Like a SocketHandler
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes(CHARSET);
+    private static final int MAXLINELENGTH = 1 << 20; // Longer lines close the connection
+    private static final int MAXTASKSPERRUN = 64; // Lets the workers take turns on busy connections
+    private static final int MAXBACKLOG = 1 << 16; // Bytes that may wait to be written
+    private static final int INITIALBACKLOG = 512; // Bytes, most lines are a few dozen bytes long
+
+    private final NetworkEntity networkEntity;
+    private final SocketChannel channel;
+    private final SelectorLoop loop;
+    private final ByteBufferPool bufferPool;
+    private final Object outboundLock;
+    private final ConcurrentLinkedQueue<Runnable> inbound;
+    private final AtomicBoolean scheduled;
+    private final AtomicBoolean peerShutdownHandled;
+    private ByteBuffer backlog; // The bytes that wait to be written, or null if none
+    private SelectionKey key;
+    private byte[] line;
+    private int lineLength;
+    private boolean lastWasCarriageReturn;
+    private String name;
+    private boolean debug = false;
+    private volatile boolean shutDown = false;
+
+    public ChannelHandler(NetworkEntity networkEntity, SocketChannel channel, SelectorLoop loop,
+                          String name) {
+        this.networkEntity = networkEntity;
+        this.channel = channel;
+        this.loop = loop;
+        this.bufferPool = loop.getBufferPool();
+        this.outboundLock = new Object();
+        this.inbound = new ConcurrentLinkedQueue<>();
+        this.scheduled = new AtomicBoolean(false);
+        this.peerShutdownHandled = new AtomicBoolean(false);
+        this.line = new byte[128];
+        this.name = name;
+        loop.register(this);
+    }
+
+    /**
+     * Reads the bytes that the channel has received, and hands every complete line to the {@link NetworkEntity}.
+     * Only called by the thread of the {@link SelectorLoop}.
+     *
+     * @ensures A shutdown from either side results in a neat shutdown of the {@link NetworkEntity}
+     */
+    void read() {
+        ByteBuffer buffer = this.bufferPool.acquire();
+        try {
+            int read = this.channel.read(buffer);
+            if (read < 0) {
+                this.closed();
+                return;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte next = buffer.get();
+                if (next == '\n' && this.lastWasCarriageReturn) {
+                    this.lastWasCarriageReturn = false; // The second half of a \r\n line ending
+                } else if (next == '\n' || next == '\r') {
+                    this.lastWasCarriageReturn = next == '\r';
+                    this.dispatchLine(new String(this.line, 0, this.lineLength, CHARSET));
+                    this.lineLength = 0;
+                } else {
+                    this.lastWasCarriageReturn = false;
+                    this.appendToLine(next);
+                }
+            }
+        } catch (IOException e) {
+            this.closed();
+        } finally {
+            this.bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Adds a byte to the line that is being received.
+     *
+     * @param next The received byte.
+     * @throws IOException If the line is longer than any message of the protocol should be.
+     */
+    private void appendToLine(byte next) throws IOException {
+        if (this.lineLength == this.line.length) {
+            if (this.line.length >= MAXLINELENGTH) {
+                throw new IOException("Line too long");
+            }
+            this.line = Arrays.copyOf(this.line, this.line.length * 2);
+        }
+        this.line[this.lineLength++] = next;
+    }
+
+    /**
+     * Hands a received message to the {@link NetworkEntity} on a worker thread.
+     *
+     * @param msg The received message, without its line ending.
+     */
+    private void dispatchLine(String msg) {
+        this.dispatch(() -> {
+            if (this.debug) {
+                System.out.println("[IN]:" + msg);
+            }
+            this.networkEntity.handleMessage(msg);
+        });
+    }
+
+    /**
+     * Lets the {@link NetworkEntity} know, once, that the connection is closed, after it has handled all the
+     * messages that were received before.
+     */
+    void closed() {
+        if (this.key != null) {
+            this.key.cancel();
+        }
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (this.peerShutdownHandled.compareAndSet(false, true)) {
+            this.dispatch(() -> this.networkEntity.handlePeerShutdown(this.shutDown));
+        }
+    }
+
+    /**
+     * Adds a task to the tasks of this connection, and makes sure a worker thread will run it.
+     *
+     * @param task The task to be run.
+     */
+    private void dispatch(Runnable task) {
+        this.inbound.add(task);
+        if (this.scheduled.compareAndSet(false, true)) {
+            this.loop.getWorkers().execute(this::runTasks);
+        }
+    }
+
+    /**
+     * Runs the tasks of this connection on a worker thread. After a number of tasks the worker is given back to the
+     * pool, such that one busy connection can not keep the workers from the other connections.
+     */
+    private void runTasks() {
+        for (int i = 0; i < MAXTASKSPERRUN; i++) {
+            Runnable task = this.inbound.poll();
+            if (task == null) {
+                break;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        this.scheduled.set(false);
+        if (!this.inbound.isEmpty() && this.scheduled.compareAndSet(false, true)) {
+            this.loop.getWorkers().execute(this::runTasks);
+        }
+    }
+
+    /**
+     * Write a line to the channel. The line is written right away if the channel can take it, otherwise it is added
+     * to the backlog, which is written by the {@link SelectorLoop} once the channel is ready.
+     *
+     * @ensures A shutdown from either side results in a neat shutdown of the {@link NetworkEntity}
+     * @ensures A peer that has too many bytes waiting to be written is disconnected
+     */
+    @Override
+    public void write(String msg) {
+        if (this.shutDown || !this.channel.isOpen()) {
+            return;
+        }
+        if (this.debug) {
+            System.out.println("[OUT]:" + msg);
+        }
+        ByteBuffer buffer = this.encode(msg);
+        synchronized (this.outboundLock) {
+            try {
+                if (this.backlog == null) {
+                    this.channel.write(buffer);
+                    if (buffer.hasRemaining()) {
+                        this.backlog =
+                            ByteBuffer.allocate(Math.max(INITIALBACKLOG, buffer.remaining()));
+                        this.backlog.put(buffer);
+                        this.loop.execute(() -> this.setWriteInterest(true));
+                    }
+                } else if (this.backlog.position() + buffer.remaining() > MAXBACKLOG) {
+                    this.loop.execute(this::closed);
+                } else {
+                    this.ensureBacklogCapacity(buffer.remaining());
+                    this.backlog.put(buffer);
+                }
+            } catch (IOException e) {
+                this.loop.execute(this::closed);
+            } finally {
+                this.bufferPool.release(buffer);
+            }
+        }
+    }
+
+    /**
+     * Makes the backlog large enough to take more bytes, by doubling its capacity up to the largest backlog.
+     *
+     * @param length The amount of bytes to be added.
+     * @requires backlog != null && backlog.position() + length <= MAXBACKLOG
+     */
+    private void ensureBacklogCapacity(int length) {
+        if (this.backlog.remaining() < length) {
+            int capacity = Math.min(MAXBACKLOG,
+                Math.max(this.backlog.capacity() * 2, this.backlog.position() + length));
+            ByteBuffer larger = ByteBuffer.allocate(capacity);
+            this.backlog.flip();
+            larger.put(this.backlog);
+            this.backlog = larger;
+        }
+    }
+
+    /**
+     * Writes the backlog of lines that could not be written right away. Only called by the thread of the
+     * {@link SelectorLoop}.
+     */
+    void flush() {
+        synchronized (this.outboundLock) {
+            try {
+                if (this.backlog != null) {
+                    this.backlog.flip();
+                    this.channel.write(this.backlog);
+                    if (this.backlog.hasRemaining()) {
+                        this.backlog.compact();
+                        return; // The channel is full, the selector will tell when it can take more
+                    }
+                    this.backlog = null; // An idle connection keeps no memory for its backlog
+                }
+                this.setWriteInterest(false);
+            } catch (IOException e) {
+                this.backlog = null;
+                this.closed();
+            }
+        }
+    }
+
+    /**
+     * Encodes a line, followed by a line ending, in a buffer from the pool if it fits.
+     *
+     * @param msg The line to be encoded.
+     * @return A buffer that is ready to be written.
+     */
+    private ByteBuffer encode(String msg) {
+        byte[] bytes = msg.getBytes(CHARSET);
+        int length = bytes.length + NEWLINE.length;
+        ByteBuffer buffer = length <= this.bufferPool.getBufferSize() ?
+            this.bufferPool.acquire() : ByteBuffer.allocate(length);
+        buffer.put(bytes).put(NEWLINE).flip();
+        return buffer;
+    }
+
+    /**
+     * Sets whether the selector should tell when the channel can be written to. Only called by the thread of the
+     * {@link SelectorLoop}.
+     *
+     * @param interested Whether there are lines waiting to be written.
+     */
+    private void setWriteInterest(boolean interested) {
+        if (this.key != null && this.key.isValid()) {
+            this.key.interestOps(interested ?
+                SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * @param key The key with which the channel is registered at the selector.
+     */
+    void setKey(SelectionKey key) {
+        this.key = key;
+        synchronized (this.outboundLock) {
+            this.setWriteInterest(this.backlog != null);
+        }
+    }
+
+    /**
+     * @return The channel of this connection.
+     */
+    SocketChannel getChannel() {
+        return this.channel;
+    }
+
+    @Override
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Neatly handles a shutdown
+     */
+    @Override
+    public void shutDown() {
+        this.shutDown = true;
+        this.loop.execute(this::closed);
+    }
+
+    @Override
+    public void setDebug(Boolean state) {
+        this.debug = state;
+    }
+}
@@ -0,0 +1,18 @@
+package dt.peer;
+
+/**
+ * A connection to a peer over which messages can be sent. Either a {@link SocketHandler} with a thread of its own,
+ * or a {@link ChannelHandler} that is served by a {@link SelectorLoop}.
+ *
+ * @author Emiel Rous and Wouter Koning
+ */
+public interface Connection {
+
+    void write(String msg);
+
+    void setName(String name);
+
+    void shutDown();
+
+    void setDebug(Boolean state);
+}
@@ -0,0 +1,66 @@
+package dt.peer;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Starts the threads that read from the sockets of the {@link SocketHandler}s. By default these are platform threads,
+ * but they can be virtual threads on a Java version that has them, such that thousands of connections that are
+ * mostly waiting for input do not need thousands of platform threads and their stacks.
+ * <p>
+ * The virtual threads are looked up at runtime, such that the project still builds and runs on Java 11. When they are
+ * not available, platform threads are used.
+ *
+ * @author Emiel Rous and Wouter Koning
+ */
+public final class ReaderThreads {
+    private static final ThreadFactory VIRTUALTHREADS = createVirtualThreadFactory();
+    private static volatile boolean virtual = false;
+
+    private ReaderThreads() {
+    }
+
+    /**
+     * Sets whether the readers are started on virtual threads from now on.
+     *
+     * @param useVirtualThreads Whether virtual threads should be used.
+     * @return Whether virtual threads will be used, which is false if this Java version does not have them.
+     */
+    public static boolean setVirtual(boolean useVirtualThreads) {
+        virtual = useVirtualThreads && VIRTUALTHREADS != null;
+        return virtual;
+    }
+
+    /**
+     * @return Whether the readers are started on virtual threads.
+     */
+    public static boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Starts a reader on a virtual thread if those are used, and on a new platform thread otherwise.
+     *
+     * @param reader The reader to be started.
+     * @return The thread that runs the reader.
+     */
+    public static Thread start(Runnable reader) {
+        Thread thread = virtual ? VIRTUALTHREADS.newThread(reader) : new Thread(reader);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Looks up the factory of virtual threads, which is Thread.ofVirtual().factory() on Java 21 and newer.
+     *
+     * @return The factory, or null if this Java version does not have virtual threads.
+     */
+    private static ThreadFactory createVirtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder")
+                .getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null; // Before Java 21, or a preview that is not enabled
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package dt.peer;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+
+/**
+ * A single thread that serves all the connections of a server with one {@link Selector}, instead of a thread per
+ * connection. It accepts new connections, reads from and writes to the {@link ChannelHandler}s of the connections
+ * when their channels are ready, and hands the received messages to a fixed amount of worker threads.
+ *
+ * @author Emiel Rous and Wouter Koning
+ */
+public class SelectorLoop implements Runnable {
+    private static final int BUFFERSIZE = 8192;
+    private static final int MAXPOOLEDBUFFERS = 1024;
+
+    private final ServerSocketChannel serverChannel;
+    private final BiConsumer<SocketChannel, SelectorLoop> acceptor;
+    private final Selector selector;
+    private final ExecutorService workers;
+    private final ByteBufferPool bufferPool;
+    private final ConcurrentLinkedQueue<Runnable> tasks;
+    private volatile boolean running;
+
+    /**
+     * Creates a loop for a bound server channel.
+     *
+     * @param serverChannel The channel on which new connections are accepted.
+     * @param acceptor      Is given every accepted connection and this loop, after which it should create a
+     *                      {@link ChannelHandler} for the connection.
+     * @param workers       The amount of threads that handle the received messages.
+     * @throws IOException If the selector could not be opened.
+     * @requires workers > 0
+     */
+    public SelectorLoop(ServerSocketChannel serverChannel,
+                        BiConsumer<SocketChannel, SelectorLoop> acceptor, int workers)
+        throws IOException {
+        this.serverChannel = serverChannel;
+        this.acceptor = acceptor;
+        this.selector = Selector.open();
+        this.workers = Executors.newFixedThreadPool(workers);
+        this.bufferPool = new ByteBufferPool(BUFFERSIZE, MAXPOOLEDBUFFERS);
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.running = true;
+    }
+
+    /**
+     * Selects the channels that are ready until the loop is shut down.
+     */
+    @Override
+    public void run() {
+        try {
+            this.serverChannel.configureBlocking(false);
+            this.serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+            while (this.running) {
+                this.selector.select();
+                Runnable task;
+                while ((task = this.tasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    this.handleKey(key);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            this.workers.shutdown();
+        }
+    }
+
+    /**
+     * Handles a channel that is ready to be accepted, read from or written to.
+     *
+     * @param key The key of the channel.
+     */
+    private void handleKey(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            try {
+                SocketChannel channel = this.serverChannel.accept();
+                if (channel != null) {
+                    channel.configureBlocking(false);
+                    this.acceptor.accept(channel, this);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        ChannelHandler handler = (ChannelHandler) key.attachment();
+        try {
+            if (key.isWritable()) {
+                handler.flush();
+            }
+            if (key.isValid() && key.isReadable()) {
+                handler.read();
+            }
+        } catch (CancelledKeyException e) {
+            handler.closed(); // Closed by another thread in the meantime
+        }
+    }
+
+    /**
+     * Registers the channel of a handler with the selector, such that it is read from from now on.
+     *
+     * @param handler The handler of a newly accepted connection.
+     */
+    void register(ChannelHandler handler) {
+        this.execute(() -> {
+            try {
+                handler.setKey(
+                    handler.getChannel().register(this.selector, SelectionKey.OP_READ, handler));
+            } catch (ClosedChannelException e) {
+                handler.closed();
+            }
+        });
+    }
+
+    /**
+     * Runs a task on the thread of the selector, which is the only thread that may change the keys.
+     *
+     * @param task The task to be run.
+     */
+    void execute(Runnable task) {
+        this.tasks.add(task);
+        this.selector.wakeup();
+    }
+
+    /**
+     * @return The pool of the threads that handle the received messages.
+     */
+    ExecutorService getWorkers() {
+        return this.workers;
+    }
+
+    /**
+     * @return The pool of the buffers used to read and write.
+     */
+    ByteBufferPool getBufferPool() {
+        return this.bufferPool;
+    }
+
+    /**
+     * Stops the loop and the worker threads after the current selection.
+     */
+    public void shutDown() {
+        this.running = false;
+        this.selector.wakeup();
+    }
+}
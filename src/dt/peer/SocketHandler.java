@@ -2,15 +2,45 @@ package dt.peer;
 
 import java.io.*;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A hanlder of the socket. Sends and receives messages
+ * <p>
+ * The messages are not written by the thread that sends them, but put in a queue of this handler. A small pool of
+ * writer threads, shared by all handlers, writes all the messages waiting in a queue at once, with a single flush,
+ * such that a connection only needs a thread of its own for reading. A thread that sends a message thus never waits
+ * for a slow peer. A peer that does not read its messages fast enough to keep the queue from filling up is
+ * disconnected.
+ * <p>
+ * A peer that stops reading altogether can block the writer thread that writes to it, even when nothing more is
+ * sent to it. Every write therefore has a deadline of {@link SocketHandler#WRITETIMEOUT} seconds, after which a
+ * watchdog closes the socket, which ends the blocked write and frees the writer thread for the other peers.
  *
  * @author Emiel Rous and Wouter Koning
  */
-public class SocketHandler implements Runnable {
+public class SocketHandler implements Runnable, Connection {
+    private static final int MAXBACKLOG = 1024; // Messages that may wait to be written
+    private static final int WRITERTHREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final ExecutorService WRITERS =
+        Executors.newFixedThreadPool(WRITERTHREADS,
+            writer -> createDaemonThread(writer, "Socket writer"));
+    private static final long WRITETIMEOUT = 10; // Seconds a write to a peer may take
+    private static final ScheduledThreadPoolExecutor WATCHDOG = createWatchdog();
+
     private final Socket socket;
     private final NetworkEntity networkEntity;
+    private final BlockingQueue<String> outbound;
+    private final AtomicBoolean writeScheduled; // Whether a writer thread will write the queue
     private BufferedReader socketIn;
     private BufferedWriter socketOut;
     private String name;
@@ -20,6 +50,8 @@ public class SocketHandler implements Runnable {
     public SocketHandler(NetworkEntity networkEntity, Socket socket, String name) {
         this.networkEntity = networkEntity;
         this.socket = socket;
+        this.outbound = new ArrayBlockingQueue<>(MAXBACKLOG);
+        this.writeScheduled = new AtomicBoolean(false);
         this.name = name;
 
         try {
@@ -34,6 +66,28 @@ public class SocketHandler implements Runnable {
         }
     }
 
+    /**
+     * @param task The task of the thread.
+     * @param name The name of the thread.
+     * @return A daemon thread, which does not keep the program running.
+     */
+    private static Thread createDaemonThread(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * @return The thread that closes the sockets of writes that take too long. The deadline of a write that ended
+     * in time is removed right away, such that the deadlines do not pile up.
+     */
+    private static ScheduledThreadPoolExecutor createWatchdog() {
+        ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1,
+            task -> createDaemonThread(task, "Socket write watchdog"));
+        watchdog.setRemoveOnCancelPolicy(true);
+        return watchdog;
+    }
+
     public void run() {
         readSocketInput();
     }
@@ -61,22 +115,61 @@ public class SocketHandler implements Runnable {
     }
 
     /**
-     * Write a line to the socket.
+     * Write a line to the socket. The line is queued and written by one of the writer threads.
      *
-     * @ensures A shutdown from either side results in a neat shutdown of the {@link NetworkEntity}
+     * @ensures A peer that has too many lines waiting to be written is disconnected
      */
     public void write(String msg) {
         if (!socket.isClosed()) {
-            try {
-                if (debug) {
-                    System.out.println("[OUT]:" + msg);
+            if (debug) {
+                System.out.println("[OUT]:" + msg);
+            }
+            if (!this.outbound.offer(msg)) {
+                this.closeSocket(); // The reader finds out and shuts down the NetworkEntity
+                return;
+            }
+            this.scheduleWrite();
+        }
+    }
+
+    /**
+     * Lets a writer thread write the queue, unless one is already going to.
+     */
+    private void scheduleWrite() {
+        if (this.writeScheduled.compareAndSet(false, true)) {
+            WRITERS.execute(this::writeSocketOutput);
+        }
+    }
+
+    /**
+     * Writes all the lines that are waiting in the queue to the socket, with a single flush. Only one writer thread
+     * at a time writes the queue of a handler, such that the lines are written in the order in which they were
+     * queued.
+     *
+     * @ensures A shutdown from either side results in a neat shutdown of the {@link NetworkEntity}
+     * @ensures The socket is closed when the write takes longer than {@link SocketHandler#WRITETIMEOUT} seconds
+     */
+    private void writeSocketOutput() {
+        List<String> batch = new ArrayList<>();
+        this.outbound.drainTo(batch);
+        ScheduledFuture<?> deadline =
+            WATCHDOG.schedule(this::closeSocket, WRITETIMEOUT, TimeUnit.SECONDS);
+        try {
+            if (!socket.isClosed() && socketOut != null) {
+                for (String msg : batch) {
+                    socketOut.write(msg);
+                    socketOut.newLine();
                 }
-                socketOut.write(msg);
-                socketOut.newLine();
                 socketOut.flush();
-            } catch (IOException e) {
-                networkEntity.handlePeerShutdown(shutDown);
             }
+        } catch (IOException e) {
+            this.closeSocket(); // The reader finds out and shuts down the NetworkEntity
+        } finally {
+            deadline.cancel(false);
+        }
+        this.writeScheduled.set(false);
+        if (!this.outbound.isEmpty() && !socket.isClosed()) {
+            this.scheduleWrite(); // Lines that were queued while this batch was written
         }
     }
 
@@ -89,13 +182,20 @@ public class SocketHandler implements Runnable {
      */
     public void shutDown() {
         this.shutDown = true;
+        this.socketIn = null;
+        this.closeSocket();
+    }
+
+    /**
+     * Closes the socket, which stops the reader of this handler and drops the lines that were not written yet.
+     */
+    private void closeSocket() {
         try {
-            this.socketIn = null;
-            this.socketOut = null;
             this.socket.close();
         } catch (IOException e) {
             e.printStackTrace();
         }
+        this.outbound.clear();
     }
 
     public void setDebug(Boolean state) {
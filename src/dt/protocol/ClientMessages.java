@@ -49,4 +49,14 @@ public enum ClientMessages implements ProtocolMessages {
         }
         return msg.toString();
     }
+
+    /**
+     * The optional first argument of a {@link #RANK} request. RANK~TOP~count~offset asks for a page of the
+     * leaderboard, of which the offset is optional. RANK~PLAYER~name asks for the position of a single player.
+     * Both are answered with entries of the name, the wins and the position of a player.
+     */
+    public enum RankQueries {
+        TOP,
+        PLAYER
+    }
 }
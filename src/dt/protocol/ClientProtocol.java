@@ -4,6 +4,7 @@ import dt.exceptions.InvalidMoveException;
 import dt.util.Move;
 
 import java.net.ProtocolException;
+import java.util.List;
 
 /**
  * @author Emiel Rous and Wouter Koning
@@ -18,6 +19,8 @@ public interface ClientProtocol {
 
     void doGetRanking();
 
+    void doGetRanking(List<String> query);
+
     void doMove(Move move) throws InvalidMoveException, ProtocolException;
 
     void doSendChat(String message);
@@ -85,11 +85,11 @@ public enum ServerMessages implements ProtocolMessages {
     }
 
     public String constructMessage(List<String> args) {
-        String msg = this.msg;
+        StringBuilder msg = new StringBuilder(this.msg);
         for (String arg : args) {
-            msg += delimiter + arg;
+            msg.append(delimiter).append(arg);
         }
-        return msg;
+        return msg.toString();
     }
 
     public enum GameOverReasons {
@@ -0,0 +1,149 @@
+package dt.server;
+
+import dt.model.ServerBoard;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * A bounded buffer of starting boards that are set up ahead of time by a background thread, such that a game can
+ * start without waiting for its board to be created. Every board is drawn from its own source of randomness, split
+ * off from a source with a given seed, so a pool with the same seed creates the same boards in the same order.
+ * <p>
+ * When the buffer is empty, because games start faster than boards are created, the board is created on the thread
+ * that asks for it. This is counted as a miss.
+ */
+public class BoardPool {
+    public static final int DEFAULTCAPACITY = 64;
+
+    private final BlockingQueue<int[]> boards;
+    private final SplittableRandom seeds; // Only used by the generator
+    private final Thread generator;
+    private final LongAdder taken;
+    private final LongAdder misses;
+    private volatile long generated;
+    private volatile long generatingNanos;
+
+    /**
+     * Creates a pool and starts filling it.
+     *
+     * @param capacity The amount of boards that are kept ready.
+     * @param seed     The seed from which all the boards of the pool are drawn.
+     * @requires capacity > 0
+     */
+    public BoardPool(int capacity, long seed) {
+        this.boards = new ArrayBlockingQueue<>(capacity);
+        this.seeds = new SplittableRandom(seed);
+        this.taken = new LongAdder();
+        this.misses = new LongAdder();
+        this.generator = new Thread(this::generate, "Board generator");
+        this.generator.setDaemon(true);
+        this.generator.start();
+    }
+
+    /**
+     * Creates boards until the pool is shut down, waiting whenever the buffer is full.
+     */
+    private void generate() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long start = System.nanoTime();
+                int[] board = createBoard(this.seeds.split());
+                this.generatingNanos += System.nanoTime() - start;
+                this.generated++;
+                this.boards.put(board);
+            }
+        } catch (InterruptedException e) {
+            // Shut down
+        }
+    }
+
+    /**
+     * @param random The source of randomness of the board.
+     * @return The state of a new board that has at least one valid move.
+     */
+    private static int[] createBoard(SplittableRandom random) {
+        ServerBoard board = new ServerBoard(random);
+        board.setupBoard();
+        return board.getBoardState();
+    }
+
+    /**
+     * Takes a board from the buffer, or creates one if the buffer is empty. This never waits for the generator.
+     *
+     * @return The state of a new board that has at least one valid move.
+     */
+    public int[] take() {
+        this.taken.increment();
+        int[] board = this.boards.poll();
+        if (board == null) {
+            this.misses.increment();
+            board = createBoard(new SplittableRandom());
+        }
+        return board;
+    }
+
+    /**
+     * @return The amount of boards that are ready in the buffer.
+     */
+    public int getBuffered() {
+        return this.boards.size();
+    }
+
+    /**
+     * @return The amount of boards the buffer can hold.
+     */
+    public int getCapacity() {
+        return this.boards.size() + this.boards.remainingCapacity();
+    }
+
+    /**
+     * @return The amount of boards the generator has created.
+     */
+    public long getGenerated() {
+        return this.generated;
+    }
+
+    /**
+     * @return The amount of boards that have been taken from the pool.
+     */
+    public long getTaken() {
+        return this.taken.sum();
+    }
+
+    /**
+     * @return The amount of boards that had to be created by the thread that took them.
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * @return The amount of boards the generator creates per second while it is not waiting for room in the buffer.
+     */
+    public double getRefillRate() {
+        long nanos = this.generatingNanos;
+        return nanos == 0 ? 0 : this.generated / (nanos / 1e9);
+    }
+
+    /**
+     * @return A line with all the metrics of the pool.
+     */
+    public String getStatistics() {
+        return String.format(
+            "Boards: %d/%d buffered, %d generated, %d taken, %d missed, %.0f boards/s refill",
+            this.getBuffered(), this.getCapacity(), this.getGenerated(), this.getTaken(),
+            this.getMisses(), this.getRefillRate());
+    }
+
+    /**
+     * Stops the generator. Boards can still be taken, but are created by the thread that takes them once the
+     * buffer is empty.
+     */
+    public void shutDown() {
+        this.generator.interrupt();
+    }
+}
@@ -1,7 +1,11 @@
 package dt.server;
 
 import dt.exceptions.*;
+import dt.peer.ChannelHandler;
+import dt.peer.Connection;
 import dt.peer.NetworkEntity;
+import dt.peer.ReaderThreads;
+import dt.peer.SelectorLoop;
 import dt.peer.SocketHandler;
 import dt.protocol.ClientMessages;
 import dt.protocol.ProtocolMessages;
@@ -12,22 +16,23 @@ import dt.util.Move;
 import javax.security.auth.login.LoginException;
 import java.net.ProtocolException;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map.Entry;
 
 public class ClientHandler implements NetworkEntity, ServerProtocol {
     private final Server server;
     private final GameManager gameManager;
-    private final SocketHandler socketHandler;
+    private final Connection socketHandler;
     private final ServerTUI view;
     private final boolean debug;
-    private Game game;
+    private volatile Game game; // The opponent and the turn are only used on the thread of the game
     private ClientHandler opponent;
     private String name;
     private String userName;
-    private ClientHandlerStates state;
+    private volatile ClientHandlerStates state;
     private boolean myTurn;
     private boolean chatEnabled;
     private boolean rankEnabled;
@@ -38,11 +43,25 @@ public class ClientHandler implements NetworkEntity, ServerProtocol {
                   boolean debug) {
         this.server = server;
         this.gameManager = gameManager;
-        this.socketHandler = new SocketHandler(this, socket, "");
+        SocketHandler handler = new SocketHandler(this, socket, "");
+        this.socketHandler = handler;
+        if (debug) {
+            socketHandler.setDebug(debug);
+        }
+        ReaderThreads.start(handler);
+        this.view = view;
+        this.game = null;
+        this.debug = debug;
+    }
+
+    ClientHandler(Server server, GameManager gameManager, ServerTUI view, SocketChannel channel,
+                  SelectorLoop loop, boolean debug) {
+        this.server = server;
+        this.gameManager = gameManager;
+        this.socketHandler = new ChannelHandler(this, channel, loop, "");
         if (debug) {
             socketHandler.setDebug(debug);
         }
-        new Thread(socketHandler).start();
         this.view = view;
         this.game = null;
         this.debug = debug;
@@ -88,7 +107,7 @@ public class ClientHandler implements NetworkEntity, ServerProtocol {
                     this.handleWhisper(msg);
                     break;
                 case RANK:
-                    this.handleRank();
+                    this.handleRank(arguments);
                     break;
 
             }
@@ -106,16 +125,10 @@ public class ClientHandler implements NetworkEntity, ServerProtocol {
             }
             socketHandler
                 .write(ServerMessages.ERROR.constructMessage("Invalid command. Received: " + msg));
-        } catch (NotYourTurnException e) {
-            view.showMessage("[" + this.name + "] tried to move before his turn");
-            socketHandler.write(ServerMessages.ERROR.constructMessage("It's not your turn"));
         } catch (LoginException e) {
             view.showMessage(
                 "[" + this.name + "] tried to access the Queue without loggin in first");
             socketHandler.write(ServerMessages.ERROR.constructMessage("You need to log in first"));
-        } catch (InvalidMoveException e) {
-            view.showMessage("[" + this.name + "] tried to make an invalid move");
-            socketHandler.write(ServerMessages.ERROR.constructMessage("Your move was invalid"));
         } catch (UnexpectedResponseException e) {
             view.showMessage("[" + this.name + "] tried to make a move but he isn't in a game");
             socketHandler.write(ServerMessages.ERROR.constructMessage("You're not in a game"));
@@ -123,18 +136,50 @@ public class ClientHandler implements NetworkEntity, ServerProtocol {
             view.showMessage(
                 "[" + this.name + "] tried to enter the queue, but is already in queue");
             socketHandler.write(ServerMessages.ERROR.constructMessage("You're already in queue"));
-        } catch (ClientHandlerNotFoundException e) {
-            view.showMessage(e.getMessage());
-            socketHandler.write(ServerMessages.ERROR.constructMessage(
-                "Could not find you in the list of players. Are you solid snake?"));
         }
     }
 
-    private void handleRank() {
-        HashMap<String, Integer> scores = Server.getRankAsHashMap();
-
-        List<String> rankList =
-            scores.keySet().stream().map(n -> n + " " + scores.get(n)).collect(Collectors.toList());
+    /**
+     * Sends the requested part of the leaderboard. Without arguments all the players are sent as their name and
+     * wins. With the arguments of a {@link ClientMessages.RankQueries} the position of each player is sent as well.
+     *
+     * @param arguments The split message of the client.
+     * @throws ProtocolException When the arguments are not a valid query.
+     */
+    private void handleRank(String[] arguments) throws ProtocolException {
+        Leaderboard leaderboard = Server.getLeaderboard();
+        List<String> rankList = new ArrayList<>();
+        if (arguments.length == 1) {
+            for (Entry<String, Integer> entry : leaderboard.getPage(0, leaderboard.size())) {
+                rankList.add(entry.getKey() + " " + entry.getValue());
+            }
+            socketHandler.write(ServerMessages.RANK.constructMessage(rankList));
+            return;
+        }
+        try {
+            switch (ClientMessages.RankQueries.valueOf(arguments[1])) {
+                case TOP:
+                    int count = Integer.parseInt(arguments[2]);
+                    int offset = arguments.length > 3 ? Integer.parseInt(arguments[3]) : 0;
+                    if (count < 0 || offset < 0) {
+                        throw new ProtocolException("Negative count or offset");
+                    }
+                    int position = offset;
+                    for (Entry<String, Integer> entry : leaderboard.getPage(offset, count)) {
+                        rankList.add(entry.getKey() + " " + entry.getValue() + " " + ++position);
+                    }
+                    break;
+                case PLAYER:
+                    int playerPosition = leaderboard.getPosition(arguments[2]);
+                    Integer wins = leaderboard.getWins(arguments[2]);
+                    if (playerPosition != 0 && wins != null) {
+                        rankList.add(arguments[2] + " " + wins + " " + playerPosition);
+                    }
+                    break;
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new ProtocolException("Invalid rank query");
+        }
         socketHandler.write(ServerMessages.RANK.constructMessage(rankList));
     }
 
@@ -181,14 +226,13 @@ public class ClientHandler implements NetworkEntity, ServerProtocol {
         } catch (ArrayIndexOutOfBoundsException e) {
             throw new ProtocolException("Invalid number of arguments");
         }
-        if (this.server.isUserLoggedIn(userName)) {
+        if (!this.server.addUserToLoggedInList(userName)) {
             socketHandler.write(ServerMessages.ALREADYLOGGEDIN.constructMessage());
         } else {
             socketHandler.write(ServerMessages.LOGIN.constructMessage());
             this.userName = userName;
             this.name = userName;
             this.socketHandler.setName(userName);
-            this.server.addUserToLoggedInList(userName);
         }
         this.state = ClientHandlerStates.LOGGEDIN;
         Server.addNewPlayer(userName);
@@ -249,6 +293,9 @@ public class ClientHandler implements NetworkEntity, ServerProtocol {
     public void startGame(boolean startsFirst, ClientHandler opponent, Game game) {
         this.game = game;
         this.opponent = opponent;
+        //Both players are in the game before either of them hears of it, and can answer with a move
+        this.state = ClientHandlerStates.INGAME;
+        this.opponent.setState(ClientHandlerStates.INGAME);
         if (startsFirst) {
             socketHandler.write(ServerMessages.NEWGAME
                 .constructMessage(
@@ -264,19 +311,24 @@ public class ClientHandler implements NetworkEntity, ServerProtocol {
                     this.userName));
             this.myTurn = false;
         }
-        this.state = ClientHandlerStates.INGAME;
-        this.opponent.setState(ClientHandlerStates.INGAME);
     }
 
-    public synchronized void closeGame() {
+    public void closeGame() {
         this.game = null;
         this.opponent = null;
         this.setState(ClientHandlerStates.LOGGEDIN);
     }
 
+    /**
+     * Parses a move and hands it to the thread of the game, which plays it with
+     * {@link ClientHandler#playMove(Game, Move)}.
+     *
+     * @param arguments The split message of the client.
+     * @throws ProtocolException            When the message does not hold a move.
+     * @throws UnexpectedResponseException When this client is not in a game.
+     */
     public void handleMove(String[] arguments)
-        throws ProtocolException, NotYourTurnException, InvalidMoveException,
-        ClientHandlerNotFoundException {
+        throws ProtocolException, UnexpectedResponseException {
         Move move;
         switch (arguments.length) {
             case 1:
@@ -291,21 +343,52 @@ public class ClientHandler implements NetworkEntity, ServerProtocol {
             default:
                 throw new ProtocolException("Too many arguments");
         }
-        if (this.myTurn) {
-            view.showMessage(this.userName + "Moves: " + move);
-            this.makeMove(move);
-            this.myTurn = false;
-            if (opponent != null) {
-                opponent.setMyTurn(true);
-            }
-            String moveMsg = ServerMessages.MOVE.constructMessage(move);
-            if (this.game != null && this.game.getBoard() != null &&
-                !this.game.getBoard().isGameOver()) {
-                socketHandler.write(moveMsg);
-                opponent.getSocketHandler().write(moveMsg);
+        Game currentGame = this.game;
+        if (currentGame == null) {
+            throw new UnexpectedResponseException("You're not in a game");
+        }
+        currentGame.execute(() -> this.playMove(currentGame, move));
+    }
+
+    /**
+     * Plays a move if it is the turn of this client, and tells both players about it. A move that was made in a game
+     * that has ended since is dropped, such that it can never be played in the next game of this client, which runs
+     * on another thread.
+     *
+     * @param moveGame The game in which the move was made.
+     * @param move     The move of this client.
+     * @requires Called on the thread of moveGame
+     */
+    private void playMove(Game moveGame, Move move) {
+        try {
+            Game currentGame = this.game;
+            if (currentGame != moveGame) {
+                socketHandler.write(ServerMessages.ERROR.constructMessage(
+                    currentGame == null ? "You're not in a game" : "That game is over"));
+            } else if (this.myTurn) {
+                view.showMessage(this.userName + "Moves: " + move);
+                this.makeMove(moveGame, move);
+                // Once the game is over, this client may already be in its next game
+                if (!moveGame.getBoard().isGameOver()) {
+                    this.myTurn = false;
+                    opponent.setMyTurn(true);
+                    String moveMsg = ServerMessages.MOVE.constructMessage(move);
+                    socketHandler.write(moveMsg);
+                    opponent.getSocketHandler().write(moveMsg);
+                }
+            } else {
+                throw new NotYourTurnException("Not your turn");
             }
-        } else {
-            throw new NotYourTurnException("Not your turn");
+        } catch (NotYourTurnException e) {
+            view.showMessage("[" + this.name + "] tried to move before his turn");
+            socketHandler.write(ServerMessages.ERROR.constructMessage("It's not your turn"));
+        } catch (InvalidMoveException e) {
+            view.showMessage("[" + this.name + "] tried to make an invalid move");
+            socketHandler.write(ServerMessages.ERROR.constructMessage("Your move was invalid"));
+        } catch (ClientHandlerNotFoundException e) {
+            view.showMessage(e.getMessage());
+            socketHandler.write(ServerMessages.ERROR.constructMessage(
+                "Could not find you in the list of players. Are you solid snake?"));
         }
     }
 
@@ -313,11 +396,11 @@ public class ClientHandler implements NetworkEntity, ServerProtocol {
         this.myTurn = myTurn;
     }
 
-    private void makeMove(Move move)
+    private void makeMove(Game moveGame, Move move)
         throws NumberFormatException, InvalidMoveException, ClientHandlerNotFoundException {
-        this.game.makeMove(move, this);
-        if (this.debug && this.getGame() != null && this.getGame().getBoard() != null) {
-            view.showMessage(Arrays.toString(this.game.getBoard().getBoardState()));
+        moveGame.makeMove(move, this);
+        if (this.debug && moveGame.getBoard() != null) {
+            view.showMessage(Arrays.toString(moveGame.getBoard().getBoardState()));
         }
     }
 
@@ -325,8 +408,9 @@ public class ClientHandler implements NetworkEntity, ServerProtocol {
     @Override
     public void handlePeerShutdown(boolean shutDown) {
         this.view.showMessage("[" + this.name + "] Disconnected");
-        if (this.game != null) {
-            this.game.playerDisconnected(this);
+        Game currentGame = this.game;
+        if (currentGame != null) {
+            currentGame.execute(() -> currentGame.playerDisconnected(this));
         }
         this.gameManager.removePlayer(this);
         this.socketHandler.shutDown();
@@ -343,7 +427,7 @@ public class ClientHandler implements NetworkEntity, ServerProtocol {
         this.socketHandler.shutDown();
     }
 
-    public SocketHandler getSocketHandler() {
+    public Connection getSocketHandler() {
         return socketHandler;
     }
 
@@ -362,7 +446,7 @@ public class ClientHandler implements NetworkEntity, ServerProtocol {
 
     public void gameOver(ServerMessages.GameOverReasons reason, ClientHandler winner) {
         String name = winner.getName();
-        if (Server.getRankAsHashMap().containsKey(name) && this.userName.equals(name)) {
+        if (Server.isRanked(name) && this.userName.equals(name)) {
             Server.increaseScore(winner.getName());
         }
         socketHandler.write(ServerMessages.GAMEOVER.constructMessage(reason.toString(), name));
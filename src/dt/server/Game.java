@@ -9,23 +9,45 @@ import dt.util.Move;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * @author Emiel Rous and Wouter Koning
  * This is the class that that maanages an individual game.
+ * A game is owned by a single thread, a shard of the {@link SessionScheduler}. Everything that changes the game, and
+ * the turns of its players, is handed to that thread with {@link Game#execute(Runnable)}, so no locks are needed.
  */
 public class Game {
     private final ServerBoard board;
     private final List<Player> players;
     private final GameManager manager;
+    private final Executor owner;
 
-    public Game(GameManager manager, ClientHandler client1, ClientHandler client2) {
+    /**
+     * @param manager    The manager of the game.
+     * @param client1    The player that makes the first move.
+     * @param client2    The other player.
+     * @param owner      The thread that runs the game.
+     * @param boardState The starting board, which has at least one valid move.
+     */
+    public Game(GameManager manager, ClientHandler client1, ClientHandler client2, Executor owner,
+                int[] boardState) {
         this.board = new ServerBoard();
-        this.board.setupBoard();
+        this.board.fillBoard(boardState);
         this.players = new ArrayList<>();
         players.add(new Player(client1));
         players.add(new Player(client2));
         this.manager = manager;
+        this.owner = owner;
+    }
+
+    /**
+     * Runs a task on the thread that owns this game, after the tasks that were handed to it before.
+     *
+     * @param task The task that reads or changes the game.
+     */
+    public void execute(Runnable task) {
+        this.owner.execute(task);
     }
 
     /**
@@ -33,7 +55,7 @@ public class Game {
      *
      * @return The instance of this class
      */
-    public synchronized Board getBoard() {
+    public Board getBoard() {
         return this.board;
     }
 
@@ -45,8 +67,9 @@ public class Game {
      * @param mover The client that is performing the move
      * @throws InvalidMoveException           If the move that is attempted to be made is not valid.
      * @throws ClientHandlerNotFoundException If the client handler that is handed to this method is not found.
+     * @requires Called on the thread that owns this game
      */
-    public synchronized void makeMove(Move move, ClientHandler mover)
+    public void makeMove(Move move, ClientHandler mover)
         throws InvalidMoveException, ClientHandlerNotFoundException {
         Player player = findPlayer(mover);
 
@@ -69,7 +92,7 @@ public class Game {
      * @param playa The {@link ClientHandler} to which you are trying to find a matching player.
      * @return The player fi the player is found, and otherwise the method returns null.
      */
-    private synchronized Player findPlayer(ClientHandler playa) {
+    private Player findPlayer(ClientHandler playa) {
         for (Player player : players) {
             if (player.getClientHandler() == playa) {
                 return player;
@@ -83,7 +106,7 @@ public class Game {
      * {@link Game#findWinner()} method, after which it sends over who has won, if anyone. It then removes this game
      * from the {@link GameManager}.
      */
-    private synchronized void gameOver() {
+    private void gameOver() {
         Player winner = findWinner();
 
         if (winner != null) {
@@ -99,7 +122,7 @@ public class Game {
      *
      * @return The winner of the game.
      */
-    private synchronized Player findWinner() {
+    private Player findWinner() {
         Player player1 = players.get(0);
         Player player2 = players.get(1);
         int scorePlayer1 = player1.getScore();
@@ -129,8 +152,9 @@ public class Game {
      * game is removed from the {@link GameManager}.
      *
      * @param rageQuitter The client who has disconnected
+     * @requires Called on the thread that owns this game
      */
-    public synchronized void playerDisconnected(ClientHandler rageQuitter) {
+    public void playerDisconnected(ClientHandler rageQuitter) {
         Player quitter = findPlayer(rageQuitter);
         for (Player player : this.players) {
             if (player != quitter) {
@@ -138,6 +162,7 @@ public class Game {
             }
         }
         this.players.remove(quitter);
+        this.manager.removeGame(this);
     }
 
     /**
@@ -146,7 +171,7 @@ public class Game {
      *
      * @param winner The client who has won.
      */
-    private synchronized void sendGameOverWin(Player winner) {
+    private void sendGameOverWin(Player winner) {
         for (Player player : this.players) {
             if (player.getClientHandler() != null) {
                 player.getClientHandler()
@@ -161,7 +186,7 @@ public class Game {
      *
      * @param players The players who are not winners nor losers.
      */
-    private synchronized void sendGameOverDraw(List<Player> players) {
+    private void sendGameOverDraw(List<Player> players) {
         for (Player player : players) {
             if (player.getClientHandler() != null) {
                 player.getClientHandler().gameOver(ServerMessages.GameOverReasons.DRAW);
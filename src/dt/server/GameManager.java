@@ -1,51 +1,66 @@
 package dt.server;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author Emiel Rous and Wouter Koning
  * The manager that makes sure that people can join a queue and that games are created. Once a {@link Game} has been created,
- * that gama is entirely self sufficient.
+ * that gama is entirely self sufficient. The queue is a {@link Matchmaker}, which pairs players with about the same
+ * amount of wins. Every game is run by one of the shards of a {@link SessionScheduler}, and starts with a board
+ * from a {@link BoardPool}.
  */
 public class GameManager {
-    private final List<ClientHandler> queue;
-    private final List<Game> activeGames;
+    private final Matchmaker<ClientHandler> queue;
+    private final Set<Game> activeGames;
+    private final SessionScheduler scheduler;
+    private final AtomicLong gameIds;
+    private final BoardPool boards;
 
     GameManager() {
-        this.queue = new ArrayList<>();
-        this.activeGames = new ArrayList<>();
+        this.queue = new Matchmaker<>(this::startGame);
+        this.activeGames = ConcurrentHashMap.newKeySet();
+        this.scheduler = new SessionScheduler(Runtime.getRuntime().availableProcessors());
+        this.gameIds = new AtomicLong();
+        this.boards = new BoardPool(BoardPool.DEFAULTCAPACITY, System.nanoTime());
     }
 
     /**
-     * Add a {@link ClientHandler} to the queue. If then the queue size is larger than 1, start a game
-     * using {@link GameManager#startGame()}.
+     * Add a {@link ClientHandler} to the queue. Once an opponent has been found, a game is started using
+     * {@link GameManager#startGame(ClientHandler, ClientHandler)}.
      *
      * @param clientHandler The {@link ClientHandler} to be added to the queue
      */
-    public synchronized void addToQueue(ClientHandler clientHandler) {
-        queue.add(clientHandler);
-        if (queue.size() > 1) {
-            startGame();
-        }
+    public void addToQueue(ClientHandler clientHandler) {
+        Integer wins = Server.getLeaderboard().getWins(clientHandler.getName());
+        queue.join(clientHandler, wins == null ? 0 : wins);
     }
 
     /**
-     * Starts a game with the first two people in the queue. It creates a new game with the two clients assigned to
+     * Starts a game with two people from the queue. It creates a new game with the two clients assigned to
      * it, and adds the game to the list of active games. It also calls the {@link ClientHandler#startGame(boolean, ClientHandler, Game)} method.
-     * After the game has been created, the clients are removed from the queue
+     *
+     * @param player1 The player that has waited the longest, who makes the first move.
+     * @param player2 The other player.
      */
-    public synchronized void startGame() {
-        ClientHandler player1 = queue.get(0);
-        ClientHandler player2 = queue.get(1);
-
-        Game game = new Game(this, player1, player2);
+    private void startGame(ClientHandler player1, ClientHandler player2) {
+        Game game = new Game(this, player1, player2,
+            scheduler.getShard(gameIds.getAndIncrement()), boards.take());
         activeGames.add(game);
 
-        player1.startGame(true, player2, game);
-        player2.startGame(false, player1, game);
-        queue.remove(player1);
-        queue.remove(player2);
+        game.execute(() -> {
+            player1.startGame(true, player2, game);
+            player2.startGame(false, player1, game);
+        });
+    }
+
+    /**
+     * @return A line with the amount of games and the metrics of the {@link BoardPool}.
+     */
+    public String getStatistics() {
+        return "Games: " + activeGames.size() + " active, " + queue.size() + " in queue. " +
+            boards.getStatistics();
     }
 
     /**
@@ -53,7 +68,7 @@ public class GameManager {
      *
      * @param game The game to be removed from the list of active games.
      */
-    public synchronized void removeGame(Game game) {
+    public void removeGame(Game game) {
         this.activeGames.remove(game);
     }
 
@@ -63,6 +78,6 @@ public class GameManager {
      * @param clientHandler The player to be removed from the queue.
      */
     public void removePlayer(ClientHandler clientHandler) {
-        queue.remove(clientHandler);
+        queue.leave(clientHandler);
     }
 }
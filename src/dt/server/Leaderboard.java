@@ -0,0 +1,223 @@
+package dt.server;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * All the players ordered by their wins, the most wins first and equal wins by name. The players are kept in a
+ * treap of which every node knows the size of its subtree, such that a page of the leaderboard and the position of
+ * a player can be found without walking past all the players before them.
+ */
+public class Leaderboard {
+    private static final long SEED = 20210120L;
+
+    private final Map<String, Integer> wins;
+    private final SplittableRandom priorities;
+    private final ReentrantReadWriteLock lock;
+    private Node root;
+
+    public Leaderboard() {
+        this.wins = new HashMap<>();
+        this.priorities = new SplittableRandom(SEED);
+        this.lock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Sets the wins of a player, adding the player if it is not on the leaderboard yet.
+     *
+     * @param name The name of the player.
+     * @param wins The amount of games the player has won.
+     * @ensures The player is moved to the position that matches its wins
+     */
+    public void setWins(String name, int wins) {
+        this.lock.writeLock().lock();
+        try {
+            Integer previous = this.wins.put(name, wins);
+            if (previous != null) {
+                Node[] lower = split(this.root, previous, name, false);
+                Node[] higher = split(lower[1], previous, name, true);
+                this.root = merge(lower[0], higher[1]);
+            }
+            Node[] parts = split(this.root, wins, name, false);
+            Node node = new Node(name, wins, this.priorities.nextInt());
+            this.root = merge(merge(parts[0], node), parts[1]);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return The amount of players on the leaderboard.
+     */
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return size(this.root);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param name The name of the player.
+     * @return The amount of games the player has won, or null if the player is not on the leaderboard.
+     */
+    public Integer getWins(String name) {
+        this.lock.readLock().lock();
+        try {
+            return this.wins.get(name);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param name The name of the player.
+     * @return The position of the player on the leaderboard, starting at 1, or 0 if the player is not on it.
+     */
+    public int getPosition(String name) {
+        this.lock.readLock().lock();
+        try {
+            Integer playerWins = this.wins.get(name);
+            if (playerWins == null) {
+                return 0;
+            }
+            int before = 0;
+            Node node = this.root;
+            while (node != null) {
+                int comparison = node.compareTo(playerWins, name);
+                if (comparison == 0) {
+                    return before + size(node.left) + 1;
+                } else if (comparison < 0) {
+                    before += size(node.left) + 1;
+                    node = node.right;
+                } else {
+                    node = node.left;
+                }
+            }
+            return 0;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param offset The amount of players to skip, from the top of the leaderboard.
+     * @param count  The maximum amount of players on the page.
+     * @return The names and wins of the players on the page, in the order of the leaderboard.
+     * @requires offset >= 0 && count >= 0
+     */
+    public List<Entry<String, Integer>> getPage(int offset, int count) {
+        this.lock.readLock().lock();
+        try {
+            List<Entry<String, Integer>> page = new ArrayList<>(Math.min(count, size(this.root)));
+            collect(this.root, offset, offset + count, page);
+            return page;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the players of a subtree at the positions from (inclusive) to (exclusive) to the page.
+     */
+    private static void collect(Node node, int from, int to, List<Entry<String, Integer>> page) {
+        while (node != null && from < to) {
+            int leftSize = size(node.left);
+            if (from < leftSize) {
+                collect(node.left, from, to, page);
+            }
+            if (from <= leftSize && leftSize < to) {
+                page.add(new SimpleImmutableEntry<>(node.name, node.wins));
+            }
+            // Continue in the right subtree, of which the positions start after this node
+            from = Math.max(0, from - leftSize - 1);
+            to = to - leftSize - 1;
+            node = node.right;
+        }
+    }
+
+    /**
+     * Splits a subtree in the players before a key and the players after it.
+     *
+     * @param inclusive Whether the player with the key itself goes to the first part.
+     * @return The part before the key and the part after it.
+     */
+    private static Node[] split(Node node, int wins, String name, boolean inclusive) {
+        if (node == null) {
+            return new Node[] {null, null};
+        }
+        int comparison = node.compareTo(wins, name);
+        if (comparison < 0 || (inclusive && comparison == 0)) {
+            Node[] parts = split(node.right, wins, name, inclusive);
+            node.right = parts[0];
+            node.update();
+            parts[0] = node;
+            return parts;
+        } else {
+            Node[] parts = split(node.left, wins, name, inclusive);
+            node.left = parts[1];
+            node.update();
+            parts[1] = node;
+            return parts;
+        }
+    }
+
+    /**
+     * Merges two subtrees of which all the players of the first come before all the players of the second.
+     */
+    private static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        } else if (second == null) {
+            return first;
+        } else if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            first.update();
+            return first;
+        } else {
+            second.left = merge(first, second.left);
+            second.update();
+            return second;
+        }
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node {
+        private final String name;
+        private final int wins;
+        private final int priority;
+        private int size;
+        private Node left;
+        private Node right;
+
+        private Node(String name, int wins, int priority) {
+            this.name = name;
+            this.wins = wins;
+            this.priority = priority;
+            this.size = 1;
+        }
+
+        /**
+         * @return Negative if this node comes before the key, positive if it comes after it and 0 if it is the key.
+         */
+        private int compareTo(int otherWins, String otherName) {
+            int comparison = Integer.compare(otherWins, this.wins);
+            return comparison != 0 ? comparison : this.name.compareTo(otherName);
+        }
+
+        private void update() {
+            this.size = 1 + size(this.left) + size(this.right);
+        }
+    }
+}
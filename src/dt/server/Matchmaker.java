@@ -0,0 +1,286 @@
+package dt.server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * A queue that pairs players of about the same rating. The players are put in bands by the base 2 logarithm of their
+ * rating, such that 0, 1, 2-3, 4-7 and so on are separate bands. Every band has its own lock, so players of
+ * different bands do not wait for each other when they join.
+ * <p>
+ * A player is paired with the player that waits the longest in its own band. A player that waits accepts players
+ * from one band further away for every interval that it waits. A joining player takes such a player right away,
+ * and a background thread pairs the players that have waited long enough with each other.
+ *
+ * @param <P> The type of the players.
+ */
+public class Matchmaker<P> {
+    public static final long DEFAULTWIDENMILLIS = 1000;
+    private static final int BANDS = 33; // 0 and one band for every bit of a positive int
+
+    private final BiConsumer<P, P> pairing;
+    private final long widenNanos;
+    private final List<Band> bands;
+    private final Map<P, Ticket<P>> waiting;
+    private final ScheduledExecutorService widener;
+
+    /**
+     * Creates a matchmaker that widens the bands every {@link #DEFAULTWIDENMILLIS} milliseconds.
+     *
+     * @param pairing The action that starts a game of two players. It is called without holding any lock.
+     */
+    public Matchmaker(BiConsumer<P, P> pairing) {
+        this(pairing, DEFAULTWIDENMILLIS);
+    }
+
+    /**
+     * @param pairing     The action that starts a game of two players. It is called without holding any lock.
+     * @param widenMillis The milliseconds a player waits before it accepts players of one band further away.
+     * @requires widenMillis > 0
+     */
+    public Matchmaker(BiConsumer<P, P> pairing, long widenMillis) {
+        this.pairing = pairing;
+        this.widenNanos = TimeUnit.MILLISECONDS.toNanos(widenMillis);
+        this.bands = new ArrayList<>(BANDS);
+        for (int i = 0; i < BANDS; i++) {
+            this.bands.add(new Band());
+        }
+        this.waiting = new ConcurrentHashMap<>();
+        this.widener = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Matchmaker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.widener.scheduleWithFixedDelay(
+            this::pairWaitingPlayers, widenMillis, widenMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param rating The rating of a player.
+     * @return The band of the rating.
+     */
+    static int getBand(int rating) {
+        return rating <= 0 ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(rating);
+    }
+
+    /**
+     * Adds a player to the queue, or pairs it right away if a player in its band, or a player that has waited long
+     * enough in another band, is waiting.
+     *
+     * @param player The player that joins.
+     * @param rating The rating of the player, such as its wins.
+     * @requires The player is not in the queue yet
+     */
+    public void join(P player, int rating) {
+        int band = getBand(rating);
+        long now = System.nanoTime();
+        for (int distance = 1; distance < BANDS; distance++) {
+            Ticket<P> opponent = this.takeWaiting(band - distance, distance, now);
+            if (opponent == null) {
+                opponent = this.takeWaiting(band + distance, distance, now);
+            }
+            if (opponent != null) {
+                this.pairing.accept(opponent.player, player);
+                return;
+            }
+        }
+
+        Ticket<P> opponent;
+        Band own = this.bands.get(band);
+        own.lock.lock();
+        try {
+            opponent = own.poll();
+            if (opponent == null) {
+                Ticket<P> ticket = new Ticket<>(player, band, now);
+                own.add(ticket);
+                this.waiting.put(player, ticket);
+            } else {
+                this.waiting.remove(opponent.player);
+            }
+        } finally {
+            own.lock.unlock();
+        }
+        if (opponent != null) {
+            this.pairing.accept(opponent.player, player);
+        }
+    }
+
+    /**
+     * Removes a player from the queue.
+     *
+     * @param player The player to be removed.
+     * @return Whether the player was waiting.
+     */
+    public boolean leave(P player) {
+        Ticket<P> ticket = this.waiting.get(player);
+        if (ticket == null) {
+            return false;
+        }
+        Band band = this.bands.get(ticket.band);
+        band.lock.lock();
+        try {
+            this.waiting.remove(player);
+            return band.remove(ticket);
+        } finally {
+            band.lock.unlock();
+        }
+    }
+
+    /**
+     * @return The amount of players that are waiting.
+     */
+    public int size() {
+        return this.waiting.size();
+    }
+
+    /**
+     * Stops the background thread. Players that are still waiting are not paired anymore.
+     */
+    public void shutDown() {
+        this.widener.shutdownNow();
+    }
+
+    /**
+     * Takes the player that waits the longest in a band, if it accepts players from the given distance.
+     *
+     * @param band     The band to look in.
+     * @param distance The distance to the band of the joining player.
+     * @param now      The current time in nanoseconds.
+     * @return The player that is taken from the queue, or null if there is none.
+     */
+    private Ticket<P> takeWaiting(int band, int distance, long now) {
+        if (band < 0 || band >= BANDS) {
+            return null;
+        }
+        Band other = this.bands.get(band);
+        if (other.size == 0) {
+            return null; // Saves taking the lock of every band that nobody is waiting in
+        }
+        other.lock.lock();
+        try {
+            Ticket<P> first = other.queue.peekFirst();
+            if (first == null || this.getReach(first, now) < distance) {
+                return null;
+            }
+            this.waiting.remove(first.player);
+            return other.poll();
+        } finally {
+            other.lock.unlock();
+        }
+    }
+
+    /**
+     * Pairs the players that wait the longest in each band with players from other bands that are close enough.
+     * Players in the same band never wait for each other, so only players of different bands are paired here.
+     */
+    void pairWaitingPlayers() {
+        long now = System.nanoTime();
+        for (int band = 0; band < BANDS; band++) {
+            List<Ticket<P>> pair = this.takePair(band, now);
+            while (pair != null) {
+                this.pairing.accept(pair.get(0).player, pair.get(1).player);
+                pair = this.takePair(band, now);
+            }
+        }
+    }
+
+    /**
+     * Takes the player that waits the longest in a band together with the closest player of a higher band, if one of
+     * the two accepts the other. The lower band is locked before the higher band, such that two pairings never wait
+     * for each other.
+     *
+     * @return The two players, or null if the band has no player that can be paired.
+     */
+    private List<Ticket<P>> takePair(int band, long now) {
+        Band lower = this.bands.get(band);
+        if (lower.size == 0) {
+            return null;
+        }
+        lower.lock.lock();
+        try {
+            Ticket<P> first = lower.queue.peekFirst();
+            if (first == null) {
+                return null;
+            }
+            int reach = this.getReach(first, now);
+            for (int higher = band + 1; higher < BANDS; higher++) {
+                Band other = this.bands.get(higher);
+                if (other.size == 0) {
+                    continue;
+                }
+                other.lock.lock();
+                try {
+                    Ticket<P> second = other.queue.peekFirst();
+                    if (second != null &&
+                        higher - band <= Math.max(reach, this.getReach(second, now))) {
+                        lower.poll();
+                        other.poll();
+                        this.waiting.remove(first.player);
+                        this.waiting.remove(second.player);
+                        return List.of(first, second);
+                    }
+                } finally {
+                    other.lock.unlock();
+                }
+            }
+            return null;
+        } finally {
+            lower.lock.unlock();
+        }
+    }
+
+    /**
+     * @return The amount of bands away from its own band from which a waiting player accepts opponents.
+     */
+    private int getReach(Ticket<P> ticket, long now) {
+        return (int) Math.min(BANDS, (now - ticket.joined) / this.widenNanos);
+    }
+
+    /**
+     * The players of a band in the order in which they joined. The queue is only used while holding the lock, the
+     * size can be read without it to skip empty bands.
+     */
+    private final class Band {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<Ticket<P>> queue = new ArrayDeque<>();
+        private volatile int size;
+
+        private void add(Ticket<P> ticket) {
+            this.queue.addLast(ticket);
+            this.size = this.queue.size();
+        }
+
+        private Ticket<P> poll() {
+            Ticket<P> ticket = this.queue.pollFirst();
+            this.size = this.queue.size();
+            return ticket;
+        }
+
+        private boolean remove(Ticket<P> ticket) {
+            boolean removed = this.queue.remove(ticket);
+            this.size = this.queue.size();
+            return removed;
+        }
+    }
+
+    private static final class Ticket<P> {
+        private final P player;
+        private final int band;
+        private final long joined;
+
+        private Ticket(P player, int band, long joined) {
+            this.player = player;
+            this.band = band;
+            this.joined = joined;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package dt.server;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * The wins of all the players that have ever logged in, kept in memory. Every change is appended to a log file as a
+ * numbered record before it is applied, such that logging in and winning a game do not depend on the amount of
+ * players. Once enough records are logged, the log is compacted into the rank file on a background thread.
+ * <p>
+ * The rank file holds a line with the number of the last record it contains, followed by a line with the name and
+ * the wins of every player. When the store is loaded, the records of the log with a higher number are applied to it.
+ * A crash at any moment thus loses no win and counts no win twice. A record that was only written half is ignored.
+ */
+public class RankStore {
+    private static final Charset CHARSET = StandardCharsets.UTF_8;
+    private static final String SEQUENCEPREFIX = "#";
+    private static final String ADD = "ADD";
+    private static final String WIN = "WIN";
+    private static final int COMPACTAFTER = 1024; // Records in the log before it is compacted
+
+    private final Path rankFile;
+    private final Path logFile;
+    private final Map<String, Integer> wins;
+    private final Leaderboard leaderboard;
+    private final ReentrantLock lock;
+    private final ExecutorService compactor;
+    private FileChannel log;
+    private boolean persistent;
+    private volatile boolean compacting;
+    private long sequence;
+    private int logRecords;
+
+    /**
+     * Loads the store from the rank file and its log.
+     *
+     * @param rankFile The file in which the ranking is stored. The log is stored next to it.
+     * @ensures When the store could not be loaded, it is not persisted, such that the files are not overwritten
+     */
+    public RankStore(Path rankFile) {
+        this.rankFile = rankFile;
+        this.logFile = rankFile.resolveSibling(
+            rankFile.getFileName().toString().replaceFirst("\\.txt$", "") + ".log");
+        this.wins = new ConcurrentHashMap<>();
+        this.leaderboard = new Leaderboard();
+        this.lock = new ReentrantLock();
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "RankStore compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            long compacted = this.loadRankFile();
+            long logged = this.replayLog(compacted);
+            this.log = FileChannel.open(this.logFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.log.truncate(logged); // Drops a record that was only written half
+            this.log.position(logged);
+            this.persistent = true;
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @param username The name of a player.
+     * @return Whether the player is in the ranking.
+     */
+    public boolean contains(String username) {
+        return this.wins.containsKey(username);
+    }
+
+    /**
+     * @param username The name of a player.
+     * @return The amount of games the player has won, or null if the player is not in the ranking.
+     */
+    public Integer getWins(String username) {
+        return this.wins.get(username);
+    }
+
+    /**
+     * @return A copy of the wins of all the players.
+     */
+    public HashMap<String, Integer> getRanks() {
+        return new HashMap<>(this.wins);
+    }
+
+    /**
+     * @return All the players ordered by their wins.
+     */
+    public Leaderboard getLeaderboard() {
+        return this.leaderboard;
+    }
+
+    /**
+     * Adds a player with no wins, unless the player is already in the ranking.
+     *
+     * @param username The name of the player.
+     */
+    public void addPlayer(String username) {
+        if (!this.wins.containsKey(username)) {
+            this.record(ADD, username);
+        }
+    }
+
+    /**
+     * Adds a win to a player.
+     *
+     * @param username The name of the player.
+     * @ensures The win is written to the disk before this method returns
+     */
+    public void addWin(String username) {
+        this.record(WIN, username);
+    }
+
+    /**
+     * Logs a change and then applies it.
+     *
+     * @param operation Either ADD or WIN.
+     * @param username  The name of the player that is changed.
+     */
+    private void record(String operation, String username) {
+        this.lock.lock();
+        try {
+            if (operation.equals(ADD) && this.wins.containsKey(username)) {
+                return;
+            }
+            this.sequence++;
+            if (this.persistent) {
+                this.append(this.sequence + " " + operation + " " + username + "\n",
+                    operation.equals(WIN));
+            }
+            this.apply(operation, username);
+            if (++this.logRecords >= COMPACTAFTER && this.persistent && !this.compacting) {
+                this.compacting = true;
+                this.compactor.execute(this::compact);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a record to the log.
+     *
+     * @param record The record, ending in a newline.
+     * @param force  Whether the record has to be on the disk before this method returns.
+     */
+    private void append(String record, boolean force) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(record.getBytes(CHARSET));
+            while (buffer.hasRemaining()) {
+                this.log.write(buffer);
+            }
+            if (force) {
+                this.log.force(false);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void apply(String operation, String username) {
+        if (operation.equals(ADD)) {
+            this.setWins(username, this.wins.getOrDefault(username, 0));
+        } else if (operation.equals(WIN)) {
+            this.setWins(username, this.wins.getOrDefault(username, 0) + 1);
+        }
+    }
+
+    private void setWins(String username, int playerWins) {
+        this.wins.put(username, playerWins);
+        this.leaderboard.setWins(username, playerWins);
+    }
+
+    /**
+     * Writes all the wins to the rank file and removes the records it contains from the log. The log only has to be
+     * locked while the wins are copied and while the remainder of the log is moved.
+     */
+    private void compact() {
+        HashMap<String, Integer> ranks;
+        long compacted;
+        long logged;
+        int records;
+        this.lock.lock();
+        try {
+            ranks = new HashMap<>(this.wins);
+            compacted = this.sequence;
+            records = this.logRecords;
+            logged = this.log.position();
+        } catch (IOException e) {
+            e.printStackTrace();
+            this.compacting = false;
+            return;
+        } finally {
+            this.lock.unlock();
+        }
+
+        try {
+            this.writeRankFile(ranks, compacted);
+            this.lock.lock();
+            try {
+                this.truncateLog(logged);
+                this.logRecords -= records;
+            } finally {
+                this.lock.unlock();
+            }
+        } catch (IOException e) {
+            e.printStackTrace(); // The records stay in the log, so nothing is lost
+        } finally {
+            this.compacting = false;
+        }
+    }
+
+    /**
+     * Writes the rank file to a temporary file, which then replaces the rank file at once.
+     *
+     * @param ranks     The wins of all the players.
+     * @param compacted The number of the last record that is contained in the wins.
+     */
+    private void writeRankFile(Map<String, Integer> ranks, long compacted) throws IOException {
+        Path temporary = this.rankFile.resolveSibling(this.rankFile.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, CHARSET)) {
+            writer.write(SEQUENCEPREFIX + compacted);
+            writer.newLine();
+            for (Entry<String, Integer> entry : ranks.entrySet()) {
+                writer.write(entry.getKey() + " " + entry.getValue());
+                writer.newLine();
+            }
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, this.rankFile, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Replaces the log with the records that were appended after the given position.
+     *
+     * @param compacted The length of the log that is contained in the rank file.
+     */
+    private void truncateLog(long compacted) throws IOException {
+        long length = this.log.position();
+        ByteBuffer remainder = ByteBuffer.allocate((int) (length - compacted));
+        while (remainder.hasRemaining()) {
+            this.log.read(remainder, compacted + remainder.position());
+        }
+        remainder.flip();
+        Path temporary = this.logFile.resolveSibling(this.logFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (remainder.hasRemaining()) {
+                channel.write(remainder);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, this.logFile, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+        this.log.close();
+        this.log =
+            FileChannel.open(this.logFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.log.position(this.log.size());
+    }
+
+    /**
+     * Reads the rank file, if it exists.
+     *
+     * @return The number of the last record that is contained in the rank file.
+     */
+    private long loadRankFile() throws IOException {
+        long compacted = 0;
+        if (!Files.exists(this.rankFile)) {
+            return compacted;
+        }
+        for (String line : Files.readAllLines(this.rankFile, CHARSET)) {
+            line = line.trim();
+            int separator = line.lastIndexOf(' ');
+            if (line.startsWith(SEQUENCEPREFIX)) {
+                compacted = Long.parseLong(line.substring(SEQUENCEPREFIX.length()));
+            } else if (separator > 0) {
+                String name = line.substring(0, separator).trim();
+                if (!this.wins.containsKey(name)) {
+                    this.setWins(name, Integer.parseInt(line.substring(separator + 1)));
+                }
+            }
+        }
+        this.sequence = compacted;
+        return compacted;
+    }
+
+    /**
+     * Applies the records of the log that are not contained in the rank file yet.
+     *
+     * @param compacted The number of the last record that is contained in the rank file.
+     * @return The length of the log up to the end of the last complete record.
+     */
+    private long replayLog(long compacted) throws IOException {
+        if (!Files.exists(this.logFile)) {
+            return 0;
+        }
+        byte[] bytes = Files.readAllBytes(this.logFile);
+        int complete = 0;
+        while (complete < bytes.length && bytes[bytes.length - complete - 1] != '\n') {
+            complete++;
+        }
+        complete = bytes.length - complete;
+        for (String record : new String(bytes, 0, complete, CHARSET).split("\n")) {
+            String[] parts = record.split(" ", 3);
+            if (parts.length != 3 || !parts[0].matches("\\d+")) {
+                continue;
+            }
+            long number = Long.parseLong(parts[0]);
+            if (number > compacted) {
+                this.apply(parts[1], parts[2]);
+                this.sequence = Math.max(this.sequence, number);
+            }
+            this.logRecords++;
+        }
+        return complete;
+    }
+
+    /**
+     * Compacts the log and closes it. Changes after this are only kept in memory.
+     */
+    public void close() {
+        this.compactor.shutdown();
+        try {
+            this.compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.lock.lock();
+        try {
+            if (this.persistent) {
+                this.compacting = true;
+                this.compact();
+                this.persistent = false;
+                this.log.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
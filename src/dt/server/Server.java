@@ -2,13 +2,20 @@ package dt.server;
 
 
 import dt.exceptions.UserExit;
+import dt.peer.ReaderThreads;
+import dt.peer.SelectorLoop;
 
 import java.io.*;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Emiel Rous and Wouter Koning
@@ -16,8 +23,10 @@ import java.util.Map.Entry;
  */
 public class Server {
     private final static File rankFile = new File("src/dt/server/Ranking.txt");
-    private final List<ClientHandler> connectedClients;
-    private final List<String> loggedinUsers;
+    private final static RankStore rankStore = new RankStore(rankFile.toPath());
+    private final static int WORKERS = Runtime.getRuntime().availableProcessors();
+    private final Set<ClientHandler> connectedClients; // Changed by the reader thread of every client
+    private final Set<String> loggedinUsers;
     private final ServerTUI view;
     private final GameManager gameManager;
     private final String serverName;
@@ -25,21 +34,26 @@ public class Server {
     private final boolean rankEnabled;
     private final boolean cryptEnabled;
     private final boolean authEnabled;
+    private final CountDownLatch listening; // Counted down once clients can connect
     private Integer port;
     private ServerSocket serverSocket;
+    private ServerSocketChannel serverChannel;
     private boolean debug;
+    private boolean nonBlocking;
 
     public Server() {
         this.view = new ServerTUI(this);
         this.gameManager = new GameManager();
-        this.connectedClients = new ArrayList<>();
-        this.loggedinUsers = new ArrayList<>();
+        this.connectedClients = ConcurrentHashMap.newKeySet();
+        this.loggedinUsers = ConcurrentHashMap.newKeySet();
         this.serverName = "Wouter en Emiels meest awesome server evvur";
         this.chatEnabled = true;
         this.rankEnabled = true;
         this.cryptEnabled = false;
         this.authEnabled = false;
         this.debug = false;
+        this.nonBlocking = false;
+        this.listening = new CountDownLatch(1);
     }
 
     /**
@@ -52,32 +66,37 @@ public class Server {
             if (Arrays.asList(args).contains("debug")) {
                 server.setDebug(true);
             }
+            if (Arrays.asList(args).contains("nio")) {
+                server.setNonBlocking(true);
+            }
+            if (Arrays.asList(args).contains("virtual") && !ReaderThreads.setVirtual(true)) {
+                System.out.println("Virtual threads are not available, using platform threads");
+            }
         }
         server.start();
     }
 
 
     /**
-     * This method scans the file in which the rankings are stored, and then puts all of those names and rankings
-     * in a {@link HashMap} and returns that.
-     *
      * @return A {@link HashMap} with all the players in it and their rankings.
      */
     public static HashMap<String, Integer> getRankAsHashMap() {
+        return rankStore.getRanks();
+    }
 
-        HashMap<String, Integer> scores = new HashMap<>();
-        try {
-            Scanner scanner = new Scanner(new FileInputStream(rankFile));
-            while (scanner.hasNextLine() && scanner.hasNext()) {
-                String name = scanner.next();
-                int wins = scanner.nextInt();
-                scores.putIfAbsent(name, wins);
-            }
+    /**
+     * @param username The username of a player.
+     * @return Whether the player is in the ranking system.
+     */
+    public static boolean isRanked(String username) {
+        return rankStore.contains(username);
+    }
 
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        }
-        return scores;
+    /**
+     * @return All the players of the ranking system ordered by their wins.
+     */
+    public static Leaderboard getLeaderboard() {
+        return rankStore.getLeaderboard();
     }
 
     /**
@@ -86,9 +105,7 @@ public class Server {
      * @param username The username of the player to be added.
      */
     public static void addNewPlayer(String username) {
-        HashMap<String, Integer> scores = getRankAsHashMap();
-        scores.putIfAbsent(username, 0);
-        storeRanksInFile(scores);
+        rankStore.addPlayer(username);
     }
 
     /**
@@ -97,41 +114,40 @@ public class Server {
      * @param username The winner of the game, whose ranking is now increased.
      */
     public static void increaseScore(String username) {
-        HashMap<String, Integer> scores = getRankAsHashMap();
-        int wins = scores.get(username);
-        scores.put(username, wins + 1);
-        storeRanksInFile(scores);
+        rankStore.addWin(username);
     }
 
     /**
-     * Writes all the scores of the ranking system to a file.
-     *
-     * @param scores A {@link HashMap} with all the usernames and their scores.
+     * Writes the whole ranking system to its file. Changes after this are not stored anymore.
      */
-    private static void storeRanksInFile(HashMap<String, Integer> scores) {
-        try {
-            BufferedWriter writer = new BufferedWriter(new PrintWriter(rankFile));
-            for (Entry<String, Integer> entry : scores.entrySet()) {
-                writer.write(entry.getKey() + " " + entry.getValue());
-                writer.newLine();
-                writer.flush();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
+    public static void closeRanking() {
+        rankStore.close();
     }
 
     private void setDebug(boolean b) {
         this.debug = true;
     }
 
+    /**
+     * Sets whether the server serves all clients with a {@link SelectorLoop} and a few worker threads, instead of
+     * with a thread per client. The messages that are sent and received are the same in both modes.
+     *
+     * @param nonBlocking Whether the server should use non-blocking channels.
+     */
+    public void setNonBlocking(boolean nonBlocking) {
+        this.nonBlocking = nonBlocking;
+    }
+
     /**
      * The continuous loop that the server is running in, where it accepts clients and adds them to the list
      * of connected clients.
      */
     public void start() {
         setup();
+        if (this.nonBlocking) {
+            this.startSelectorLoop();
+            return;
+        }
         while (true) {
             try {
                 Socket clientSocket = serverSocket.accept();
@@ -146,6 +162,32 @@ public class Server {
         }
     }
 
+    /**
+     * Serves all the clients with a {@link SelectorLoop} on the current thread, which hands their messages to a
+     * fixed amount of worker threads.
+     */
+    private void startSelectorLoop() {
+        try {
+            new SelectorLoop(this.serverChannel, this::acceptChannel, WORKERS).run();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Creates a {@link ClientHandler} for a client that connected to the {@link SelectorLoop}, and adds it to the
+     * list of connected clients.
+     *
+     * @param channel The non-blocking channel of the client.
+     * @param loop    The loop that serves the channel.
+     */
+    private void acceptChannel(SocketChannel channel, SelectorLoop loop) {
+        ClientHandler handler =
+            new ClientHandler(this, this.gameManager, this.view, channel, loop, this.debug);
+        this.connectedClients.add(handler);
+        view.showMessage("New client: [" + handler.getName() + "] connected!");
+    }
+
     /**
      * Performs the setup of the server. The user receives feedback at what state of starting up the server is.
      * It is possible that the user gets an error message that the server could not start due to an
@@ -154,7 +196,8 @@ public class Server {
     private void setup() {
         new Thread(view).start();
         serverSocket = null;
-        while (serverSocket == null) {
+        serverChannel = null;
+        while (serverSocket == null && serverChannel == null) {
             try {
                 try {
                     synchronized (this) {
@@ -163,8 +206,22 @@ public class Server {
                         }
                     }
                     view.showMessage("Starting a server on port: " + this.port + "...");
-                    serverSocket = new ServerSocket(port, 0, InetAddress.getByName("localhost"));
+                    if (this.nonBlocking) {
+                        ServerSocketChannel channel = ServerSocketChannel.open();
+                        try {
+                            channel.bind(
+                                new InetSocketAddress(InetAddress.getByName("localhost"), port));
+                        } catch (IOException e) {
+                            channel.close();
+                            throw e;
+                        }
+                        serverChannel = channel;
+                    } else {
+                        serverSocket =
+                            new ServerSocket(port, 0, InetAddress.getByName("localhost"));
+                    }
                     view.showMessage("Server is started!");
+                    this.listening.countDown();
 
                     //Signaling that the server is started
                     synchronized (view) {
@@ -191,20 +248,34 @@ public class Server {
         }
     }
 
+    /**
+     * Waits until the server is listening on its port, such that clients can connect to it.
+     *
+     * @param timeout The longest time to wait.
+     * @param unit    The unit of the timeout.
+     * @return Whether the server is listening, which is false if the timeout passed first.
+     * @throws InterruptedException If the thread was interrupted while waiting.
+     */
+    public boolean awaitListening(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.listening.await(timeout, unit);
+    }
+
     /**
      * @return Returns a list of logged in users.
      */
     public List<String> getLoggedInUsers() {
-        return this.loggedinUsers;
+        return new ArrayList<>(this.loggedinUsers);
     }
 
     /**
-     * Adds a user to the users that is logged in.
+     * Adds a user to the users that is logged in, unless a user with the same name is already logged in. The check
+     * and the addition are done at once, such that two clients can never log in with the same name.
      *
      * @param name The name of the user to be added to the list of logged in users.
+     * @return Whether the user was added, which is false if the name was already logged in.
      */
-    public void addUserToLoggedInList(String name) {
-        this.loggedinUsers.add(name);
+    public boolean addUserToLoggedInList(String name) {
+        return this.loggedinUsers.add(name);
     }
 
     /**
@@ -250,9 +321,9 @@ public class Server {
     }
 
     /**
-     * @return A list of {@link ClientHandler} that are currently connected to the server.
+     * @return The {@link ClientHandler}s that are currently connected to the server.
      */
-    public List<ClientHandler> getAllClientHandler() {
+    public Collection<ClientHandler> getAllClientHandler() {
         return this.connectedClients;
     }
 
@@ -278,6 +349,13 @@ public class Server {
         return this.chatEnabled;
     }
 
+    /**
+     * @return A line with the metrics of the games and the boards that are ready for new games.
+     */
+    public String getStatistics() {
+        return this.gameManager.getStatistics();
+    }
+
     /**
      * @return returns whether ranking is enabled for this server or not.
      */
@@ -304,6 +382,7 @@ public class Server {
      */
     public void shutDown() {
         this.connectedClients.forEach(ClientHandler::serverShutdown);
+        closeRanking();
         this.view.showMessage("Server is shutting down. Cya lator aligator");
         System.exit(69);
     }
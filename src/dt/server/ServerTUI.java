@@ -7,6 +7,7 @@ import dt.util.SimpleTUI;
  * @author Emiel Rous and Wouter Koning
  */
 public class ServerTUI extends SimpleTUI {
+    private static final String STATISTICS = "stats";
     private final Server server;
 
     public ServerTUI(Server server) {
@@ -32,7 +33,9 @@ public class ServerTUI extends SimpleTUI {
             }
 
             while (true) {
-                getString("");
+                if (getString("").equals(STATISTICS)) {
+                    showMessage(server.getStatistics());
+                }
             }
         } catch (UserExit | InterruptedException e) {
             server.shutDown();
@@ -0,0 +1,56 @@
+package dt.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * A fixed amount of single threaded executors, the shards, on which games are run. Every game is owned by one shard,
+ * which runs all the moves, disconnects and game overs of that game in the order in which they were handed to it.
+ * The state of a game is thus only touched by one thread and does not need any locks, while the games of different
+ * shards are run in parallel.
+ */
+public class SessionScheduler {
+    private final List<ExecutorService> shards;
+
+    /**
+     * @param shards The amount of threads on which the games are run.
+     * @requires shards > 0
+     */
+    public SessionScheduler(int shards) {
+        this.shards = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            String name = "Game shard " + i;
+            this.shards.add(Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            }));
+        }
+    }
+
+    /**
+     * @param id The id of a game.
+     * @return The shard that owns the game. A game with the same id always gets the same shard.
+     */
+    public Executor getShard(long id) {
+        return this.shards.get((int) Math.floorMod(id, (long) this.shards.size()));
+    }
+
+    /**
+     * @return The amount of shards.
+     */
+    public int size() {
+        return this.shards.size();
+    }
+
+    /**
+     * Stops the shards. Tasks that were not run yet are dropped.
+     */
+    public void shutDown() {
+        this.shards.forEach(ExecutorService::shutdownNow);
+    }
+}
@@ -1,24 +1,42 @@
 package dt.util;
 
-import java.util.Objects;
-
 /**
  * @author Emiel Rous and Wouter Koning
  * This a class that is used for transferring the moves across various classes in the system. The introduction of
  * this class meant that there was no need for methods specifically for double and single moves across the system.
+ * <p>
+ * Every legal move also has a code between 0 and {@link Move#CODES}, which the search uses instead of creating
+ * objects: a single move is encoded as its shift id and a double move as {@link Move#SINGLEMOVES} plus the first
+ * shift id times {@link Move#SINGLEMOVES} plus the second shift id. {@link Move#decode(int)} returns a shared
+ * instance for every code, so no moves need to be created to hand a code to the rest of the system.
  */
 public class Move {
+    public static final int SINGLEMOVES = 28;
+    public static final int CODES = SINGLEMOVES + SINGLEMOVES * SINGLEMOVES;
+
+    private static final int NOMOVE = Integer.MIN_VALUE;
+    private static final Move[] MOVES = new Move[CODES];
+
+    static {
+        for (int move1 = 0; move1 < SINGLEMOVES; move1++) {
+            MOVES[move1] = new Move(move1);
+            for (int move2 = 0; move2 < SINGLEMOVES; move2++) {
+                MOVES[encode(move1, move2)] = new Move(move1, move2);
+            }
+        }
+    }
 
-    private Integer move1 = null;
-    private Integer move2 = null;
+    private final int move1;
+    private final int move2;
 
     public Move(Move move) {
-        this.move1 = move.getMove1();
-        this.move2 = move.getMove2();
+        this.move1 = move.move1;
+        this.move2 = move.move2;
     }
 
     public Move(int move1) {
         this.move1 = move1;
+        this.move2 = NOMOVE;
     }
 
     public Move(int move1, int move2) {
@@ -26,13 +44,78 @@ public class Move {
         this.move2 = move2;
     }
 
+    /**
+     * Returns the shared instance of an encoded move.
+     *
+     * @param code The code of the move.
+     * @return The move with the code.
+     * @requires 0 <= code < {@link Move#CODES}
+     */
+    public static Move decode(int code) {
+        return MOVES[code];
+    }
+
+    /**
+     * @param move1 The shift id of a single move.
+     * @return The code of the single move.
+     * @requires 0 <= move1 < {@link Move#SINGLEMOVES}
+     */
+    public static int encode(int move1) {
+        return move1;
+    }
+
+    /**
+     * @param move1 The shift id of the first shift of a double move.
+     * @param move2 The shift id of the second shift of a double move.
+     * @return The code of the double move.
+     * @requires 0 <= move1, move2 < {@link Move#SINGLEMOVES}
+     */
+    public static int encode(int move1, int move2) {
+        return SINGLEMOVES + move1 * SINGLEMOVES + move2;
+    }
+
+    /**
+     * @param code The code of a move.
+     * @return Whether the encoded move is a double move.
+     */
+    public static boolean isDoubleMove(int code) {
+        return code >= SINGLEMOVES;
+    }
+
+    /**
+     * @param code The code of a move.
+     * @return The shift id of the first shift of the encoded move.
+     */
+    public static int getMove1(int code) {
+        return code < SINGLEMOVES ? code : (code - SINGLEMOVES) / SINGLEMOVES;
+    }
+
+    /**
+     * @param code The code of a double move.
+     * @return The shift id of the second shift of the encoded move.
+     * @requires isDoubleMove(code)
+     */
+    public static int getMove2(int code) {
+        return (code - SINGLEMOVES) % SINGLEMOVES;
+    }
+
+    /**
+     * Returns the code of this move, which can be turned back into an equal move by {@link Move#decode(int)}.
+     *
+     * @return The code of this move.
+     * @requires this.isLegal()
+     */
+    public int getCode() {
+        return isDoubleMove() ? encode(this.move1, this.move2) : encode(this.move1);
+    }
+
     /**
      * Returns whether this move instance is a double move or not.
      *
      * @return Whether the move is a double move or not.
      */
     public boolean isDoubleMove() {
-        return this.move2 != null;
+        return this.move2 != NOMOVE;
     }
 
     /**
@@ -47,10 +130,10 @@ public class Move {
     /**
      * A get method for the second move
      *
-     * @return the second move of the Move
+     * @return the second move of the Move, or null if it is a single move
      */
     public Integer getMove2() {
-        return this.move2;
+        return isDoubleMove() ? this.move2 : null;
     }
 
     /**
@@ -77,8 +160,12 @@ public class Move {
             return false;
         }
         Move move = (Move) obj;
-        return Objects.equals(move1, move.move1) &&
-            Objects.equals(move2, move.move2);
+        return this.move1 == move.move1 && this.move2 == move.move2;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.move1 + this.move2;
     }
 
     @Override
@@ -0,0 +1,128 @@
+package dt.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * A reusable buffer of encoded moves, see {@link Move#getCode()}, which a board can fill without creating any
+ * objects. A search keeps one list per ply and clears it for every position, instead of creating a new
+ * {@link List} of {@link Move} objects for every position it visits.
+ * <p>
+ * Next to every move the list keeps a priority, by which the moves can be sorted.
+ */
+public class MoveList {
+    private final int[] moves;
+    private final long[] priorities;
+    private int size;
+
+    public MoveList() {
+        this.moves = new int[Move.CODES]; // Enough for every move to be valid at once
+        this.priorities = new long[Move.CODES];
+        this.size = 0;
+    }
+
+    /**
+     * Removes all the moves from the list.
+     */
+    public void clear() {
+        this.size = 0;
+    }
+
+    /**
+     * @param code The code of the move to be added to the end of the list.
+     */
+    public void add(int code) {
+        this.moves[this.size++] = code;
+    }
+
+    /**
+     * @param index The index of a move in the list.
+     * @return The code of the move.
+     * @requires 0 <= index < size()
+     */
+    public int get(int index) {
+        return this.moves[index];
+    }
+
+    /**
+     * @return The amount of moves in the list.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return Whether the list holds no moves.
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * @param code The code of a move.
+     * @return The index of the first occurrence of the move in the list, or -1 if it is not in the list.
+     */
+    public int indexOf(int code) {
+        for (int i = 0; i < this.size; i++) {
+            if (this.moves[i] == code) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Moves a move to the front of the list, keeping the order of the other moves.
+     *
+     * @param index The index of the move.
+     * @requires 0 <= index < size()
+     */
+    public void moveToFront(int index) {
+        int code = this.moves[index];
+        long priority = this.priorities[index];
+        System.arraycopy(this.moves, 0, this.moves, 1, index);
+        System.arraycopy(this.priorities, 0, this.priorities, 1, index);
+        this.moves[0] = code;
+        this.priorities[0] = priority;
+    }
+
+    /**
+     * @param index    The index of a move in the list.
+     * @param priority The priority of the move, by which {@link MoveList#sortByPriority()} sorts.
+     * @requires 0 <= index < size()
+     */
+    public void setPriority(int index, long priority) {
+        this.priorities[index] = priority;
+    }
+
+    /**
+     * Sorts the moves from the highest to the lowest priority. Moves with the same priority keep their order.
+     */
+    public void sortByPriority() {
+        // Insertion sort, as most positions only have a few moves
+        for (int i = 1; i < this.size; i++) {
+            int code = this.moves[i];
+            long priority = this.priorities[i];
+            int j = i;
+            while (j > 0 && this.priorities[j - 1] < priority) {
+                this.moves[j] = this.moves[j - 1];
+                this.priorities[j] = this.priorities[j - 1];
+                j--;
+            }
+            this.moves[j] = code;
+            this.priorities[j] = priority;
+        }
+    }
+
+    /**
+     * @return The moves in the list, as the shared instances of {@link Move#decode(int)}.
+     */
+    public List<Move> toList() {
+        List<Move> list = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            list.add(Move.decode(this.moves[i]));
+        }
+        return list;
+    }
+}
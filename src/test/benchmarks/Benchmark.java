@@ -0,0 +1,199 @@
+package benchmarks;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * A small harness that measures how long an operation takes and how much memory it allocates, without any
+ * libraries outside of the JDK. Every benchmark is warmed up first, such that the JIT compiler has optimized the
+ * code, after which a fixed amount of measurement iterations is run. The allocated memory is read from the
+ * {@link com.sun.management.ThreadMXBean} for all live threads, such that the work an operation hands to other
+ * threads is included, and the garbage collections from the {@link GarbageCollectorMXBean}s. Memory allocated by
+ * threads that end during an iteration is not counted.
+ * <p>
+ * A benchmark can set up what its operation works on before every iteration and tear it down afterwards, outside
+ * of the measurement.
+ */
+public class Benchmark {
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final int BATCHSIZE = 64; // Operations between two looks at the clock
+    private static final Runnable NOTHING = () -> {
+    };
+    private static volatile long sink; // Keeps the JIT compiler from removing the work of the operations
+
+    private final String name;
+    private final Runnable setUp;
+    private final Operation operation;
+    private final Runnable tearDown;
+    private final int warmupIterations;
+    private final int iterations;
+    private final long iterationMillis;
+
+    /**
+     * Creates a benchmark of an operation.
+     *
+     * @param name             The name that is shown in the results.
+     * @param operation        The operation to be measured.
+     * @param warmupIterations The amount of iterations that are run before measuring.
+     * @param iterations       The amount of iterations that are measured.
+     * @param iterationMillis  The least amount of milliseconds an iteration takes. An iteration runs the operation at
+     *                         least once, so with 0 every iteration runs the operation exactly once.
+     * @requires iterations > 0 && warmupIterations >= 0 && iterationMillis >= 0
+     */
+    public Benchmark(String name, Operation operation, int warmupIterations, int iterations,
+                     long iterationMillis) {
+        this(name, NOTHING, operation, NOTHING, warmupIterations, iterations, iterationMillis);
+    }
+
+    /**
+     * Creates a benchmark of an operation that needs to be set up before every iteration.
+     *
+     * @param name             The name that is shown in the results.
+     * @param setUp            Prepares what the operation works on, before every iteration.
+     * @param operation        The operation to be measured.
+     * @param tearDown         Releases what the set up prepared, after every iteration.
+     * @param warmupIterations The amount of iterations that are run before measuring.
+     * @param iterations       The amount of iterations that are measured.
+     * @param iterationMillis  The least amount of milliseconds an iteration takes. An iteration runs the operation at
+     *                         least once, so with 0 every iteration runs the operation exactly once.
+     * @requires iterations > 0 && warmupIterations >= 0 && iterationMillis >= 0
+     */
+    public Benchmark(String name, Runnable setUp, Operation operation, Runnable tearDown,
+                     int warmupIterations, int iterations, long iterationMillis) {
+        this.name = name;
+        this.setUp = setUp;
+        this.operation = operation;
+        this.tearDown = tearDown;
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+        this.iterationMillis = iterationMillis;
+    }
+
+    /**
+     * @return The name of the benchmark.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Runs the warmup and measurement iterations of the benchmark.
+     *
+     * @return A line with the average time per operation, with its standard deviation over the iterations, the
+     * allocated bytes per operation, the allocation rate and the garbage collections during the measurement.
+     */
+    public String run() {
+        for (int i = 0; i < this.warmupIterations; i++) {
+            this.runIteration();
+        }
+
+        double[] nanosPerOperation = new double[this.iterations];
+        long totalOperations = 0;
+        long totalNanos = 0;
+        long allocated = 0;
+        long[] gc = new long[2];
+        for (int i = 0; i < this.iterations; i++) {
+            long[] iteration = this.runIteration();
+            nanosPerOperation[i] = (double) iteration[1] / iteration[0];
+            totalOperations += iteration[0];
+            totalNanos += iteration[1];
+            allocated += iteration[2];
+            gc[0] += iteration[3];
+            gc[1] += iteration[4];
+        }
+
+        double mean = 0;
+        for (double nanos : nanosPerOperation) {
+            mean += nanos / this.iterations;
+        }
+        double variance = 0;
+        for (double nanos : nanosPerOperation) {
+            variance += (nanos - mean) * (nanos - mean) / Math.max(1, this.iterations - 1);
+        }
+        double megabytesPerSecond = allocated / 1e6 / (totalNanos / 1e9);
+        return String.format("%-40s %14.1f +- %10.1f ns/op %12.1f B/op %9.1f MB/s  gc: %d (%d ms)",
+            this.name, mean, Math.sqrt(variance), (double) allocated / totalOperations,
+            megabytesPerSecond, gc[0], gc[1]);
+    }
+
+    /**
+     * Sets up the operation, runs it in batches until the iteration has taken long enough and tears it down.
+     *
+     * @return The amount of operations that were run, the nanoseconds that they took, the bytes they allocated and
+     * the amount and milliseconds of the garbage collections while they ran.
+     */
+    private long[] runIteration() {
+        this.setUp.run();
+        long result = 0;
+        long operations = 0;
+        long threadId = Thread.currentThread().getId();
+        Map<Long, Long> allocatedBefore = allocatedBytes();
+        long[] gcBefore = collectionStatistics();
+        long ownAllocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long end = start + this.iterationMillis * 1_000_000;
+        long now;
+        do {
+            int batch = this.iterationMillis == 0 ? 1 : BATCHSIZE;
+            for (int i = 0; i < batch; i++) {
+                result += this.operation.run();
+            }
+            operations += batch;
+            now = System.nanoTime();
+        } while (now < end);
+        // The own thread is read separately, such that the look at the other threads is not counted
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - ownAllocatedBefore;
+        long[] gcAfter = collectionStatistics();
+        for (Map.Entry<Long, Long> thread : allocatedBytes().entrySet()) {
+            if (thread.getKey() != threadId) {
+                allocated += thread.getValue() - allocatedBefore.getOrDefault(thread.getKey(), 0L);
+            }
+        }
+        sink = result;
+        this.tearDown.run();
+        return new long[]{operations, now - start, allocated, gcAfter[0] - gcBefore[0],
+            gcAfter[1] - gcBefore[1]};
+    }
+
+    /**
+     * @return The amount of bytes every live thread has allocated since it started, by the id of the thread.
+     */
+    private static Map<Long, Long> allocatedBytes() {
+        long[] ids = THREADS.getAllThreadIds();
+        long[] bytes = THREADS.getThreadAllocatedBytes(ids);
+        Map<Long, Long> allocated = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0) { // -1 for a thread that ended in the meantime
+                allocated.put(ids[i], bytes[i]);
+            }
+        }
+        return allocated;
+    }
+
+    /**
+     * @return The total amount of garbage collections and the total milliseconds they took, since the start of
+     * the JVM.
+     */
+    private static long[] collectionStatistics() {
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        long[] statistics = new long[2];
+        for (GarbageCollectorMXBean collector : collectors) {
+            statistics[0] += Math.max(0, collector.getCollectionCount());
+            statistics[1] += Math.max(0, collector.getCollectionTime());
+        }
+        return statistics;
+    }
+
+    /**
+     * An operation that is measured by a {@link Benchmark}. It returns a value that depends on its work, such that
+     * the work can not be optimized away.
+     */
+    public interface Operation {
+        long run();
+    }
+}
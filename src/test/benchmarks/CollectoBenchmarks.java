@@ -0,0 +1,269 @@
+package benchmarks;
+
+import dt.ai.AI;
+import dt.ai.AITypes;
+import dt.ai.EndgameSolver;
+import dt.ai.MCTSAI;
+import dt.ai.MiniMaxAI2;
+import dt.ai.OpeningBook;
+import dt.model.BallType;
+import dt.model.Board;
+import dt.model.LineShifts;
+import dt.model.Sequence;
+import dt.model.ServerBoard;
+import dt.util.Move;
+import modelTests.GamePositions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.regex.Pattern;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * The benchmarks of the hot paths of the {@link Board}, the {@link Sequence}, the {@link LineShifts}, the
+ * {@link ServerBoard}, the {@link OpeningBook} and the AIs.
+ * All the positions are created from a fixed starting board by making random moves with a fixed seed, such that
+ * every run measures the same work and the results of different versions can be compared to catch regressions.
+ * <p>
+ * Run the main method with a regular expression as argument to only run the benchmarks whose name matches it. The
+ * allocations of all threads are measured, so those of the worker threads of a parallel AI are included. The AIs are
+ * created before every iteration, outside of the measurement, such that creating their tables is not measured.
+ */
+public class CollectoBenchmarks {
+    private static final int[] STARTBOARD = {
+        2, 6, 4, 2, 4, 3, 2,
+        3, 1, 3, 1, 3, 6, 3,
+        5, 4, 6, 4, 5, 1, 6,
+        3, 6, 4, 0, 1, 4, 3,
+        5, 1, 5, 2, 6, 5, 6,
+        3, 5, 2, 5, 1, 6, 4,
+        4, 2, 1, 2, 5, 2, 1
+    };
+    private static final long SEED = 20210120L;
+    private static final int POSITIONS = 8;
+    private static final int[] AIPOSITIONS = {2, 4, 6}; // Indices of the positions the AIs search
+    private static final int LATEGAMEBALLS = 28;
+    private static final long LATEGAMEBUDGET = 3000; // Milliseconds, used up if not solved
+    private static final int BOOKPOSITIONS = 1 << 20;
+
+    private static final int WARMUPITERATIONS = 5;
+    private static final int ITERATIONS = 10;
+    private static final long ITERATIONMILLIS = 200;
+    private static final int AIWARMUPITERATIONS = 1;
+    private static final int AIITERATIONS = 3;
+
+    /**
+     * @param args An optional regular expression that the names of the benchmarks to be run have to match.
+     */
+    public static void main(String[] args) {
+        Pattern filter = Pattern.compile(args.length > 0 ? args[0] : ".*");
+        System.out.println("# " + System.getProperty("java.vm.name") + " " +
+            System.getProperty("java.version") + ", " +
+            Runtime.getRuntime().availableProcessors() + " processors, seed " + SEED);
+        for (Benchmark benchmark : createBenchmarks()) {
+            if (filter.matcher(benchmark.getName()).find()) {
+                System.out.println(benchmark.run());
+            }
+        }
+    }
+
+    /**
+     * Creates positions from the start of a game to close to its end, by making random valid moves with a fixed seed.
+     *
+     * @return The board states of the positions. Every next position is two moves further in the game.
+     */
+    public static List<int[]> createPositions() {
+        SplittableRandom random = new SplittableRandom(SEED);
+        Board board = new Board();
+        board.fillBoard(STARTBOARD);
+        List<int[]> positions = new ArrayList<>();
+        positions.add(board.getBoardState());
+        while (positions.size() < POSITIONS) {
+            for (int i = 0; i < 2; i++) {
+                List<Move> validMoves = board.findValidMoves();
+                if (!validMoves.isEmpty()) {
+                    board.apply(validMoves.get(random.nextInt(validMoves.size())));
+                }
+            }
+            positions.add(board.getBoardState());
+        }
+        return positions;
+    }
+
+    /**
+     * Creates a position close to the end of a game, by making random valid moves with a fixed seed from the start
+     * until at most a given amount of balls is left.
+     *
+     * @param maxBalls The highest amount of balls that may be left on the board.
+     * @return The board state of the position.
+     */
+    public static int[] createEndgame(int maxBalls) {
+        Board board = new Board();
+        board.fillBoard(STARTBOARD);
+        GamePositions.playRandomly(board, new SplittableRandom(SEED), maxBalls);
+        return board.getBoardState();
+    }
+
+    /**
+     * Stores an opening book with random positions and the positions of the boards, in a file that is deleted when
+     * the benchmarks are done.
+     *
+     * @param boards The boards of which the first valid move is stored in the book.
+     * @return The file of the book.
+     */
+    private static Path createOpeningBook(Board[] boards) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        Map<Long, Integer> moves = new HashMap<>();
+        while (moves.size() < BOOKPOSITIONS) {
+            moves.put(random.nextLong(), random.nextInt(Move.CODES));
+        }
+        for (Board board : boards) {
+            moves.put(board.getHash(), board.findValidMoves().get(0).getCode());
+        }
+        try {
+            Path file = Files.createTempFile("openings", ".book");
+            file.toFile().deleteOnExit();
+            OpeningBook.write(file, moves);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param file The file of the book.
+     * @return The book that is stored in the file.
+     */
+    private static OpeningBook openOpeningBook(Path file) {
+        try {
+            return OpeningBook.open(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates all the benchmarks, in the order in which they are run.
+     *
+     * @return The benchmarks.
+     */
+    private static List<Benchmark> createBenchmarks() {
+        List<int[]> positions = createPositions();
+        Board[] boards = new Board[positions.size()];
+        for (int i = 0; i < boards.length; i++) {
+            boards[i] = new Board();
+            boards[i].fillBoard(positions.get(i));
+        }
+        int[] counter = new int[1];
+        List<Benchmark> benchmarks = new ArrayList<>();
+
+        benchmarks.add(timed("Board.fillBoard", () -> {
+            Board board = boards[0];
+            board.fillBoard(positions.get(counter[0]++ % positions.size()));
+            return board.getHash();
+        }));
+        Board shiftBoard = new Board();
+        shiftBoard.fillBoard(STARTBOARD);
+        benchmarks.add(timed("Board.executeMove", () -> {
+            shiftBoard.executeMove(counter[0]++ % 28);
+            return shiftBoard.getHash();
+        }));
+        benchmarks.add(timed("Board.getYield", () ->
+            boards[counter[0]++ % boards.length].getYield().size()));
+        benchmarks.add(timed("Board.findValidMoves", () ->
+            boards[counter[0]++ % boards.length].findValidMoves().size()));
+        benchmarks.add(timed("Board.deepCopy", () ->
+            boards[counter[0]++ % boards.length].deepCopy().getHash()));
+
+        List<BallType> line = List.of(BallType.BLUE, BallType.EMPTY, BallType.RED, BallType.EMPTY,
+            BallType.GREEN, BallType.YELLOW, BallType.EMPTY);
+        List<BallType> balls = new ArrayList<>(line);
+        Sequence sequence = new Sequence(balls);
+        benchmarks.add(timed("Sequence.shiftLeftOrUp", () -> {
+            for (int i = 0; i < line.size(); i++) { // The shift changes the line, so it is reset first
+                balls.set(i, line.get(i));
+            }
+            sequence.shiftLeftOrUp();
+            return balls.get(0).ordinal();
+        }));
+        benchmarks.add(timed("Sequence.shiftRightOrdown", () -> {
+            for (int i = 0; i < line.size(); i++) {
+                balls.set(i, line.get(i));
+            }
+            sequence.shiftRightOrdown();
+            return balls.get(balls.size() - 1).ordinal();
+        }));
+        long packedLine = LineShifts.pack(line, false);
+        benchmarks.add(timed("LineShifts.shiftTowardsStart", () ->
+            LineShifts.shiftTowardsStart(packedLine)));
+
+        ServerBoard serverBoard = new ServerBoard(new SplittableRandom(SEED));
+        benchmarks.add(timed("ServerBoard.createBoard", () -> serverBoard.createBoard()[0]));
+        benchmarks.add(timed("ServerBoard.setupBoard", () -> {
+            serverBoard.setupBoard();
+            return serverBoard.getHash();
+        }));
+
+        Path bookFile = createOpeningBook(boards);
+        benchmarks.add(timed("OpeningBook.open", () -> openOpeningBook(bookFile).getSize()));
+        OpeningBook book = openOpeningBook(bookFile);
+        benchmarks.add(timed("OpeningBook.probe", () -> book.probe(boards[0]).getCode()));
+
+        AI[] ai = new AI[1]; // A new AI for every iteration, like at the start of a game
+        Runnable releaseAI = () -> {
+            ai[0].shutDown();
+            ai[0] = null;
+        };
+        for (AITypes type : AITypes.values()) {
+            if (type == AITypes.HUMAN) {
+                continue; // A human does not need to be measured
+            }
+            String name = "AI." + type + ".findBestMove";
+            benchmarks.add(new Benchmark(name, () -> ai[0] = type.getAIClass(), () -> {
+                long result = 0;
+                for (int index : AIPOSITIONS) {
+                    Move move = ai[0].findBestMove(boards[index]);
+                    result += move == null ? 0 : move.getMove1();
+                }
+                return result;
+            }, releaseAI, AIWARMUPITERATIONS, AIITERATIONS, 0));
+        }
+
+        Board endgame = new Board();
+        endgame.fillBoard(createEndgame(EndgameSolver.DEFAULTMAXBALLS));
+        EndgameSolver[] solver = new EndgameSolver[1];
+        benchmarks.add(new Benchmark("EndgameSolver.solve", () -> solver[0] = new EndgameSolver(),
+            () -> solver[0].solve(endgame, () -> false), () -> solver[0] = null,
+            AIWARMUPITERATIONS, AIITERATIONS, 0));
+        Board lateGame = new Board();
+        lateGame.fillBoard(createEndgame(LATEGAMEBALLS));
+        for (int endgameBalls : new int[] {-1, EndgameSolver.DEFAULTMAXBALLS}) {
+            String name = "AI.MINIMAX2.lateGame" + (endgameBalls < 0 ? "WithoutSolver" : "");
+            benchmarks.add(new Benchmark(name,
+                () -> ai[0] = new MiniMaxAI2(MiniMaxAI2.DEFAULTDEPTH, 1, endgameBalls), () -> {
+                    Move move = ai[0].findBestMove(lateGame, LATEGAMEBUDGET);
+                    return move == null ? 0 : move.getMove1();
+                }, releaseAI, AIWARMUPITERATIONS, AIITERATIONS, 0));
+        }
+        MCTSAI mcts = new MCTSAI();
+        benchmarks.add(timed("MCTSAI.playout", () -> mcts.playout(boards[0])));
+        benchmarks.add(timed("MCTSAI.playout.lateGame", () -> mcts.playout(lateGame)));
+        return benchmarks;
+    }
+
+    /**
+     * @param name      The name of the benchmark.
+     * @param operation The operation to be measured.
+     * @return A benchmark that runs the operation as often as possible in every iteration.
+     */
+    private static Benchmark timed(String name, Benchmark.Operation operation) {
+        return new Benchmark(name, operation, WARMUPITERATIONS, ITERATIONS, ITERATIONMILLIS);
+    }
+}
@@ -0,0 +1,119 @@
+package benchmarks;
+
+import dt.peer.ReaderThreads;
+import dt.server.Server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * A load test that logs in a large amount of connections on a server in the same JVM, and keeps them connected
+ * while they are idle. It shows how many threads and how much memory the server needs for them. The connections
+ * are plain sockets that are read from one after the other, so they do not need any threads themselves.
+ * <p>
+ * Arguments: the amount of connections (10000 by default), and optionally "virtual" to read the sockets of the
+ * server on virtual threads or "nio" to serve them with a selector. Every socket needs a file descriptor on both
+ * sides, so the limit of open files has to be at least twice the amount of connections. The ranking file and its log
+ * are restored afterwards, such that the logins of the test are not kept.
+ */
+public class IdleLoginLoadTest {
+    private static final int DEFAULTCONNECTIONS = 10000;
+    private static final int PORT = 7071;
+    private static final Path RANKFILE = Paths.get("src/dt/server/Ranking.txt");
+    private static final Path RANKLOG = Paths.get("src/dt/server/Ranking.log");
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULTCONNECTIONS;
+        List<String> options = Arrays.asList(args);
+        ReaderThreads.setVirtual(options.contains("virtual"));
+        byte[] ranking = Files.exists(RANKFILE) ? Files.readAllBytes(RANKFILE) : null;
+        byte[] rankLog = Files.exists(RANKLOG) ? Files.readAllBytes(RANKLOG) : null;
+
+        PrintStream out = System.out;
+        // The server shows every connection, which would hide the results
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        out.println("# " + connections + " connections, " + (options.contains("nio") ? "selector" :
+            (ReaderThreads.isVirtual() ? "virtual" : "platform") + " reader threads"));
+        out.println("before: " + describe(threads, memory));
+
+        Server server = new Server();
+        server.setPort(PORT);
+        server.setNonBlocking(options.contains("nio"));
+        Thread serverThread = new Thread(server::start);
+        serverThread.setDaemon(true);
+        serverThread.start();
+        Thread.sleep(500); // Let the server start
+
+        List<Socket> sockets = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        int loggedIn = 0;
+        try {
+            for (int i = 0; i < connections; i++) {
+                Socket socket = new Socket("localhost", PORT);
+                sockets.add(socket);
+                String messages = "HELLO~loadtest" + i + System.lineSeparator() +
+                    "LOGIN~loadtest" + i + System.lineSeparator();
+                socket.getOutputStream().write(messages.getBytes(StandardCharsets.UTF_8));
+            }
+            for (Socket socket : sockets) {
+                BufferedReader in =
+                    new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                String hello = in.readLine();
+                String login = in.readLine();
+                if (hello != null && hello.startsWith("HELLO") && "LOGIN".equals(login)) {
+                    loggedIn++;
+                }
+            }
+            long millis = System.currentTimeMillis() - start;
+            out.println("logged in " + loggedIn + " of " + connections + " in " + millis + " ms");
+            Thread.sleep(1000); // Let the connections be idle
+            out.println("idle: " + describe(threads, memory));
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            Server.closeRanking();
+            if (ranking != null) {
+                Files.write(RANKFILE, ranking);
+            }
+            if (rankLog != null) {
+                Files.write(RANKLOG, rankLog);
+            } else {
+                Files.deleteIfExists(RANKLOG);
+            }
+            System.setOut(out);
+        }
+        System.exit(loggedIn == connections ? 0 : 1);
+    }
+
+    /**
+     * @param threads The thread bean of this JVM.
+     * @param memory  The memory bean of this JVM.
+     * @return The live and peak amount of platform threads and the used heap after a garbage collection.
+     */
+    private static String describe(ThreadMXBean threads, MemoryMXBean memory) {
+        System.gc();
+        return String.format(
+            "%d live platform threads (peak %d), %.1f MB heap used, %.1f MB non-heap used",
+            threads.getThreadCount(), threads.getPeakThreadCount(),
+            memory.getHeapMemoryUsage().getUsed() / 1e6,
+            memory.getNonHeapMemoryUsage().getUsed() / 1e6);
+    }
+}
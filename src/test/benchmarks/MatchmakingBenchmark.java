@@ -0,0 +1,129 @@
+package benchmarks;
+
+import dt.server.Matchmaker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * Measures how many players per second can join the queue when many threads join at the same time. The
+ * {@link Matchmaker} is compared to a single locked list that pairs the first two players, like the queue of the
+ * GameManager used to. The ratings are drawn with a fixed seed from a distribution with many new players and a few
+ * players with many wins.
+ * <p>
+ * The arguments are the amount of threads and the amount of players each thread lets join, which default to 4 times
+ * the amount of processors and 100000.
+ */
+public class MatchmakingBenchmark {
+    private static final long SEED = 20210120L;
+    private static final int DEFAULTJOINS = 100000;
+    private static final int ROUNDS = 5; // The first round is a warmup
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ?
+            Integer.parseInt(args[0]) : 4 * Runtime.getRuntime().availableProcessors();
+        int joins = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULTJOINS;
+        System.out.println("# " + threads + " threads, " + joins + " joins per thread");
+
+        for (int round = 0; round < ROUNDS; round++) {
+            String prefix = round == 0 ? "warmup " : "";
+            LongAdder pairs = new LongAdder();
+            Matchmaker<Integer> matchmaker = new Matchmaker<>((first, second) -> pairs.increment());
+            System.out.println(prefix + describe("Matchmaker", threads, joins, pairs,
+                matchmaker::join));
+            matchmaker.shutDown();
+
+            LongAdder lockedPairs = new LongAdder();
+            LockedQueue locked = new LockedQueue((first, second) -> lockedPairs.increment());
+            System.out.println(prefix + describe("Single locked queue", threads, joins,
+                lockedPairs, locked::join));
+        }
+    }
+
+    /**
+     * Lets every thread join its players and measures how long it takes until all of them have joined.
+     *
+     * @return A line with the joins per second and the amount of pairs.
+     */
+    private static String describe(String name, int threads, int joins, LongAdder pairs,
+                                   Queue queue) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> joiners = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int[] ratings = ratings(new SplittableRandom(SEED + i), joins);
+            int first = i * joins;
+            Thread joiner = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < joins; j++) {
+                    queue.join(first + j, ratings[j]);
+                }
+            });
+            joiners.add(joiner);
+            joiner.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread joiner : joiners) {
+            joiner.join();
+        }
+        long nanos = System.nanoTime() - begin;
+        long total = (long) threads * joins;
+        return String.format("%-20s %12.0f joins/s %10d pairs of %d players", name,
+            total / (nanos / 1e9), pairs.sum(), total);
+    }
+
+    /**
+     * @return Ratings of which about half are 0 and which halve in frequency as they double.
+     */
+    private static int[] ratings(SplittableRandom random, int amount) {
+        int[] ratings = new int[amount];
+        for (int i = 0; i < amount; i++) {
+            int band = Integer.numberOfTrailingZeros(random.nextInt() | (1 << 12));
+            ratings[i] = band == 0 ? 0 : (1 << (band - 1)) + random.nextInt(1 << (band - 1));
+        }
+        return ratings;
+    }
+
+    private interface Queue {
+        void join(Integer player, int rating);
+    }
+
+    /**
+     * The queue as it was before the {@link Matchmaker}: one lock and the first two players are paired.
+     */
+    private static class LockedQueue {
+        private final List<Integer> queue = new ArrayList<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final BiConsumer<Integer, Integer> pairing;
+
+        private LockedQueue(BiConsumer<Integer, Integer> pairing) {
+            this.pairing = pairing;
+        }
+
+        private void join(Integer player, int rating) {
+            this.lock.lock();
+            try {
+                this.queue.add(player);
+                if (this.queue.size() > 1) {
+                    Integer first = this.queue.get(0);
+                    Integer second = this.queue.get(1);
+                    this.pairing.accept(first, second);
+                    this.queue.remove(first);
+                    this.queue.remove(second);
+                }
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+}
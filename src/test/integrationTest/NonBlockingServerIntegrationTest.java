@@ -0,0 +1,83 @@
+package integrationTest;
+
+import dt.ai.AITypes;
+import dt.collectoClient.Client;
+import dt.collectoClient.ClientStates;
+import dt.exceptions.InvalidMoveException;
+import dt.server.Server;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plays the start of a game between two clients on a server that serves them with non-blocking channels.
+ */
+public class NonBlockingServerIntegrationTest {
+    static Server server;
+    static int port = 6970;
+    private final int TIMEOUT = 100;
+
+    @BeforeAll
+    static void setup() throws InterruptedException {
+        server = new Server();
+        server.setPort(port);
+        server.setNonBlocking(true);
+        new Thread(server::start).start();
+        assertTrue(server.awaitListening(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testGameOnNonBlockingServer()
+        throws IOException, InterruptedException, InvalidMoveException {
+        Client client1 = this.createClient("nioClient1");
+        Client client2 = this.createClient("nioClient2");
+        client1.doEnterQueue();
+        client2.doEnterQueue();
+        timeOut(TIMEOUT * 10); //Let it wait for the server to throw both clients into a game.
+
+        assertTrue(client1.getState() == ClientStates.WAITOURMOVE ||
+            client1.getState() == ClientStates.WAITTHEIRMOVE);
+        Client starter = client1.getState() == ClientStates.WAITOURMOVE ? client1 : client2;
+        Client other = starter == client1 ? client2 : client1;
+        assertEquals(ClientStates.WAITTHEIRMOVE, other.getState());
+        int[] serverBoardState =
+            server.getClientHandler("nioClient1").getGame().getBoard().getBoardState();
+        assertArrayEquals(serverBoardState, client1.getBoard().getBoardState());
+        assertArrayEquals(serverBoardState, client2.getBoard().getBoardState());
+
+        starter.setAI(AITypes.GREEDY);
+        starter.doAIMove();
+        timeOut(TIMEOUT); //Let it wait for the move to reach the opponent
+
+        assertEquals(ClientStates.WAITTHEIRMOVE, starter.getState());
+        assertEquals(ClientStates.WAITOURMOVE, other.getState());
+        serverBoardState =
+            server.getClientHandler("nioClient1").getGame().getBoard().getBoardState();
+        assertArrayEquals(serverBoardState, starter.getBoard().getBoardState());
+        assertArrayEquals(serverBoardState, other.getBoard().getBoardState());
+    }
+
+    private Client createClient(String name) throws IOException, InterruptedException {
+        Client client = new Client();
+        client.setIp(InetAddress.getByName("localhost"));
+        client.setPort(port);
+        client.setUsername(name);
+        client.setDebug(false);
+        client.createConnection();
+        timeOut(TIMEOUT); //Let it wait for a response from the server
+        client.doLogin(name);
+        timeOut(TIMEOUT); //Let it wait for a response from the server
+        return client;
+    }
+
+    private void timeOut(int wait) throws InterruptedException {
+        TimeUnit.MILLISECONDS.sleep(wait);
+    }
+}
@@ -0,0 +1,75 @@
+package modelTests;
+
+import dt.ai.AI;
+import dt.ai.Arena;
+import dt.ai.GreedyAI;
+import dt.ai.MiniMaxAI2;
+import dt.ai.RandomAI;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArenaTest {
+    private static final int BOARDS = 10;
+    private static final long SEED = 24;
+
+    @Test
+    void testEveryBoardIsPlayedByBothSides() {
+        Arena.Statistics[] statistics =
+            new Arena(GreedyAI::new, GreedyAI::new, 0).play(BOARDS, SEED, 2);
+        for (Arena.Statistics side : statistics) {
+            assertEquals(2 * BOARDS, side.getGames());
+            // The same AI on both sides plays every board the same, just with the players swapped
+            assertEquals(side.getWins(), side.getLosses());
+            assertEquals(0.5, side.getScoreRate());
+        }
+        assertEquals(statistics[0].getWins(), statistics[1].getLosses());
+        assertEquals(statistics[0].getDraws(), statistics[1].getDraws());
+        assertEquals(statistics[0].getBallsPerGame(), statistics[1].getBallsPerGame());
+    }
+
+    @Test
+    void testSameSeedSameGames() {
+        Arena arena = new Arena(GreedyAI::new, GreedyAI::new, 0);
+        Arena.Statistics[] sequential = arena.play(BOARDS, SEED, 1);
+        Arena.Statistics[] parallel = arena.play(BOARDS, SEED, 4);
+        for (int side = 0; side < 2; side++) {
+            assertEquals(sequential[side].getWins(), parallel[side].getWins());
+            assertEquals(sequential[side].getDraws(), parallel[side].getDraws());
+            assertEquals(sequential[side].getPointsPerGame(), parallel[side].getPointsPerGame());
+            assertEquals(sequential[side].getBallsPerGame(), parallel[side].getBallsPerGame());
+        }
+    }
+
+    @Test
+    void testAIsAreShutDown() {
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger shutDown = new AtomicInteger();
+        Supplier<AI> counted = () -> {
+            created.incrementAndGet();
+            return new GreedyAI() {
+                @Override
+                public void shutDown() {
+                    shutDown.incrementAndGet();
+                }
+            };
+        };
+        new Arena(counted, counted, 0).play(BOARDS, SEED, 2);
+        assertTrue(created.get() > 0);
+        assertEquals(created.get(), shutDown.get());
+    }
+
+    @Test
+    void testSearchBeatsRandomMoves() {
+        Arena.Statistics[] statistics =
+            new Arena(() -> new MiniMaxAI2(2, 1), RandomAI::new, 20).play(BOARDS, SEED, 2);
+        assertTrue(statistics[0].getScoreRate() > 0.7);
+        assertEquals(1, statistics[0].getScoreRate() + statistics[1].getScoreRate(), 1e-9);
+        assertTrue(statistics[0].getNodesPerSecond() > 0);
+        assertEquals(0, statistics[1].getNodesPerSecond());
+        assertTrue(statistics[0].getMillisPerMove() > 0);
+    }
+}
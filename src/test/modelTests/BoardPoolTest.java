@@ -0,0 +1,71 @@
+package modelTests;
+
+import dt.model.ServerBoard;
+import dt.server.BoardPool;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardPoolTest {
+    private static final int CAPACITY = 8;
+    private static final long SEED = 20210120L;
+
+    @Test
+    void testSameSeedSameBoards() throws InterruptedException {
+        BoardPool pool1 = new BoardPool(CAPACITY, SEED);
+        BoardPool pool2 = new BoardPool(CAPACITY, SEED);
+        waitUntilFull(pool1);
+        waitUntilFull(pool2);
+        for (int i = 0; i < CAPACITY; i++) {
+            assertArrayEquals(pool1.take(), pool2.take());
+        }
+        assertEquals(0, pool1.getMisses());
+        pool1.shutDown();
+        pool2.shutDown();
+    }
+
+    @Test
+    void testBoardsAreValid() throws InterruptedException {
+        BoardPool pool = new BoardPool(CAPACITY, SEED);
+        waitUntilFull(pool);
+        for (int i = 0; i < 3 * CAPACITY; i++) {
+            int[] state = pool.take();
+            int[] balls = new int[7];
+            for (int ball : state) {
+                balls[ball]++;
+            }
+            assertEquals(1, balls[0]);
+            for (int colour = 1; colour < balls.length; colour++) {
+                assertEquals(8, balls[colour]);
+            }
+            ServerBoard board = new ServerBoard();
+            board.fillBoard(state);
+            assertNotEquals(Collections.emptyList(), board.findValidSingleMoves());
+        }
+        assertEquals(3 * CAPACITY, pool.getTaken());
+        assertTrue(pool.getGenerated() >= CAPACITY);
+        assertTrue(pool.getRefillRate() > 0);
+        pool.shutDown();
+    }
+
+    @Test
+    void testTakeDoesNotWaitForGenerator() {
+        BoardPool pool = new BoardPool(CAPACITY, SEED);
+        pool.shutDown();
+        for (int i = 0; i < 2 * CAPACITY; i++) {
+            assertNotNull(pool.take());
+        }
+        // A generator that was waiting for room may still put its board, when a take wakes it before the interrupt
+        assertTrue(pool.getMisses() >= CAPACITY - 1);
+        assertEquals(0, pool.getBuffered());
+    }
+
+    private void waitUntilFull(BoardPool pool) throws InterruptedException {
+        for (int i = 0; i < 1000 && pool.getBuffered() < pool.getCapacity(); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(pool.getCapacity(), pool.getBuffered());
+    }
+}
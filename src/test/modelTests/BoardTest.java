@@ -2,6 +2,7 @@ package modelTests;
 
 import dt.exceptions.InvalidMoveException;
 import dt.model.BallType;
+import dt.model.Board;
 import dt.model.Sequence;
 import dt.model.ServerBoard;
 import dt.util.Move;
@@ -354,6 +355,27 @@ class BoardTest {
 
     }
 
+    @Test
+    void testFindValidMovesMatchesShifting() {
+        for (long seed = 0; seed < 100; seed++) {
+            for (Board position : GamePositions.createGame(seed)) {
+                assertEquals(findValidMovesByShifting(position), findValidMoveCodes(position));
+            }
+        }
+
+        // Hand-filled boards, on which balls may already lie next to each other
+        SplittableRandom random = new SplittableRandom(4);
+        for (int i = 0; i < 5000; i++) {
+            int emptyShare = random.nextInt(10, 95);
+            int[] boardState = new int[boardSize * boardSize];
+            for (int cell = 0; cell < boardState.length; cell++) {
+                boardState[cell] = random.nextInt(100) < emptyShare ? 0 : random.nextInt(1, 7);
+            }
+            testBoard.fillBoard(boardState);
+            assertEquals(findValidMovesByShifting(testBoard), findValidMoveCodes(testBoard));
+        }
+    }
+
     @Test
     void testSameBallInSequence() {
         Sequence sequence = new Sequence(Arrays.asList(
@@ -581,6 +603,99 @@ class BoardTest {
 
     }
 
+    @Test
+    void testRowsAndColumnsFollowBoard() {
+        int[] boardState = emptyBoardState.clone();
+        boardState[0] = 1;
+        boardState[8] = 2;
+        testBoard.fillBoard(boardState);
+        testBoard.executeMove(7);
+        boardState[0] = 0;
+        boardState[6] = 1;
+        for (int r = 0; r < boardSize; r++) {
+            for (int c = 0; c < boardSize; c++) {
+                BallType ball = BallType.values()[boardState[r * boardSize + c]];
+                assertEquals(ball, testBoard.getRows().get(r).getBalls().get(c));
+                assertEquals(ball, testBoard.getColumns().get(c).getBalls().get(r));
+            }
+        }
+    }
+
+    @Test
+    void testGetYieldCountsOfMove() {
+        List<Move> validMoves;
+        while (!(validMoves = board.findValidMoves()).isEmpty()) {
+            Move move = validMoves.get(Board.randomNumber(0, validMoves.size() - 1));
+            Board copy = board.deepCopy();
+            board.executeMove(move.getMove1());
+            copy.executeMove(move.getMove1());
+            if (move.isDoubleMove()) {
+                board.executeMove(move.getMove2());
+                copy.executeMove(move.getMove2());
+            }
+            assertArrayEquals(copy.getYieldCounts(), board.getYieldCounts(move));
+            assertArrayEquals(copy.getBoardState(), board.getBoardState());
+        }
+    }
+
+    @Test
+    void testApplyAndUndo() {
+        int[] original = board.getBoardState();
+        List<Long> undoRecords = new ArrayList<>();
+        List<int[]> states = new ArrayList<>();
+        List<Move> validMoves;
+        while (!(validMoves = board.findValidMoves()).isEmpty()) {
+            Move move = validMoves.get(0);
+            Board copy = board.deepCopy();
+            copy.executeMove(move.getMove1());
+            if (move.isDoubleMove()) {
+                copy.executeMove(move.getMove2());
+            }
+            int expectedYield = copy.getYield().values().stream().reduce(0, Integer::sum);
+
+            states.add(board.getBoardState());
+            long undoRecord = board.apply(move);
+            undoRecords.add(undoRecord);
+            assertEquals(expectedYield, Board.getYieldAmount(undoRecord));
+            assertArrayEquals(copy.getBoardState(), board.getBoardState());
+        }
+        for (int i = undoRecords.size() - 1; i >= 0; i--) {
+            board.undo(undoRecords.get(i));
+            assertArrayEquals(states.get(i), board.getBoardState());
+        }
+        assertArrayEquals(original, board.getBoardState());
+    }
+
+    @Test
+    void testHashFollowsBoard() {
+        long originalHash = board.getHash();
+        List<Long> undoRecords = new ArrayList<>();
+        List<Move> validMoves;
+        while (!(validMoves = board.findValidMoves()).isEmpty()) {
+            undoRecords.add(board.apply(validMoves.get(validMoves.size() - 1)));
+            Board filledBoard = new Board();
+            filledBoard.fillBoard(board.getBoardState());
+            assertEquals(filledBoard.getHash(), board.getHash());
+        }
+        for (int i = undoRecords.size() - 1; i >= 0; i--) {
+            board.undo(undoRecords.get(i));
+        }
+        assertEquals(originalHash, board.getHash());
+
+        int[] boardState = emptyBoardState.clone();
+        boardState[0] = 1;
+        boardState[13] = 2;
+        testBoard.fillBoard(boardState);
+        testBoard.executeMove(7);
+        testBoard.executeMove(13);
+        Board commuted = new Board();
+        commuted.fillBoard(boardState);
+        commuted.executeMove(13);
+        commuted.executeMove(7);
+        assertEquals(commuted.getHash(), testBoard.getHash());
+        assertNotEquals(originalHash, testBoard.getHash());
+    }
+
     @Test
     void testDeepCopy() {
         ServerBoard original = new ServerBoard();
@@ -715,6 +830,59 @@ class BoardTest {
     void isGameOver() {
     }
 
+    /**
+     * @return The codes of the valid moves that the board finds, sorted.
+     */
+    private static List<Integer> findValidMoveCodes(Board position) {
+        return position.findValidMoves().stream().map(Move::getCode).sorted()
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the valid moves the slow way, by making every shift on a copy of the board and looking at the yield
+     * of the whole board.
+     *
+     * @return The codes of the valid moves, sorted.
+     */
+    private static List<Integer> findValidMovesByShifting(Board position) {
+        List<Integer> codes = new ArrayList<>();
+        for (int move1 = 0; move1 < Move.SINGLEMOVES; move1++) {
+            Board afterMove1 = shift(position, move1);
+            if (afterMove1 != null && yields(afterMove1)) {
+                codes.add(Move.encode(move1));
+            }
+        }
+        if (!codes.isEmpty()) {
+            return codes;
+        }
+        for (int move1 = 0; move1 < Move.SINGLEMOVES; move1++) {
+            Board afterMove1 = shift(position, move1);
+            for (int move2 = 0; afterMove1 != null && move2 < Move.SINGLEMOVES; move2++) {
+                Board afterMove2 = shift(afterMove1, move2);
+                if (afterMove2 != null && yields(afterMove2)) {
+                    codes.add(Move.encode(move1, move2));
+                }
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * @return A copy of the board after the shift, or null if the shift does not move any ball.
+     */
+    private static Board shift(Board position, int move) {
+        Board copy = position.deepCopy();
+        copy.executeMove(move);
+        return Arrays.equals(copy.getBoardState(), position.getBoardState()) ? null : copy;
+    }
+
+    /**
+     * @return Whether any balls lie next to each other on the board, which are removed.
+     */
+    private static boolean yields(Board position) {
+        return Arrays.stream(position.getYieldCounts()).sum() > 0;
+    }
+
     private void print() {
         System.out.println(testBoard.getPrettyBoardState() + "\n################################");
     }
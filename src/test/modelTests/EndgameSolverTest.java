@@ -0,0 +1,96 @@
+package modelTests;
+
+import dt.ai.EndgameSolver;
+import dt.ai.MiniMaxAI2;
+import dt.model.Board;
+import dt.util.Move;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndgameSolverTest {
+    private static final int POSITIONS = 20;
+
+    @Test
+    void testSolveMatchesFullSearch() {
+        EndgameSolver solver = new EndgameSolver(8);
+        for (Board board : GamePositions.createEndgames(POSITIONS, 8)) {
+            assertTrue(solver.canSolve(board));
+            int[] state = board.getBoardState();
+            assertEquals(fullSearch(board), solver.solve(board, () -> false));
+            assertArrayEquals(state, board.getBoardState());
+        }
+    }
+
+    @Test
+    void testSolveWithinWindow() {
+        SplittableRandom random = new SplittableRandom(20210120L);
+        for (Board board : GamePositions.createEndgames(POSITIONS, 12)) {
+            int exact = new EndgameSolver(12).solve(board, () -> false);
+            EndgameSolver solver = new EndgameSolver(12);
+            for (int test = 0; test < 10; test++) {
+                int alpha = random.nextInt(-12, 12);
+                int beta = alpha + 1 + random.nextInt(12);
+                int value = solver.solve(board, alpha, beta, () -> false);
+                if (exact <= alpha) {
+                    assertTrue(exact <= value && value <= alpha);
+                } else if (exact >= beta) {
+                    assertTrue(beta <= value && value <= exact);
+                } else {
+                    assertEquals(exact, value);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testMiniMaxPlaysSolvedMove() {
+        EndgameSolver solver = new EndgameSolver();
+        for (Board board : GamePositions.createEndgames(POSITIONS, EndgameSolver.DEFAULTMAXBALLS)) {
+            int value = solver.solve(board, () -> false);
+            Move move = new MiniMaxAI2(2, 1).findBestMove(board, 60000);
+
+            long undoRecord = board.apply(move);
+            int moveValue = Board.getYieldAmount(undoRecord) - solver.solve(board, () -> false);
+            board.undo(undoRecord);
+            assertEquals(value, moveValue);
+        }
+    }
+
+    @Test
+    void testSolverDoesNotKeepTheAI() throws InterruptedException {
+        Board board = GamePositions.createEndgames(1, EndgameSolver.DEFAULTMAXBALLS).get(0);
+        List<WeakReference<MiniMaxAI2>> references = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            MiniMaxAI2 ai = new MiniMaxAI2(1, 1);
+            ai.findBestMove(board, 60000); // Solves the position on this thread
+            references.add(new WeakReference<>(ai));
+        }
+
+        for (int attempt = 0; attempt < 50 && references.stream().anyMatch(r -> r.get() != null); attempt++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        for (WeakReference<MiniMaxAI2> reference : references) {
+            assertNull(reference.get());
+        }
+    }
+
+    /**
+     * @return The balls the player to move collects more than the opponent, found by trying every game.
+     */
+    private static int fullSearch(Board board) {
+        int best = Integer.MIN_VALUE;
+        for (Move move : board.findValidMoves()) {
+            long undoRecord = board.apply(move);
+            best = Math.max(best, Board.getYieldAmount(undoRecord) - fullSearch(board));
+            board.undo(undoRecord);
+        }
+        return best == Integer.MIN_VALUE ? 0 : best;
+    }
+}
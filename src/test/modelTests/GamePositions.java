@@ -0,0 +1,90 @@
+package modelTests;
+
+import dt.model.Board;
+import dt.model.ServerBoard;
+import dt.util.Move;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * @author Emiel Rous and Wouter Koning
+ * Creates the positions the tests and the benchmarks run on, by playing random valid moves from seeded starting
+ * boards, such that every run gets the same positions.
+ */
+public class GamePositions {
+
+    private GamePositions() {
+    }
+
+    /**
+     * Plays random valid moves on a board until at most a given amount of balls is left or the game is over.
+     *
+     * @param board    The board on which the moves are played.
+     * @param random   The source of randomness of the moves.
+     * @param maxBalls The highest amount of balls left on the board.
+     * @return The board, for chaining.
+     */
+    public static Board playRandomly(Board board, SplittableRandom random, int maxBalls) {
+        List<Move> validMoves = board.findValidMoves();
+        while (!validMoves.isEmpty() && board.getBallAmount() > maxBalls) {
+            board.apply(validMoves.get(random.nextInt(validMoves.size())));
+            validMoves = board.findValidMoves();
+        }
+        return board;
+    }
+
+    /**
+     * Plays random moves from a seeded board until at most a given amount of balls is left.
+     *
+     * @param seed     The seed of the board and the moves.
+     * @param maxBalls The highest amount of balls left on the board.
+     * @return The board, which may have no valid moves left.
+     */
+    public static Board createEndgame(long seed, int maxBalls) {
+        ServerBoard serverBoard = new ServerBoard(new SplittableRandom(seed));
+        serverBoard.setupBoard();
+        return playRandomly(serverBoard.deepCopy(), new SplittableRandom(seed), maxBalls);
+    }
+
+    /**
+     * Creates endgames from the seeds 0, 1, 2 and so on, skipping those in which the game is already over.
+     *
+     * @param count    The amount of boards.
+     * @param maxBalls The highest amount of balls left on the boards.
+     * @return Boards on which at least one move can still be made.
+     */
+    public static List<Board> createEndgames(int count, int maxBalls) {
+        List<Board> boards = new ArrayList<>(count);
+        for (long seed = 0; boards.size() < count; seed++) {
+            Board board = createEndgame(seed, maxBalls);
+            if (!board.findValidMoves().isEmpty()) {
+                boards.add(board);
+            }
+        }
+        return boards;
+    }
+
+    /**
+     * Plays a random game from a seeded board.
+     *
+     * @param seed The seed of the board and the moves.
+     * @return Every position of the game, from the starting board to the end.
+     */
+    public static List<Board> createGame(long seed) {
+        ServerBoard serverBoard = new ServerBoard(new SplittableRandom(seed));
+        serverBoard.setupBoard();
+        Board board = serverBoard.deepCopy();
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Board> positions = new ArrayList<>();
+        positions.add(board.deepCopy());
+        List<Move> validMoves = board.findValidMoves();
+        while (!validMoves.isEmpty()) {
+            board.apply(validMoves.get(random.nextInt(validMoves.size())));
+            positions.add(board.deepCopy());
+            validMoves = board.findValidMoves();
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,81 @@
+package modelTests;
+
+import dt.server.Leaderboard;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.Map.Entry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaderboardTest {
+
+    Leaderboard leaderboard;
+
+    @BeforeEach
+    void setup() {
+        leaderboard = new Leaderboard();
+    }
+
+    @Test
+    void testOrder() {
+        leaderboard.setWins("bob", 2);
+        leaderboard.setWins("alice", 2);
+        leaderboard.setWins("carol", 5);
+        leaderboard.setWins("dave", 0);
+
+        assertEquals(List.of("carol", "alice", "bob", "dave"), names(leaderboard.getPage(0, 10)));
+        assertEquals(1, leaderboard.getPosition("carol"));
+        assertEquals(3, leaderboard.getPosition("bob"));
+        assertEquals(0, leaderboard.getPosition("erin"));
+
+        leaderboard.setWins("dave", 3);
+        assertEquals(List.of("carol", "dave", "alice", "bob"), names(leaderboard.getPage(0, 10)));
+        assertEquals(4, leaderboard.size());
+    }
+
+    @Test
+    void testPages() {
+        for (int i = 0; i < 10; i++) {
+            leaderboard.setWins("player" + i, 10 - i);
+        }
+        assertEquals(List.of("player3", "player4", "player5"), names(leaderboard.getPage(3, 3)));
+        assertEquals(List.of("player8", "player9"), names(leaderboard.getPage(8, 5)));
+        assertTrue(leaderboard.getPage(10, 5).isEmpty());
+        assertTrue(leaderboard.getPage(0, 0).isEmpty());
+    }
+
+    @Test
+    void testAgainstSortedList() {
+        Random random = new Random(20210120L);
+        Map<String, Integer> wins = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            String name = "player" + random.nextInt(300);
+            int playerWins = wins.getOrDefault(name, 0) + random.nextInt(2);
+            wins.put(name, playerWins);
+            leaderboard.setWins(name, playerWins);
+        }
+
+        List<String> expected = new ArrayList<>(wins.keySet());
+        expected.sort(Comparator.<String>comparingInt(wins::get).reversed()
+            .thenComparing(Comparator.naturalOrder()));
+        assertEquals(expected, names(leaderboard.getPage(0, expected.size())));
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(i + 1, leaderboard.getPosition(expected.get(i)));
+            assertEquals(wins.get(expected.get(i)), leaderboard.getWins(expected.get(i)));
+        }
+        for (int offset = 0; offset < expected.size(); offset += 37) {
+            int end = Math.min(expected.size(), offset + 25);
+            assertEquals(expected.subList(offset, end), names(leaderboard.getPage(offset, 25)));
+        }
+    }
+
+    private List<String> names(List<Entry<String, Integer>> page) {
+        List<String> names = new ArrayList<>();
+        for (Entry<String, Integer> entry : page) {
+            names.add(entry.getKey());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,126 @@
+package modelTests;
+
+import dt.model.BallType;
+import dt.model.LineShifts;
+import dt.model.Sequence;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LineShiftsTest {
+    private static final int LINELENGTH = 7;
+    private static final BallType[] BALLTYPES = BallType.values();
+
+    /**
+     * Compares the shifts of every possible line of 7 balls to the shifts as {@link Sequence} made them before
+     * they were looked up in tables. That version always emptied the spot the balls moved away from, so only lines
+     * that can be shifted, with at least one empty spot, are compared to it.
+     */
+    @Test
+    void testShiftsOfEveryLineMatchTheOldSequence() {
+        int lines = (int) Math.pow(BALLTYPES.length, LINELENGTH);
+        for (int index = 0; index < lines; index++) {
+            List<BallType> balls = createLine(index);
+            if (!balls.contains(BallType.EMPTY)) {
+                Sequence full = new Sequence(new ArrayList<>(balls));
+                full.shiftLeftOrUp();
+                assertEquals(balls, full.getBalls());
+                full.shiftRightOrdown();
+                assertEquals(balls, full.getBalls());
+                continue;
+            }
+
+            Sequence left = new Sequence(new ArrayList<>(balls));
+            left.shiftLeftOrUp();
+            assertEquals(oldShiftLeftOrUp(new ArrayList<>(balls)), left.getBalls());
+
+            Sequence right = new Sequence(new ArrayList<>(balls));
+            right.shiftRightOrdown();
+            assertEquals(oldShiftRightOrdown(new ArrayList<>(balls)), right.getBalls());
+        }
+    }
+
+    @Test
+    void testShiftOfLongestLine() {
+        SplittableRandom random = new SplittableRandom(20210120L);
+        for (int test = 0; test < 10000; test++) {
+            List<BallType> balls = new ArrayList<>();
+            List<BallType> expected = new ArrayList<>();
+            for (int i = 0; i < LineShifts.MAXLENGTH; i++) {
+                BallType ball = random.nextInt(3) == 0 ?
+                    BallType.EMPTY : BALLTYPES[1 + random.nextInt(BALLTYPES.length - 1)];
+                balls.add(ball);
+                if (ball != BallType.EMPTY) {
+                    expected.add(ball);
+                }
+            }
+            while (expected.size() < balls.size()) {
+                expected.add(BallType.EMPTY);
+            }
+            long line = LineShifts.pack(balls, false);
+            LineShifts.unpack(LineShifts.shiftTowardsStart(line), balls, false);
+            assertEquals(expected, balls);
+        }
+    }
+
+    /**
+     * @param index A number between 0 and 7^7.
+     * @return The line of which the balls are the digits of the number in base 7.
+     */
+    private static List<BallType> createLine(int index) {
+        BallType[] balls = new BallType[LINELENGTH];
+        for (int i = 0; i < LINELENGTH; i++, index /= BALLTYPES.length) {
+            balls[i] = BALLTYPES[index % BALLTYPES.length];
+        }
+        return Arrays.asList(balls);
+    }
+
+    private static List<BallType> oldShiftRightOrdown(List<BallType> balls) {
+        int emptyAmount = findEmptyBallAmount(balls);
+        while (emptyAmount != 0) {
+            for (int i = balls.size() - 2; i >= 0; i--) {
+                if (balls.get(i + 1) == BallType.EMPTY) {
+                    for (int j = i; j >= 0; j--) {
+                        balls.set(j + 1, balls.get(j));
+                        balls.set(j, BallType.EMPTY);
+                    }
+                }
+            }
+            emptyAmount--;
+        }
+        balls.set(0, BallType.EMPTY);
+        return balls;
+    }
+
+    private static List<BallType> oldShiftLeftOrUp(List<BallType> balls) {
+        int emptyAmount = findEmptyBallAmount(balls);
+        while (emptyAmount != 0) {
+            for (int i = 1; i < balls.size(); i++) {
+                if (balls.get(i - 1) == BallType.EMPTY) {
+                    for (int j = i; j < balls.size(); j++) {
+                        balls.set(j - 1, balls.get(j));
+                        balls.set(j, BallType.EMPTY);
+                    }
+                }
+            }
+            emptyAmount--;
+        }
+        balls.set(balls.size() - 1, BallType.EMPTY);
+        return balls;
+    }
+
+    private static int findEmptyBallAmount(List<BallType> balls) {
+        int emptyAmount = 0;
+        for (BallType ball : balls) {
+            if (ball == BallType.EMPTY) {
+                emptyAmount++;
+            }
+        }
+        return emptyAmount;
+    }
+}
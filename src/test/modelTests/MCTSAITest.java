@@ -0,0 +1,74 @@
+package modelTests;
+
+import dt.ai.EndgameSolver;
+import dt.ai.MCTSAI;
+import dt.model.Board;
+import dt.model.ServerBoard;
+import dt.util.Move;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MCTSAITest {
+    private static final long TIMEBUDGET = 200;
+
+    @Test
+    void testPlayoutLeavesBoardUnchanged() {
+        MCTSAI ai = new MCTSAI();
+        for (long seed = 0; seed < 20; seed++) {
+            ServerBoard board = new ServerBoard(new SplittableRandom(seed));
+            board.setupBoard();
+            int[] state = board.getBoardState();
+            long hash = board.getHash();
+            for (int i = 0; i < 10; i++) {
+                int balls = ai.playout(board);
+                assertTrue(Math.abs(balls) <= 48);
+                assertArrayEquals(state, board.getBoardState());
+                assertEquals(hash, board.getHash());
+            }
+        }
+    }
+
+    @Test
+    void testFindBestMove() {
+        for (int threads : new int[] {1, 2}) {
+            MCTSAI ai = new MCTSAI(threads);
+            ServerBoard board = new ServerBoard(new SplittableRandom(23));
+            board.setupBoard();
+            int[] state = board.getBoardState();
+            Move move = ai.findBestMove(board, TIMEBUDGET);
+            assertTrue(board.findValidMoves().contains(move));
+            assertArrayEquals(state, board.getBoardState());
+            assertTrue(ai.getPlayoutCount() > 0);
+            assertTrue(ai.getPlayoutsPerSecond() > 0);
+        }
+    }
+
+    @Test
+    void testNoValidMoves() {
+        Board board = new Board();
+        board.fillBoard(new int[board.getBoardSize() * board.getBoardSize()]);
+        assertNull(new MCTSAI().findBestMove(board, TIMEBUDGET));
+    }
+
+    @Test
+    void testPlaysWinningMoveInEndgame() {
+        EndgameSolver solver = new EndgameSolver(8);
+        MCTSAI ai = new MCTSAI();
+        int winning = 0;
+        for (long seed = 0; winning < 10; seed++) {
+            Board board = GamePositions.createEndgame(seed, 8);
+            if (board.findValidMoves().isEmpty() || solver.solve(board, () -> false) <= 0) {
+                continue; // Only positions in which the player to move can win
+            }
+            winning++;
+            Move move = ai.findBestMove(board, TIMEBUDGET);
+            long undoRecord = board.apply(move);
+            int moveValue = Board.getYieldAmount(undoRecord) - solver.solve(board, () -> false);
+            board.undo(undoRecord);
+            assertTrue(moveValue > 0);
+        }
+    }
+}
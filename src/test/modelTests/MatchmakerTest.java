@@ -0,0 +1,105 @@
+package modelTests;
+
+import dt.server.Matchmaker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchmakerTest {
+    private static final long WIDENMILLIS = 50;
+
+    Matchmaker<String> matchmaker;
+    List<String[]> games;
+
+    @BeforeEach
+    void setup() {
+        games = Collections.synchronizedList(new ArrayList<>());
+        matchmaker = new Matchmaker<>((first, second) -> games.add(new String[] {first, second}),
+            WIDENMILLIS);
+    }
+
+    @AfterEach
+    void cleanup() {
+        matchmaker.shutDown();
+    }
+
+    @Test
+    void testSameBand() {
+        matchmaker.join("alice", 4);
+        assertEquals(1, matchmaker.size());
+        assertTrue(games.isEmpty());
+
+        matchmaker.join("bob", 7);
+        assertEquals(0, matchmaker.size());
+        assertEquals(1, games.size());
+        assertArrayEquals(new String[] {"alice", "bob"}, games.get(0));
+    }
+
+    @Test
+    void testBandWidensOverTime() throws InterruptedException {
+        matchmaker.join("novice", 0);
+        matchmaker.join("expert", 40);
+        assertTrue(games.isEmpty());
+        assertEquals(2, matchmaker.size());
+
+        // 0 and 40 are 6 bands apart
+        Thread.sleep(WIDENMILLIS * 10);
+        assertEquals(0, matchmaker.size());
+        assertEquals(1, games.size());
+        assertArrayEquals(new String[] {"novice", "expert"}, games.get(0));
+    }
+
+    @Test
+    void testJoinTakesWaitingPlayerFromOtherBand() throws InterruptedException {
+        matchmaker.shutDown(); // Only the joining player may pair them
+        matchmaker.join("waiting", 1);
+        Thread.sleep(WIDENMILLIS * 3);
+        matchmaker.join("joining", 8);
+        assertEquals(1, games.size());
+        assertArrayEquals(new String[] {"waiting", "joining"}, games.get(0));
+    }
+
+    @Test
+    void testLeave() {
+        matchmaker.join("alice", 0);
+        assertTrue(matchmaker.leave("alice"));
+        assertFalse(matchmaker.leave("alice"));
+        matchmaker.join("bob", 0);
+        assertTrue(games.isEmpty());
+        assertEquals(1, matchmaker.size());
+    }
+
+    @Test
+    void testConcurrentJoins() throws InterruptedException {
+        int threads = 8;
+        int playersPerThread = 2000;
+        List<Thread> joiners = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int thread = i;
+            Thread joiner = new Thread(() -> {
+                for (int j = 0; j < playersPerThread; j++) {
+                    matchmaker.join(thread + "-" + j, j % 4);
+                }
+            });
+            joiners.add(joiner);
+            joiner.start();
+        }
+        for (Thread joiner : joiners) {
+            joiner.join();
+        }
+        Thread.sleep(WIDENMILLIS * 5);
+
+        Set<String> paired = ConcurrentHashMap.newKeySet();
+        for (String[] game : games) {
+            assertTrue(paired.add(game[0]));
+            assertTrue(paired.add(game[1]));
+        }
+        assertEquals(threads * playersPerThread, paired.size() + matchmaker.size());
+        assertTrue(matchmaker.size() <= 1);
+    }
+}
@@ -0,0 +1,41 @@
+package modelTests;
+
+import dt.ai.MiniMaxAI2;
+import dt.model.Board;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MiniMaxAI2Test {
+    private static final int DEPTH = 3;
+    private static final int GAMES = 12;
+    private static final int POSITIONINTERVAL = 4; // Every 4th position of a game is searched
+
+    @Test
+    void testParallelSearchFindsTheSequentialMove() {
+        MiniMaxAI2 sequential = new MiniMaxAI2(DEPTH, 1);
+        MiniMaxAI2 parallel = new MiniMaxAI2(DEPTH, 4);
+        try {
+            int positions = 0;
+            for (long seed = 0; seed < GAMES; seed++) {
+                List<Board> game = GamePositions.createGame(seed);
+                for (int i = 0; i < game.size(); i += POSITIONINTERVAL) {
+                    Board board = game.get(i);
+                    if (board.findValidMoves().isEmpty()) {
+                        continue;
+                    }
+                    int[] state = board.getBoardState();
+                    assertEquals(sequential.findBestMove(board), parallel.findBestMove(board),
+                        "game " + seed + ", position " + i);
+                    assertArrayEquals(state, board.getBoardState());
+                    positions++;
+                }
+            }
+            assertTrue(positions > 50);
+        } finally {
+            parallel.shutDown();
+        }
+    }
+}
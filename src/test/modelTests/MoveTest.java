@@ -0,0 +1,89 @@
+package modelTests;
+
+import dt.model.Board;
+import dt.model.ServerBoard;
+import dt.util.Move;
+import dt.util.MoveList;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveTest {
+
+    @Test
+    void testEncodeAndDecode() {
+        Set<Integer> codes = new HashSet<>();
+        for (int move1 = 0; move1 < Move.SINGLEMOVES; move1++) {
+            Move single = new Move(move1);
+            assertEquals(single, Move.decode(single.getCode()));
+            assertSame(Move.decode(single.getCode()), Move.decode(Move.encode(move1)));
+            assertFalse(Move.isDoubleMove(single.getCode()));
+            assertEquals(move1, Move.getMove1(single.getCode()));
+            codes.add(single.getCode());
+
+            for (int move2 = 0; move2 < Move.SINGLEMOVES; move2++) {
+                Move doubleMove = new Move(move1, move2);
+                int code = doubleMove.getCode();
+                assertEquals(doubleMove, Move.decode(code));
+                assertEquals(doubleMove.hashCode(), Move.decode(code).hashCode());
+                assertTrue(Move.isDoubleMove(code));
+                assertEquals(move1, Move.getMove1(code));
+                assertEquals(move2, Move.getMove2(code));
+                codes.add(code);
+            }
+        }
+        assertEquals(Move.CODES, codes.size());
+        assertTrue(codes.stream().allMatch(code -> code >= 0 && code < Move.CODES));
+        assertNotEquals(new Move(1), new Move(1, 1));
+        assertNull(new Move(1).getMove2());
+    }
+
+    @Test
+    void testSortByPriority() {
+        MoveList moves = new MoveList();
+        long[] priorities = {1, 5, 3, 5, 0};
+        for (int i = 0; i < priorities.length; i++) {
+            moves.add(i);
+            moves.setPriority(i, priorities[i]);
+        }
+        moves.sortByPriority();
+        int[] expected = {1, 3, 2, 0, 4}; // Equal priorities keep their order
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], moves.get(i));
+        }
+        moves.moveToFront(moves.indexOf(4));
+        assertEquals(4, moves.get(0));
+        assertEquals(1, moves.get(1));
+        assertEquals(-1, moves.indexOf(27));
+        moves.clear();
+        assertTrue(moves.isEmpty());
+    }
+
+    @Test
+    void testFindValidMovesIntoList() {
+        MoveList moves = new MoveList();
+        for (long seed = 0; seed < 100; seed++) {
+            ServerBoard serverBoard = new ServerBoard(new SplittableRandom(seed));
+            serverBoard.setupBoard();
+            Board board = serverBoard.deepCopy();
+            SplittableRandom random = new SplittableRandom(seed);
+            List<Move> validMoves;
+            while (!(validMoves = board.findValidMoves()).isEmpty()) {
+                board.findValidMoves(moves);
+                assertEquals(validMoves, moves.toList());
+                int code = moves.get(random.nextInt(moves.size()));
+                Board copy = board.deepCopy();
+                assertEquals(Board.getYieldAmount(board.apply(Move.decode(code))),
+                    Board.getYieldAmount(copy.apply(code)));
+                assertArrayEquals(board.getBoardState(), copy.getBoardState());
+            }
+            board.findValidMoves(moves);
+            assertTrue(moves.isEmpty());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package modelTests;
+
+import dt.ai.MiniMaxAI2;
+import dt.ai.OpeningBook;
+import dt.ai.OpeningBookGenerator;
+import dt.model.ServerBoard;
+import dt.util.Move;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpeningBookTest {
+
+    Path directory;
+    Path bookFile;
+
+    @BeforeEach
+    void setup() throws IOException {
+        directory = Files.createTempDirectory("openings");
+        bookFile = directory.resolve("Openings.book");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(bookFile);
+        Files.delete(directory);
+    }
+
+    @Test
+    void testProbeFindsEveryPosition() throws IOException {
+        SplittableRandom random = new SplittableRandom(22);
+        Map<Long, Integer> moves = new HashMap<>();
+        moves.put(Long.MIN_VALUE, 0);
+        moves.put(Long.MAX_VALUE, Move.CODES - 1);
+        while (moves.size() < 10000) {
+            moves.put(random.nextLong(), random.nextInt(Move.CODES));
+        }
+        OpeningBook.write(bookFile, moves);
+
+        OpeningBook book = OpeningBook.open(bookFile);
+        assertEquals(moves.size(), book.getSize());
+        for (Map.Entry<Long, Integer> entry : moves.entrySet()) {
+            assertEquals(entry.getValue(), book.probe(entry.getKey()));
+        }
+        for (int i = 0; i < 10000; i++) {
+            long hash = random.nextLong();
+            if (!moves.containsKey(hash)) {
+                assertEquals(OpeningBook.NOMOVE, book.probe(hash));
+            }
+        }
+    }
+
+    @Test
+    void testEmptyBook() throws IOException {
+        OpeningBook.write(bookFile, new HashMap<>());
+        OpeningBook book = OpeningBook.open(bookFile);
+        assertEquals(0, book.getSize());
+        assertEquals(OpeningBook.NOMOVE, book.probe(0L));
+    }
+
+    @Test
+    void testOpenRejectsOtherFiles() throws IOException {
+        Files.write(bookFile, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+        assertThrows(IOException.class, () -> OpeningBook.open(bookFile));
+    }
+
+    @Test
+    void testGeneratedBookIsPlayed() throws IOException, InterruptedException {
+        long seed = 24;
+        Map<Long, Integer> moves = new OpeningBookGenerator(2, 20, 2).generate(4, seed);
+        OpeningBook.write(bookFile, moves);
+        OpeningBook book = OpeningBook.open(bookFile);
+
+        // The boards are drawn from the seed the same way as by the generator
+        SplittableRandom seeds = new SplittableRandom(seed);
+        MiniMaxAI2 ai = new MiniMaxAI2(1, 1);
+        ai.setOpeningBook(book);
+        for (int game = 0; game < 4; game++) {
+            ServerBoard board = new ServerBoard(seeds.split());
+            board.setupBoard();
+            Move move = book.probe(board);
+            assertNotNull(move);
+            assertTrue(board.findValidMoves().contains(move));
+            assertSame(move, ai.findBestMove(board, 0));
+            assertEquals(0, ai.getNodeCount()); // Played without a search
+        }
+        assertTrue(book.getSize() >= 4);
+    }
+}
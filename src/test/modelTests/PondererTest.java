@@ -0,0 +1,182 @@
+package modelTests;
+
+import dt.ai.IterativeDeepeningAI;
+import dt.ai.MiniMaxAI2;
+import dt.ai.Ponderer;
+import dt.model.Board;
+import dt.model.ServerBoard;
+import dt.util.Move;
+import dt.util.MoveList;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PondererTest {
+
+    @Test
+    void testPredictedReplyIsPromoted() throws InterruptedException {
+        Board board = createBoard();
+        int[] state = board.getBoardState();
+        MiniMaxAI2 ai = new MiniMaxAI2(2, 1);
+        Ponderer ponderer = new Ponderer(ai, 100);
+        ponderer.start(board);
+        while (ponderer.isPondering()) {
+            Thread.sleep(10);
+        }
+        assertArrayEquals(state, board.getBoardState());
+
+        // The reply that yields the most balls is always one of the predictions
+        Move theirMove = findHighestYield(board);
+        Ponderer.Result result = ponderer.stop(theirMove);
+        assertNotNull(result);
+        assertTrue(result.isComplete());
+        assertEquals(1, ponderer.getHits());
+
+        board.apply(theirMove);
+        assertTrue(board.findValidMoves().contains(result.getMove()));
+    }
+
+    @Test
+    void testStopDoesNotWaitForTheSearch() throws InterruptedException {
+        Board board = createBoard();
+        MiniMaxAI2 ai = new MiniMaxAI2(2, 1);
+        Ponderer ponderer = new Ponderer(ai, 60000);
+        ponderer.start(board);
+        Thread.sleep(50);
+
+        long start = System.currentTimeMillis();
+        Ponderer.Result result = ponderer.stop(findHighestYield(board));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertFalse(ponderer.isPondering());
+        assertTrue(result == null || !result.isComplete());
+
+        // The AI can be used again once pondering has stopped
+        assertTrue(board.findValidMoves().contains(ai.findBestMove(board, 10)));
+    }
+
+    @Test
+    void testStoppedSearchIsPlayedWhenLittleTimeIsLeft() throws InterruptedException {
+        Board board = createBoard();
+        ScriptedAI ai = new ScriptedAI(3);
+        Ponderer ponderer = new Ponderer(ai, 1000);
+        ponderer.start(board);
+        Thread.sleep(950); // The prediction takes 100 ms, so the answer has been searched for about 850 ms
+
+        Move theirMove = board.findValidMoves().get(0);
+        Ponderer.Result result = ponderer.stop(theirMove);
+        assertNotNull(result);
+        assertFalse(result.isComplete());
+        assertEquals(3, result.getDepth());
+
+        board.apply(theirMove);
+        int searches = ai.searches;
+        assertEquals(result.getMove(), ponderer.findMove(board, result));
+        assertEquals(searches, ai.searches);
+    }
+
+    @Test
+    void testStoppedSearchIsOnlyReplacedByADeeperSearch() throws InterruptedException {
+        Board board = createBoard();
+        ScriptedAI ai = new ScriptedAI(3);
+        Ponderer ponderer = new Ponderer(ai, 1000);
+        ponderer.start(board);
+        Thread.sleep(300);
+
+        Move theirMove = board.findValidMoves().get(0);
+        Ponderer.Result result = ponderer.stop(theirMove);
+        assertNotNull(result);
+        assertFalse(result.isComplete());
+        board.apply(theirMove);
+
+        // A search in the rest of the time budget that finishes no iteration does not replace the move
+        ai.finishedDepth = 0;
+        int searches = ai.searches;
+        assertEquals(result.getMove(), ponderer.findMove(board, result));
+        assertEquals(searches + 1, ai.searches);
+
+        // A search that finds the exact scores does
+        ai.exact = true;
+        List<Move> validMoves = board.findValidMoves();
+        assertEquals(validMoves.get(validMoves.size() - 1), ponderer.findMove(board, result));
+        assertNotEquals(result.getMove(), validMoves.get(validMoves.size() - 1));
+    }
+
+    /**
+     * @return A board in the middle of a game.
+     */
+    private static Board createBoard() {
+        ServerBoard serverBoard = new ServerBoard(new SplittableRandom(25));
+        serverBoard.setupBoard();
+        Board board = serverBoard.deepCopy();
+        board.apply(board.findValidMoves().get(0));
+        return board;
+    }
+
+    /**
+     * @return The first of the valid moves that yield the most balls.
+     */
+    private static Move findHighestYield(Board board) {
+        MoveList moves = new MoveList();
+        board.findValidMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            long undoRecord = board.apply(moves.get(i));
+            moves.setPriority(i, Board.getYieldAmount(undoRecord));
+            board.undo(undoRecord);
+        }
+        moves.sortByPriority();
+        return Move.decode(moves.get(0));
+    }
+
+    /**
+     * An AI that finishes the iterations up to a given depth right away and the deeper ones never, such that its
+     * searches always use up their time budget. All moves get the same score, so the first valid move is the best,
+     * unless the AI is set to find exact scores, which make the last valid move the best.
+     */
+    private static class ScriptedAI extends IterativeDeepeningAI {
+        private volatile int finishedDepth;
+        private volatile boolean exact;
+        private volatile int searches;
+
+        private ScriptedAI(int finishedDepth) {
+            this.finishedDepth = finishedDepth;
+        }
+
+        @Override
+        public Move findBestMove(Board board) {
+            return this.findBestMove(board, 0);
+        }
+
+        @Override
+        public Move findBestMove(Board board, long timeBudget, BooleanSupplier stop) {
+            this.searches++;
+            return super.findBestMove(board, timeBudget, stop);
+        }
+
+        @Override
+        protected int[] searchRoot(Board board, List<Move> validMoves, int depth) {
+            int[] scores = new int[validMoves.size()];
+            if (this.exact) {
+                scores[scores.length - 1] = 1;
+                return scores;
+            }
+            while (depth > this.finishedDepth && !this.isOutOfTime()) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return scores;
+                }
+            }
+            return scores;
+        }
+
+        @Override
+        protected boolean isSolved(Board board) {
+            return this.exact;
+        }
+    }
+}
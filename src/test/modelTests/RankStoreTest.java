@@ -0,0 +1,128 @@
+package modelTests;
+
+import dt.server.RankStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankStoreTest {
+
+    Path directory;
+    Path rankFile;
+    Path logFile;
+
+    @BeforeEach
+    void setup() throws IOException {
+        directory = Files.createTempDirectory("ranking");
+        rankFile = directory.resolve("Ranking.txt");
+        logFile = directory.resolve("Ranking.log");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void testOldRankFile() throws IOException {
+        Files.write(rankFile, List.of("alice 3", "bob 0"), StandardCharsets.UTF_8);
+        RankStore store = new RankStore(rankFile);
+        assertEquals(3, store.getWins("alice"));
+        assertEquals(0, store.getWins("bob"));
+        assertFalse(store.contains("carol"));
+    }
+
+    @Test
+    void testRecoveryWithoutClose() {
+        RankStore store = new RankStore(rankFile);
+        store.addPlayer("alice");
+        store.addPlayer("bob");
+        store.addWin("alice");
+        store.addWin("alice");
+        store.addPlayer("alice");
+
+        //The first store is never closed, as if the server crashed
+        RankStore recovered = new RankStore(rankFile);
+        assertEquals(2, recovered.getWins("alice"));
+        assertEquals(0, recovered.getWins("bob"));
+        assertEquals(store.getRanks(), recovered.getRanks());
+    }
+
+    @Test
+    void testCloseCompacts() throws IOException {
+        RankStore store = new RankStore(rankFile);
+        store.addPlayer("alice");
+        store.addWin("alice");
+        store.close();
+
+        assertEquals(0, Files.size(logFile));
+        assertEquals(1, new RankStore(rankFile).getWins("alice"));
+    }
+
+    @Test
+    void testCompactedRecordsAreNotCountedTwice() throws IOException {
+        //A crash after the rank file was replaced, but before the log was truncated
+        Files.write(rankFile, List.of("#3", "alice 2"), StandardCharsets.UTF_8);
+        Files.write(logFile, List.of("1 ADD alice", "2 WIN alice", "3 WIN alice", "4 WIN alice"),
+            StandardCharsets.UTF_8);
+        assertEquals(3, new RankStore(rankFile).getWins("alice"));
+    }
+
+    @Test
+    void testHalfWrittenRecordIsIgnored() throws IOException {
+        Files.write(logFile, List.of("1 ADD alice", "2 WIN alice"), StandardCharsets.UTF_8);
+        Files.write(logFile, "3 WIN ali".getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.APPEND);
+        RankStore store = new RankStore(rankFile);
+        assertEquals(1, store.getWins("alice"));
+        assertFalse(store.contains("ali"));
+
+        store.addWin("alice");
+        assertEquals(2, new RankStore(rankFile).getWins("alice"));
+    }
+
+    @Test
+    void testConcurrentWins() throws InterruptedException {
+        int threads = 8;
+        int winsPerThread = 500;
+        RankStore store = new RankStore(rankFile);
+        store.addPlayer("alice");
+        List<Thread> players = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            String name = "player" + i;
+            Thread player = new Thread(() -> {
+                for (int j = 0; j < winsPerThread; j++) {
+                    store.addPlayer(name);
+                    store.addWin("alice");
+                }
+            });
+            players.add(player);
+            player.start();
+        }
+        for (Thread player : players) {
+            player.join();
+        }
+        assertEquals(threads * winsPerThread, store.getWins("alice"));
+        store.close();
+
+        RankStore recovered = new RankStore(rankFile);
+        assertEquals(threads * winsPerThread, recovered.getWins("alice"));
+        assertEquals(threads + 1, recovered.getRanks().size());
+    }
+}
@@ -1,12 +1,20 @@
 package modelTests;
 
+import dt.model.BallType;
 import dt.model.ServerBoard;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 public class ServerBoardTest {
@@ -26,4 +34,75 @@ public class ServerBoardTest {
             assertNotEquals(Collections.emptyList(), this.board.findValidMoves());
         }
     }
+
+    @Test
+    void testSeededSetup() {
+        for (long seed = 0; seed < 100; seed++) {
+            ServerBoard board1 = new ServerBoard(new SplittableRandom(seed));
+            ServerBoard board2 = new ServerBoard(new SplittableRandom(seed));
+            board1.setupBoard();
+            board2.setupBoard();
+            assertArrayEquals(board1.getBoardState(), board2.getBoardState());
+        }
+    }
+
+    @Test
+    void testCreateBoardHoldsToTheRules() {
+        int size = this.board.getBoardSize();
+        int middle = (size * size - 1) / 2;
+        for (long seed = 0; seed < 10000; seed++) {
+            int[] created = new ServerBoard(new SplittableRandom(seed)).createBoard();
+            int[] counts = new int[BallType.values().length];
+            for (int i = 0; i < created.length; i++) {
+                counts[created[i]]++;
+                if (i % size != size - 1) {
+                    assertNotEquals(created[i], created[i + 1]);
+                }
+                if (i + size < created.length) {
+                    assertNotEquals(created[i], created[i + size]);
+                }
+            }
+            assertEquals(BallType.EMPTY.ordinal(), created[middle]);
+            assertEquals(1, counts[BallType.EMPTY.ordinal()]);
+            for (int colour = 1; colour < counts.length; colour++) {
+                assertEquals(8, counts[colour]);
+            }
+        }
+    }
+
+    @Test
+    void testCreateBoardIsWellMixed() {
+        // The starting pattern has one colour per diagonal, so without enough random swaps the balls diagonally
+        // next to each other would always have the same colour. For a board drawn at random this happens about
+        // one in five times, and every colour is equally likely on every cell.
+        int boards = 12000;
+        int colours = BallType.values().length - 1;
+        int size = this.board.getBoardSize();
+        int[][] colourCounts = new int[size * size][colours + 1];
+        int sameDiagonal = 0;
+        Set<String> distinct = new HashSet<>();
+        for (long seed = 0; seed < boards; seed++) {
+            int[] created = new ServerBoard(new SplittableRandom(seed)).createBoard();
+            for (int i = 0; i < created.length; i++) {
+                colourCounts[i][created[i]]++;
+            }
+            if (created[1] == created[size]) {
+                sameDiagonal++;
+            }
+            distinct.add(Arrays.toString(created));
+        }
+        assertEquals(boards, distinct.size());
+        assertTrue(sameDiagonal < boards * 0.3,
+            "diagonal neighbours equal " + sameDiagonal + " times");
+        int expected = boards / colours;
+        for (int i = 0; i < colourCounts.length; i++) {
+            if (i == (size * size - 1) / 2) {
+                continue;
+            }
+            for (int colour = 1; colour <= colours; colour++) {
+                assertTrue(Math.abs(colourCounts[i][colour] - expected) < expected * 0.1,
+                    "colour " + colour + " lies " + colourCounts[i][colour] + " times on " + i);
+            }
+        }
+    }
 }
@@ -0,0 +1,84 @@
+package modelTests;
+
+import dt.server.SessionScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionSchedulerTest {
+    private static final int SHARDS = 4;
+
+    SessionScheduler scheduler;
+
+    @BeforeEach
+    void setup() {
+        scheduler = new SessionScheduler(SHARDS);
+    }
+
+    @AfterEach
+    void cleanup() {
+        scheduler.shutDown();
+    }
+
+    @Test
+    void testSameGameSameShard() {
+        for (long id = 0; id < 100; id++) {
+            assertSame(scheduler.getShard(id), scheduler.getShard(id));
+            assertSame(scheduler.getShard(id), scheduler.getShard(id + SHARDS));
+        }
+        Set<Executor> shards = new HashSet<>();
+        for (long id = 0; id < SHARDS; id++) {
+            shards.add(scheduler.getShard(id));
+        }
+        assertEquals(SHARDS, shards.size());
+    }
+
+    @Test
+    void testTasksOfAGameRunInOrderOnOneThread() throws InterruptedException {
+        int games = 16;
+        int tasks = 1000;
+        List<List<Integer>> order = new ArrayList<>();
+        Map<Integer, Set<Thread>> threads = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(games * tasks);
+        for (int game = 0; game < games; game++) {
+            order.add(new ArrayList<>()); // Only touched by the shard of the game
+            threads.put(game, ConcurrentHashMap.newKeySet());
+        }
+        List<Thread> senders = new ArrayList<>();
+        for (int game = 0; game < games; game++) {
+            int id = game;
+            Thread sender = new Thread(() -> {
+                for (int task = 0; task < tasks; task++) {
+                    int number = task;
+                    scheduler.getShard(id).execute(() -> {
+                        order.get(id).add(number);
+                        threads.get(id).add(Thread.currentThread());
+                        done.countDown();
+                    });
+                }
+            });
+            senders.add(sender);
+            sender.start();
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        for (int game = 0; game < games; game++) {
+            assertEquals(1, threads.get(game).size());
+            List<Integer> tasksOfGame = order.get(game);
+            for (int task = 0; task < tasks; task++) {
+                assertEquals(task, tasksOfGame.get(task));
+            }
+        }
+    }
+}